@@ -0,0 +1,36 @@
+package com.aiexpert.vendingbench;
+
+import com.aiexpert.vendingbench.batch.BatchRunResult;
+import com.aiexpert.vendingbench.batch.BatchRunner;
+import com.aiexpert.vendingbench.batch.ExperimentMatrix;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Headless entry point for running an experiment matrix without the web UI.
+ * Usage: {@code VendingBenchBatchApplication <matrix.json> [results.csv]}
+ */
+public class VendingBenchBatchApplication {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: VendingBenchBatchApplication <matrix.json> [results.csv]");
+            System.exit(2);
+        }
+        Path matrixFile = Path.of(args[0]);
+        Path output = Path.of(args.length > 1 ? args[1] : "batch-results.csv");
+        ExperimentMatrix matrix = new ObjectMapper().readValue(matrixFile.toFile(), ExperimentMatrix.class);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(VendingBenchApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+        List<BatchRunResult> results = context.getBean(BatchRunner.class).run(matrix, output);
+        System.out.println("Completed " + results.size() + " runs. Results written to " + output.toAbsolutePath());
+        System.exit(SpringApplication.exit(context));
+    }
+}
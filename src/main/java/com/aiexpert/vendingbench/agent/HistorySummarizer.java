@@ -0,0 +1,120 @@
+package com.aiexpert.vendingbench.agent;
+
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.llm.LLMService;
+import com.aiexpert.vendingbench.logging.EventLogger;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compresses the oldest history turns into a rolling summary in the background. A request starts once the
+ * history nears the context budget, so by the time turns must be pruned the summary is usually waiting and
+ * the agent's turn never blocks on it. A result is only used if the summary and turns it was built from are
+ * still the oldest part of the history; otherwise the agent falls back to its own quick summary.
+ * All methods are called from the agent's thread; only the request's completion runs elsewhere.
+ */
+public class HistorySummarizer {
+
+    /**
+     * A finished summary of {@code baseSummary} followed by {@code turns}.
+     */
+    public record Summary(PromptHistory.Turn baseSummary, List<PromptHistory.Turn> turns, String text) {}
+
+    private static final class Job {
+        private final PromptHistory.Turn baseSummary;
+        private final List<PromptHistory.Turn> turns;
+        private volatile Disposable subscription;
+        private volatile String result;
+        private volatile boolean done;
+
+        private Job(PromptHistory.Turn baseSummary, List<PromptHistory.Turn> turns) {
+            this.baseSummary = baseSummary;
+            this.turns = turns;
+        }
+    }
+
+    private final LLMService llmService;
+    private final SimulationDefaults.Agent.Summarizer config;
+    private final EventLogger logger;
+    private final String agentName;
+    private Job job;
+
+    public HistorySummarizer(LLMService llmService, SimulationDefaults.Agent.Summarizer config, EventLogger logger, String agentName) {
+        this.llmService = llmService;
+        this.config = config;
+        this.logger = logger;
+        this.agentName = agentName;
+    }
+
+    /**
+     * Starts summarizing the oldest turns if the history is close to the budget and no request is pending.
+     */
+    public void maybeStart(PromptHistory history, int maxContextTokens) {
+        if (job != null || history.isEmpty() || history.getTotalTokens() < config.getStartAtRatio() * maxContextTokens) {
+            return;
+        }
+        List<PromptHistory.Turn> turns = history.getOldestTurns((int) (config.getChunkRatio() * maxContextTokens));
+        Job started = new Job(history.getSummary(), turns);
+        this.job = started;
+        String prompt = buildPrompt(started.baseSummary, turns);
+        started.subscription = Mono.defer(() -> llmService.generateMono(prompt))
+                .timeout(Duration.ofSeconds(config.getTimeoutSeconds()))
+                .subscribe(text -> {
+                    started.result = text.trim();
+                    started.done = true;
+                }, error -> {
+                    started.done = true;
+                    logger.log("ERROR", agentName, "Background history summary failed; pruning will use the quick summary.",
+                            Map.of("error", String.valueOf(error.getMessage())));
+                });
+    }
+
+    /**
+     * Hands over the finished summary if it still describes the oldest part of {@code history}.
+     * Returns null while the request is running, after it failed, or once the history has moved on.
+     */
+    public Summary takeReady(PromptHistory history) {
+        Job current = job;
+        if (current == null || !current.done) {
+            return null;
+        }
+        job = null;
+        boolean stillOldest = current.baseSummary == history.getSummary() && current.turns.get(0) == history.getOldest();
+        if (current.result == null || current.result.isEmpty() || !stillOldest) {
+            return null;
+        }
+        return new Summary(current.baseSummary, current.turns, current.result);
+    }
+
+    /**
+     * Drops a pending request whose input is about to be pruned by other means.
+     */
+    public void cancel() {
+        Job current = job;
+        job = null;
+        if (current != null && current.subscription != null) {
+            current.subscription.dispose();
+        }
+    }
+
+    private String buildPrompt(PromptHistory.Turn baseSummary, List<PromptHistory.Turn> turns) {
+        StringBuilder prompt = new StringBuilder(1024);
+        prompt.append("You keep the running memory of an AI agent that operates a vending machine business. ")
+                .append("Merge the existing summary and the new events below into one updated summary of at most ")
+                .append(config.getMaxSummaryWords()).append(" words. Keep what will matter later: orders placed ")
+                .append("(items, quantities, costs, expected delivery days), suppliers and their prices, price changes and ")
+                .append("how sales reacted, cash trends, problems met and lessons learned. Reply with the summary text only.\n");
+        prompt.append("\nEXISTING SUMMARY:\n").append(baseSummary != null ? baseSummary.result() : "(none)").append("\n");
+        prompt.append("\nNEW EVENTS:\n");
+        for (PromptHistory.Turn turn : turns) {
+            prompt.append("Thought: ").append(turn.thought()).append("\n");
+            prompt.append("Command: ").append(turn.actionJson()).append("\n");
+            prompt.append("Result: ").append(turn.result()).append("\n---\n");
+        }
+        return prompt.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.aiexpert.vendingbench.agent;
+
+import com.aiexpert.vendingbench.model.SimulationState;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The state as Jackson JSON, either minified or indented. Pending deliveries are not part of the
+ * state's JSON form, so they are added as their own field, sorted by arrival day.
+ */
+public class JsonStateEncoder implements StateEncoder {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectWriter writer;
+    private final String name;
+
+    public JsonStateEncoder(boolean pretty) {
+        this.writer = pretty ? objectMapper.writerWithDefaultPrettyPrinter() : objectMapper.writer();
+        this.name = pretty ? "pretty" : "json";
+    }
+
+    @Override
+    public String getName() { return name; }
+
+    @Override
+    public String encode(SimulationState state) throws Exception {
+        ObjectNode tree = objectMapper.valueToTree(state);
+        Map<Integer, Map<String, Integer>> deliveries = new TreeMap<>();
+        state.getPendingDeliveries().forEach((day, items) -> deliveries.put(day, new TreeMap<>(items)));
+        tree.set("pendingDeliveries", objectMapper.valueToTree(deliveries));
+        return writer.writeValueAsString(tree);
+    }
+}
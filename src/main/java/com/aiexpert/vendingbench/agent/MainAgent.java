@@ -1,107 +1,201 @@
 package com.aiexpert.vendingbench.agent;
 
+import com.aiexpert.vendingbench.llm.LLMResponse;
 import com.aiexpert.vendingbench.llm.LLMService;
+import com.aiexpert.vendingbench.llm.PromptLayout;
 import com.aiexpert.vendingbench.logging.EventLogger;
 import com.aiexpert.vendingbench.model.SimulationState;
 import com.aiexpert.vendingbench.service.MemoryManager;
 import com.aiexpert.vendingbench.service.SimulationEngine;
+import com.aiexpert.vendingbench.service.TokenCounter;
 import com.aiexpert.vendingbench.service.TokenizerService;
 import com.aiexpert.vendingbench.tool.Tool;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import reactor.core.publisher.Flux;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class MainAgent extends Agent {
 
-    private record Turn(String thought, String actionJson, String result, int tokenCount) {}
-
     private final LLMService llmService;
     private final EventLogger logger;
-    private final TokenizerService tokenizerService;
+    private final TokenCounter tokenCounter;
     private final MemoryManager memoryManager;
-    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    // Compact output: the action and state-delta JSON go back into the prompt, where indentation only spends tokens.
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private final List<Turn> history = new ArrayList<>();
+    private final PromptHistory history = new PromptHistory();
     private String persona;
     private int maxContextTokens = 30000; // Match research exactly
     private Action humanOverrideAction = null;
+    private boolean streamingEnabled = false;
+    private int maxActionsPerTurn = 1;
+    private final StreamingMetrics streamingMetrics = new StreamingMetrics();
+    private final TokenUsageMetrics tokenUsage = new TokenUsageMetrics();
     
     private String lastThoughtForHistory = "";
     private String lastActionJsonForHistory = "{}";
 
+    // The system block only changes with the persona or the tool set, so it is rendered once and reused.
+    private String cachedSystemBlock;
+    private StateEncoder stateEncoder = StateEncoder.forName("json");
+    // Null means pruned turns are only summarized by the quick keyword pass.
+    private HistorySummarizer summarizer;
+    // Null means the full state is sent every turn.
+    private StateDeltaTracker deltaTracker;
+    private String cachedSystemPersona;
+    private Set<String> cachedSystemTools;
+
     public MainAgent(String name, LLMService llmService, EventLogger logger, TokenizerService tokenizerService, MemoryManager memoryManager) {
         super(name);
         this.llmService = llmService;
         this.logger = logger;
-        this.tokenizerService = tokenizerService;
+        this.tokenCounter = llmService != null
+                ? tokenizerService.forModel(llmService.getProviderName(), llmService.getModelName())
+                : tokenizerService.forModel(null, null);
         this.memoryManager = memoryManager;
         this.persona = "A meticulous and profit-oriented business manager focused on long-term growth.";
     }
 
     public void setHumanOverrideAction(Action action) { this.humanOverrideAction = action; }
     public void setPersona(String persona) { this.persona = persona; }
+    public void setStreamingEnabled(boolean streamingEnabled) { this.streamingEnabled = streamingEnabled; }
+    public void setMaxActionsPerTurn(int maxActionsPerTurn) {
+        this.maxActionsPerTurn = Math.max(1, maxActionsPerTurn);
+        this.cachedSystemBlock = null;
+    }
+    public void setHistorySummarizer(HistorySummarizer summarizer) { this.summarizer = summarizer; }
+    public void setStateEncoder(StateEncoder stateEncoder) { this.stateEncoder = stateEncoder; }
+    public void setDeltaPerception(boolean enabled, int fullStateEveryTurns) {
+        this.deltaTracker = enabled ? new StateDeltaTracker(fullStateEveryTurns) : null;
+    }
+    public int getMaxActionsPerTurn() { return maxActionsPerTurn; }
+    public StreamingMetrics getStreamingMetrics() { return streamingMetrics; }
+    public TokenUsageMetrics getTokenUsage() { return tokenUsage; }
 
     public String getLastThought() {
-        if (history.isEmpty()) {
+        PromptHistory.Turn latest = history.getLatest();
+        if (latest == null) {
             return "Waiting for first turn.";
         }
-        return history.get(history.size() - 1).thought();
+        return latest.thought();
     }
 
     @Override
     public Action act(SimulationState state, Map<String, Tool> availableTools) {
+        return plan(state, availableTools).get(0);
+    }
+
+    /**
+     * Asks the model for its next commands. The response holds either a single "action" or, when batching is
+     * allowed, an ordered "actions" array; either way the commands share one LLM round trip and one history entry.
+     */
+    public List<Action> plan(SimulationState state, Map<String, Tool> availableTools) {
         if (humanOverrideAction != null) {
             Action actionToExecute = humanOverrideAction;
             this.status = "Delegating human input";
             this.humanOverrideAction = null;
-            return actionToExecute;
+            return List.of(actionToExecute);
         }
 
         if (llmService == null) {
             this.status = "Idle (No LLM)";
-            return new Action(SimulationEngine.IDLE_TOOL, "{}");
+            return List.of(new Action(SimulationEngine.IDLE_TOOL, "{}"));
         }
 
-        String perception = perceive(state, availableTools);
-        logger.log("LLM_REQUEST", name, "Sending prompt to LLM.", Map.of("prompt", perception));
+        PromptLayout perception = perceive(state, availableTools);
+        logger.log("LLM_REQUEST", name, "Sending prompt to LLM.", Map.of("prompt", perception.flatten()));
 
         this.status = "Thinking...";
-        String responseJson = llmService.generate(perception);
-        logger.log("LLM_RESPONSE", name, "Received response from LLM.", Map.of("response", responseJson));
+        String responseJson;
+        if (streamingEnabled) {
+            responseJson = generateStreaming(perception);
+            logger.log("LLM_RESPONSE", name, "Received response from LLM.", Map.of("response", responseJson));
+        } else {
+            LLMResponse response = llmService.complete(perception);
+            responseJson = response.text();
+            tokenUsage.record(response);
+            logger.log("LLM_RESPONSE", name, "Received response from LLM.", Map.of("response", responseJson,
+                    "input_tokens", response.inputTokens(), "cached_input_tokens", response.cachedInputTokens(), "output_tokens", response.outputTokens()));
+        }
 
         try {
             JsonNode responseNode = objectMapper.readTree(responseJson);
             this.lastThoughtForHistory = responseNode.has("thought") ? responseNode.get("thought").asText() : "No thought provided.";
             
+            JsonNode actionsNode = responseNode.get("actions");
             JsonNode actionNode = responseNode.get("action");
-            if (actionNode == null) throw new IllegalArgumentException("Response missing 'action' object.");
-            
-            this.lastActionJsonForHistory = objectMapper.writeValueAsString(actionNode);
-            
-            String toolName = actionNode.get("tool").asText();
-            JsonNode paramsNode = actionNode.get("parameters");
-            String paramsJson = (paramsNode != null) ? objectMapper.writeValueAsString(paramsNode) : "{}";
+            List<JsonNode> commandNodes = new ArrayList<>();
+            if (maxActionsPerTurn > 1 && actionsNode != null && actionsNode.isArray() && !actionsNode.isEmpty()) {
+                // Commands beyond the limit are dropped; the history shows only what was actually run.
+                for (int i = 0; i < Math.min(actionsNode.size(), maxActionsPerTurn); i++) {
+                    commandNodes.add(actionsNode.get(i));
+                }
+                this.lastActionJsonForHistory = objectMapper.writeValueAsString(commandNodes);
+            } else if (actionNode != null) {
+                commandNodes.add(actionNode);
+                this.lastActionJsonForHistory = objectMapper.writeValueAsString(actionNode);
+            } else {
+                throw new IllegalArgumentException("Response missing 'action' object.");
+            }
+
+            List<Action> actions = new ArrayList<>(commandNodes.size());
+            for (JsonNode commandNode : commandNodes) {
+                String toolName = commandNode.get("tool").asText();
+                JsonNode paramsNode = commandNode.get("parameters");
+                String paramsJson = (paramsNode != null) ? objectMapper.writeValueAsString(paramsNode) : "{}";
+                actions.add(new Action(toolName, paramsJson));
+            }
             
             this.status = "Delegating to SubAgent";
-            return new Action(toolName, paramsJson);
+            return actions;
 
         } catch (Exception e) {
             this.status = "Idle (Parsing Error)";
             String error = "Error: Could not parse LLM response. Ensure it's valid JSON. Response: " + responseJson;
             updateHistory(error);
             System.err.println("Error parsing LLM response: " + e.getMessage());
-            return new Action(SimulationEngine.IDLE_TOOL, "{}");
+            return List.of(new Action(SimulationEngine.IDLE_TOOL, "{}"));
+        }
+    }
+
+    /**
+     * Streams the completion and stops reading as soon as the action object is complete,
+     * which cancels the underlying request instead of paying for trailing output.
+     */
+    private String generateStreaming(PromptLayout prompt) {
+        StreamingActionParser parser = new StreamingActionParser();
+        long startNanos = System.nanoTime();
+        long[] firstTokenNanos = { -1 };
+
+        Flux<String> stream = llmService.generateStream(prompt);
+        try {
+            stream.doOnNext(chunk -> {
+                        if (firstTokenNanos[0] < 0) firstTokenNanos[0] = System.nanoTime();
+                    })
+                    .takeUntil(parser::feed)
+                    .blockLast();
+        } catch (Exception e) {
+            return llmService.fallbackResponse(e);
         }
+
+        long actionMs = (System.nanoTime() - startNanos) / 1_000_000;
+        long firstTokenMs = firstTokenNanos[0] < 0 ? -1 : (firstTokenNanos[0] - startNanos) / 1_000_000;
+        streamingMetrics.record(firstTokenMs, actionMs, parser.isComplete());
+        logger.log("LLM_STREAM", name, "Streamed response " + (parser.isComplete() ? "complete at action." : "ended without a complete action."),
+                Map.of("time_to_first_token_ms", firstTokenMs, "time_to_action_ms", actionMs, "chars_received", parser.getReceivedLength()));
+        return parser.getResponse();
     }
 
     public void updateHistory(String result) {
-        int turnTokens = tokenizerService.countTokens(this.lastThoughtForHistory + this.lastActionJsonForHistory + result);
-        this.history.add(new Turn(this.lastThoughtForHistory, this.lastActionJsonForHistory, result, turnTokens));
+        // Counted per part so the often repeated action JSON and tool results hit the tokenizer cache.
+        int turnTokens = tokenCounter.count(this.lastThoughtForHistory) + tokenCounter.count(this.lastActionJsonForHistory) + tokenCounter.count(result);
+        this.history.add(new PromptHistory.Turn(this.lastThoughtForHistory, this.lastActionJsonForHistory, result, turnTokens));
         pruneHistory();
         
         this.lastThoughtForHistory = "";
@@ -109,18 +203,40 @@ public class MainAgent extends Agent {
     }
     
     private void pruneHistory() {
-        int currentTotalTokens = history.stream().mapToInt(Turn::tokenCount).sum();
+        int currentTotalTokens = history.getTotalTokens();
         if (currentTotalTokens <= maxContextTokens) {
+            if (summarizer != null) {
+                summarizer.maybeStart(history, maxContextTokens);
+            }
             return;
         }
 
-        List<Turn> turnsToRemove = new ArrayList<>();
-        StringBuilder summaryBuilder = new StringBuilder("Summary of oldest events that were pruned from context: ");
         int tokensToPrune = currentTotalTokens - maxContextTokens;
         int tokensPruned = 0;
+        HistorySummarizer.Summary backgroundSummary = summarizer != null ? summarizer.takeReady(history) : null;
+
+        // The previous summary is the oldest entry, so it is always the first to go.
+        PromptHistory.Turn previousSummary = history.replaceSummary(null);
+        if (previousSummary != null) {
+            tokensPruned += previousSummary.tokenCount();
+        }
+
+        StringBuilder summaryBuilder;
+        if (backgroundSummary != null) {
+            // The background summary already covers the previous summary and these turns, so they all go at once.
+            summaryBuilder = new StringBuilder(backgroundSummary.text()).append(' ');
+            for (int i = 0; i < backgroundSummary.turns().size(); i++) {
+                tokensPruned += history.removeOldest().tokenCount();
+            }
+        } else {
+            summaryBuilder = new StringBuilder("Summary of oldest events that were pruned from context: ");
+            if (summarizer != null) {
+                summarizer.cancel();
+            }
+        }
 
-        for (int i = 0; i < history.size() && tokensPruned < tokensToPrune; i++) {
-            Turn turn = history.get(i);
+        while (!history.isEmpty() && tokensPruned < tokensToPrune) {
+            PromptHistory.Turn turn = history.removeOldest();
             
             if (turn.actionJson().contains("purchase_from_supplier")) {
                 summaryBuilder.append("An order was placed with result: '").append(turn.result()).append("'. ");
@@ -129,72 +245,109 @@ public class MainAgent extends Agent {
             }
 
             tokensPruned += turn.tokenCount();
-            turnsToRemove.add(turn);
         }
 
-        history.removeAll(turnsToRemove);
-
-        String summary = summaryBuilder.toString();
-        int summaryTokens = tokenizerService.countTokens(summary);
-        history.add(0, new Turn("Summary of pruned history.", "{}", summary, summaryTokens));
+        String summary = summaryBuilder.toString().trim();
+        int summaryTokens = tokenCounter.count(summary);
+        history.replaceSummary(new PromptHistory.Turn("Summary of pruned history.", "{}", summary, summaryTokens));
+        if (deltaTracker != null) {
+            // The turns that explained earlier state changes are gone, so re-anchor on a full snapshot.
+            deltaTracker.requestSnapshot();
+        }
+        if (summarizer != null) {
+            summarizer.maybeStart(history, maxContextTokens);
+        }
         
-        logger.log("CONTEXT_PRUNED", name, "Context history pruned and summarized.", Map.of("tokens_removed", tokensPruned));
+        logger.log("CONTEXT_PRUNED", name, "Context history pruned and summarized.", Map.of("tokens_removed", tokensPruned,
+                "summary", backgroundSummary != null ? "background" : "quick"));
     }
     
-    private String perceive(SimulationState state, Map<String, Tool> availableTools) {
+    /**
+     * Builds the prompt in three blocks ordered from most to least stable so the provider can reuse
+     * its cached prefix: instructions that are fixed for the run, the execution history (which only
+     * grows at its end until it is pruned), and the per-turn notes and state.
+     */
+    private PromptLayout perceive(SimulationState state, Map<String, Tool> availableTools) {
         try {
-            String stateJson = objectMapper.writeValueAsString(state);
-            String toolList = availableTools.keySet().stream()
-                    .map(name -> "\"" + name + "\"")
-                    .collect(Collectors.joining(", "));
-
-            StringBuilder promptBuilder = new StringBuilder();
-            promptBuilder.append("You are a strategic business manager (Main Agent). Your goal is to maximize net worth.\n");
-            promptBuilder.append("You issue commands to a Sub-Agent that executes them. You have advanced memory tools available.\n");
-            promptBuilder.append("Your persona is: '").append(this.persona).append("'.\n");
-            
-            // Memory context
-            String scratchpadContent = memoryManager.getScratchpad();
-            if (scratchpadContent != null && !scratchpadContent.isEmpty()) {
-                promptBuilder.append("\n# YOUR CURRENT NOTES (Scratchpad):\n").append(scratchpadContent).append("\n");
-            }
-            
-            promptBuilder.append("\n# MEMORY TOOLS AVAILABLE:\n");
-            promptBuilder.append("- write_to_memory: Store information in scratchpad, key-value store, or vector database\n");
-            promptBuilder.append("- read_from_memory: Retrieve from scratchpad, search key-value store, or search vector database\n");
-            promptBuilder.append("- Use vector database for long-term memory that survives context pruning\n");
-            
-            promptBuilder.append("\n# EXECUTION HISTORY:\n");
-            for (Turn turn : history) {
-                promptBuilder.append("Thought: ").append(turn.thought()).append("\n");
-                promptBuilder.append("Command: ").append(turn.actionJson()).append("\n");
-                promptBuilder.append("Result: '").append(turn.result()).append("'\n---\n");
-            }
-
-            promptBuilder.append("\n# CURRENT STATE:\n").append(stateJson).append("\n");
-            promptBuilder.append("\n# AVAILABLE COMMANDS:\n[").append(toolList).append("]\n");
-
-            promptBuilder.append("\n# STRATEGIC GUIDANCE:\n");
-            promptBuilder.append("1. Use memory tools to maintain long-term business intelligence\n");
-            promptBuilder.append("2. Store important patterns, supplier relationships, and performance data in vector database\n");
-            promptBuilder.append("3. Use key-value store for structured data (supplier contacts, pricing strategies)\n");
-            promptBuilder.append("4. Update scratchpad with current situation analysis\n");
-
-            promptBuilder.append("\n# RESPONSE FORMAT:\n");
-            promptBuilder.append("```json\n");
-            promptBuilder.append("{\n");
-            promptBuilder.append("  \"thought\": \"<Your strategic reasoning including memory considerations>\",\n");
-            promptBuilder.append("  \"action\": {\n");
-            promptBuilder.append("    \"tool\": \"<command_name>\",\n");
-            promptBuilder.append("    \"parameters\": { ... }\n");
-            promptBuilder.append("  }\n");
-            promptBuilder.append("}\n");
-            promptBuilder.append("```");
-
-            return promptBuilder.toString();
+            return new PromptLayout(getSystemBlock(availableTools), history.renderBlocks(), buildTailBlock(state));
         } catch (Exception e) {
-            return "Error: Could not perceive the environment: " + e.getMessage();
+            return PromptLayout.of("Error: Could not perceive the environment: " + e.getMessage());
+        }
+    }
+
+    private String getSystemBlock(Map<String, Tool> availableTools) {
+        if (cachedSystemBlock == null || !persona.equals(cachedSystemPersona) || !availableTools.keySet().equals(cachedSystemTools)) {
+            cachedSystemBlock = buildSystemBlock(availableTools);
+            cachedSystemPersona = persona;
+            cachedSystemTools = Set.copyOf(availableTools.keySet());
+        }
+        return cachedSystemBlock;
+    }
+
+    private String buildSystemBlock(Map<String, Tool> availableTools) {
+        String toolList = availableTools.keySet().stream()
+                .sorted()
+                .map(name -> "\"" + name + "\"")
+                .collect(Collectors.joining(", "));
+
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append("You are a strategic business manager (Main Agent). Your goal is to maximize net worth.\n");
+        promptBuilder.append("You issue commands to a Sub-Agent that executes them. You have advanced memory tools available.\n");
+        promptBuilder.append("Your persona is: '").append(this.persona).append("'.\n");
+
+        promptBuilder.append("\n# MEMORY TOOLS AVAILABLE:\n");
+        promptBuilder.append("- write_to_memory: Store information in scratchpad, key-value store, or vector database\n");
+        promptBuilder.append("- read_from_memory: Retrieve from scratchpad, search key-value store, or search vector database\n");
+        promptBuilder.append("- Use vector database for long-term memory that survives context pruning\n");
+
+        promptBuilder.append("\n# AVAILABLE COMMANDS:\n[").append(toolList).append("]\n");
+
+        promptBuilder.append("\n# STRATEGIC GUIDANCE:\n");
+        promptBuilder.append("1. Use memory tools to maintain long-term business intelligence\n");
+        promptBuilder.append("2. Store important patterns, supplier relationships, and performance data in vector database\n");
+        promptBuilder.append("3. Use key-value store for structured data (supplier contacts, pricing strategies)\n");
+        promptBuilder.append("4. Update scratchpad with current situation analysis\n");
+
+        promptBuilder.append("\n# RESPONSE FORMAT:\n");
+        promptBuilder.append("```json\n");
+        promptBuilder.append("{\n");
+        promptBuilder.append("  \"thought\": \"<Your strategic reasoning including memory considerations>\",\n");
+        promptBuilder.append("  \"action\": {\n");
+        promptBuilder.append("    \"tool\": \"<command_name>\",\n");
+        promptBuilder.append("    \"parameters\": { ... }\n");
+        promptBuilder.append("  }\n");
+        promptBuilder.append("}\n");
+        promptBuilder.append("```\n");
+        if (maxActionsPerTurn > 1) {
+            promptBuilder.append("To run several commands in one turn, replace \"action\" with \"actions\": [ {\"tool\": ..., \"parameters\": { ... }}, ... ] ")
+                    .append("(at most ").append(maxActionsPerTurn).append("). They run in order and the turn stops at the first error. ")
+                    .append("wait_for_next_day ends the turn, so put it last; ask_for_human_help must be sent on its own.\n");
+        }
+        return promptBuilder.toString();
+    }
+
+    private String buildTailBlock(SimulationState state) throws Exception {
+        StringBuilder promptBuilder = new StringBuilder();
+        String scratchpadContent = memoryManager.getScratchpad();
+        if (scratchpadContent != null && !scratchpadContent.isEmpty()) {
+            promptBuilder.append("\n# YOUR CURRENT NOTES (Scratchpad):\n").append(scratchpadContent).append("\n");
+        }
+        String encodedState;
+        String stateKind = stateEncoder.getName();
+        if (deltaTracker == null || deltaTracker.shouldSendSnapshot()) {
+            encodedState = stateEncoder.encode(state);
+            promptBuilder.append("\n# CURRENT STATE:\n").append(encodedState).append("\n");
+            if (deltaTracker != null) {
+                deltaTracker.recordSnapshot(state);
+            }
+        } else {
+            encodedState = objectMapper.writeValueAsString(deltaTracker.delta(state));
+            stateKind = TokenUsageMetrics.DELTA;
+            promptBuilder.append("\n# STATE CHANGES SINCE YOUR LAST TURN (unlisted fields are unchanged):\n").append(encodedState).append("\n");
         }
+        tokenUsage.recordState(stateKind, tokenCounter.count(encodedState));
+        promptBuilder.append("\nRespond with your next command in the JSON format described above.");
+        return promptBuilder.toString();
     }
 
     public Action getActionFromHumanInstruction(String instruction, SimulationState state, Map<String, Tool> availableTools) {
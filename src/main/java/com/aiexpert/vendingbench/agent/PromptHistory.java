@@ -0,0 +1,128 @@
+package com.aiexpert.vendingbench.agent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The agent's execution history kept in its rendered prompt form. Each turn is rendered once when
+ * it is added, and the prompt's history blocks (the header with the summary, then one block per turn)
+ * are kept up to date as turns are added and evicted. The running token total is adjusted instead of
+ * re-summed, and rendering the prompt copies block references, never the turns' text.
+ */
+public class PromptHistory {
+
+    public record Turn(String thought, String actionJson, String result, int tokenCount) {}
+
+    private record Segment(Turn turn, String rendered) {}
+
+    private static final String HEADER = "\n# EXECUTION HISTORY:\n";
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final List<String> blocks = new ArrayList<>(List.of(HEADER)); // Header, then one per segment
+    private Turn summary;
+    private int totalTokens = 0;
+    private List<String> cachedBlocks;
+
+    public void add(Turn turn) {
+        Segment segment = new Segment(turn, renderTurn(turn));
+        segments.addLast(segment);
+        blocks.add(segment.rendered());
+        totalTokens += turn.tokenCount();
+        cachedBlocks = null;
+    }
+
+    /**
+     * Removes and returns the oldest turn (not counting the summary), or null when empty.
+     */
+    public Turn removeOldest() {
+        Segment segment = segments.pollFirst();
+        if (segment == null) {
+            return null;
+        }
+        blocks.remove(1);
+        totalTokens -= segment.turn().tokenCount();
+        cachedBlocks = null;
+        return segment.turn();
+    }
+
+    /**
+     * Replaces the summary of pruned turns that is shown ahead of the remaining history.
+     * @return the previous summary, or null if there was none.
+     */
+    public Turn replaceSummary(Turn newSummary) {
+        Turn previous = summary;
+        if (previous != null) {
+            totalTokens -= previous.tokenCount();
+        }
+        summary = newSummary;
+        if (newSummary != null) {
+            totalTokens += newSummary.tokenCount();
+            blocks.set(0, HEADER + renderTurn(newSummary));
+        } else {
+            blocks.set(0, HEADER);
+        }
+        cachedBlocks = null;
+        return previous;
+    }
+
+    public Turn getSummary() { return summary; }
+
+    public Turn getOldest() {
+        Segment oldest = segments.peekFirst();
+        return oldest != null ? oldest.turn() : null;
+    }
+
+    /**
+     * The oldest turns whose tokens add up to at most {@code tokenBudget}, but always at least one.
+     */
+    public List<Turn> getOldestTurns(int tokenBudget) {
+        List<Turn> turns = new ArrayList<>();
+        int tokens = 0;
+        for (Segment segment : segments) {
+            tokens += segment.turn().tokenCount();
+            if (!turns.isEmpty() && tokens > tokenBudget) {
+                break;
+            }
+            turns.add(segment.turn());
+        }
+        return turns;
+    }
+
+    public Turn getLatest() {
+        Segment latest = segments.peekLast();
+        return latest != null ? latest.turn() : summary;
+    }
+
+    public boolean isEmpty() { return segments.isEmpty(); }
+
+    public int size() { return segments.size(); }
+
+    public int getTotalTokens() { return totalTokens; }
+
+    /**
+     * The EXECUTION HISTORY block for the prompt.
+     */
+    public String render() {
+        return String.join("", renderBlocks());
+    }
+
+    /**
+     * The EXECUTION HISTORY block split into the header (with the summary, if any) and one block per
+     * turn, so providers can place a cache breakpoint on a turn boundary. The returned list is an
+     * immutable snapshot, taken at most once per change.
+     */
+    public List<String> renderBlocks() {
+        if (cachedBlocks == null) {
+            cachedBlocks = List.copyOf(blocks);
+        }
+        return cachedBlocks;
+    }
+
+    private static String renderTurn(Turn turn) {
+        return "Thought: " + turn.thought() + "\n"
+                + "Command: " + turn.actionJson() + "\n"
+                + "Result: '" + turn.result() + "'\n---\n";
+    }
+}
@@ -0,0 +1,156 @@
+package com.aiexpert.vendingbench.agent;
+
+import com.aiexpert.vendingbench.model.Inventory;
+import com.aiexpert.vendingbench.model.Item;
+import com.aiexpert.vendingbench.model.SimulationState;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides whether the agent sees the full state or only what changed since the state it last saw.
+ * A full snapshot is sent on the first turn, every {@code fullStateEveryTurns} turns and after a
+ * snapshot has been requested (e.g. because the history that explained earlier changes was pruned).
+ * The version counters on the state and inventories let unchanged sections be skipped without
+ * comparing their contents.
+ */
+public class StateDeltaTracker {
+
+    private record ItemView(int quantity, double price) {}
+
+    private final int fullStateEveryTurns;
+    private int turnsSinceSnapshot = 0;
+    private boolean snapshotRequested = true;
+
+    private double lastCashBalance;
+    private int lastTotalUnitsSold;
+    private long lastStateVersion = -1;
+    private long lastEmailsReceived;
+    private int lastSentEmails;
+    private InventoryView lastStorage = new InventoryView();
+    private InventoryView lastVendingMachine = new InventoryView();
+
+    public StateDeltaTracker(int fullStateEveryTurns) {
+        this.fullStateEveryTurns = Math.max(1, fullStateEveryTurns);
+    }
+
+    public void requestSnapshot() { this.snapshotRequested = true; }
+
+    /**
+     * @return true if this turn should carry the full state rather than a delta.
+     */
+    public boolean shouldSendSnapshot() {
+        return snapshotRequested || turnsSinceSnapshot >= fullStateEveryTurns;
+    }
+
+    /**
+     * Records the state as seen in a full snapshot.
+     */
+    public void recordSnapshot(SimulationState state) {
+        remember(state);
+        snapshotRequested = false;
+        turnsSinceSnapshot = 1;
+    }
+
+    /**
+     * Computes the changes since the last state the agent saw and makes this state the new baseline.
+     */
+    public Map<String, Object> delta(SimulationState state) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("turn", state.getTurn());
+        delta.put("day", state.getDay());
+
+        if (state.getVersion() != lastStateVersion) {
+            if (state.getCashBalance() != lastCashBalance) {
+                delta.put("cashBalance", state.getCashBalance());
+                delta.put("cashChange", state.getCashBalance() - lastCashBalance);
+            }
+            if (state.getTotalUnitsSold() != lastTotalUnitsSold) {
+                delta.put("totalUnitsSold", state.getTotalUnitsSold());
+            }
+            long newEmails = state.getEmailsReceived() - lastEmailsReceived;
+            if (newEmails > 0) {
+                List<Map<String, String>> inbox = state.getEmailInbox();
+                int from = (int) Math.max(0, inbox.size() - newEmails);
+                delta.put("newEmails", inbox.subList(from, inbox.size()));
+            }
+            int sentEmails = state.getSentEmails().size();
+            if (sentEmails != lastSentEmails) {
+                delta.put("emailsSent", sentEmails - lastSentEmails);
+            }
+        }
+        putInventoryChanges(delta, "storage", lastStorage, state.getStorage());
+        putInventoryChanges(delta, "vendingMachine", lastVendingMachine, state.getVendingMachine());
+        if (delta.size() == 2) {
+            delta.put("changes", "none");
+        }
+
+        remember(state);
+        turnsSinceSnapshot++;
+        return delta;
+    }
+
+    private void remember(SimulationState state) {
+        lastCashBalance = state.getCashBalance();
+        lastTotalUnitsSold = state.getTotalUnitsSold();
+        lastStateVersion = state.getVersion();
+        lastEmailsReceived = state.getEmailsReceived();
+        lastSentEmails = state.getSentEmails().size();
+        lastStorage = lastStorage.update(state.getStorage());
+        lastVendingMachine = lastVendingMachine.update(state.getVendingMachine());
+    }
+
+    private static void putInventoryChanges(Map<String, Object> delta, String section, InventoryView last, Inventory current) {
+        if (current.getVersion() == last.version) {
+            return;
+        }
+        Map<String, Object> changes = new LinkedHashMap<>();
+        current.getItems().forEach((name, item) -> {
+            ItemView previous = last.items.get(name);
+            if (previous == null) {
+                changes.put(name, Map.of("quantity", item.getQuantity(), "price", item.getPrice()));
+                return;
+            }
+            Map<String, Object> itemChanges = new LinkedHashMap<>();
+            if (item.getQuantity() != previous.quantity()) {
+                itemChanges.put("quantity", item.getQuantity());
+                itemChanges.put("change", item.getQuantity() - previous.quantity());
+            }
+            if (item.getPrice() != previous.price()) {
+                itemChanges.put("price", item.getPrice());
+            }
+            if (!itemChanges.isEmpty()) {
+                changes.put(name, itemChanges);
+            }
+        });
+        if (current.getCashHeld() != last.cashHeld) {
+            changes.put("cashHeld", current.getCashHeld());
+        }
+        if (!changes.isEmpty()) {
+            delta.put(section, changes);
+        }
+    }
+
+    private static final class InventoryView {
+        private long version = -1;
+        private double cashHeld;
+        private Map<String, ItemView> items = Map.of();
+
+        InventoryView update(Inventory inventory) {
+            if (inventory.getVersion() == version) {
+                return this;
+            }
+            InventoryView view = new InventoryView();
+            view.version = inventory.getVersion();
+            view.cashHeld = inventory.getCashHeld();
+            Map<String, ItemView> items = new HashMap<>();
+            for (Item item : inventory.getItems().values()) {
+                items.put(item.getName(), new ItemView(item.getQuantity(), item.getPrice()));
+            }
+            view.items = items;
+            return view;
+        }
+    }
+}
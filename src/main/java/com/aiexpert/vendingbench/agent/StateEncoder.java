@@ -0,0 +1,26 @@
+package com.aiexpert.vendingbench.agent;
+
+import com.aiexpert.vendingbench.model.SimulationState;
+
+/**
+ * Renders the simulation state for the agent's prompt. Encodings differ only in how many tokens they
+ * spend on the same information, so they can be A/B tested against each other.
+ */
+public interface StateEncoder {
+
+    String getName();
+
+    String encode(SimulationState state) throws Exception;
+
+    static StateEncoder forName(String name) {
+        if (name == null || name.isBlank()) {
+            return new JsonStateEncoder(false);
+        }
+        return switch (name.toLowerCase()) {
+            case "json" -> new JsonStateEncoder(false);
+            case "pretty" -> new JsonStateEncoder(true);
+            case "tabular" -> new TabularStateEncoder();
+            default -> throw new IllegalArgumentException("Unsupported state encoding: " + name + ". Use json, pretty or tabular.");
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package com.aiexpert.vendingbench.agent;
+
+/**
+ * Incrementally scans a streamed LLM response for the top-level {"thought": ..., "action": {...}} object
+ * (or its batched form with an "actions": [...] array).
+ * As soon as the "action" or "actions" value closes, the response is complete for our purposes and the rest of
+ * the stream (trailing prose, repeated JSON, explanations) can be cancelled.
+ * Text before the first '{', such as a ```json fence, is skipped.
+ */
+public class StreamingActionParser {
+    private final StringBuilder buffer = new StringBuilder();
+    private int scanned = 0;
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escaped = false;
+
+    private int objectStart = -1;
+    private boolean expectingKey = false;
+    private int keyStart = -1;
+    private String lastKey;
+    private int actionStart = -1;
+
+    private String completedJson;
+
+    /**
+     * Appends a streamed chunk and scans only the newly received characters.
+     * @return true once the action object (or the whole top-level object) has been received.
+     */
+    public boolean feed(String chunk) {
+        if (completedJson != null) {
+            return true;
+        }
+        buffer.append(chunk);
+        for (; scanned < buffer.length(); scanned++) {
+            char c = buffer.charAt(scanned);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                    if (keyStart >= 0) {
+                        lastKey = buffer.substring(keyStart + 1, scanned);
+                        keyStart = -1;
+                    }
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> {
+                    inString = true;
+                    if (depth == 1 && expectingKey) {
+                        keyStart = scanned;
+                        expectingKey = false;
+                    }
+                }
+                case '{' -> {
+                    if (depth == 0 && objectStart < 0) {
+                        objectStart = scanned;
+                        expectingKey = true;
+                    } else if (depth == 1 && "action".equals(lastKey)) {
+                        actionStart = scanned;
+                    }
+                    if (objectStart >= 0) depth++;
+                }
+                case '[' -> {
+                    if (depth == 1 && "actions".equals(lastKey)) {
+                        actionStart = scanned;
+                    }
+                    if (objectStart >= 0) depth++;
+                }
+                case '}', ']' -> {
+                    if (objectStart < 0) continue;
+                    depth--;
+                    if (depth == 1 && actionStart >= 0) {
+                        // Close the outer object right after the action so the prefix parses on its own.
+                        completedJson = buffer.substring(objectStart, scanned + 1) + "}";
+                    } else if (depth == 0) {
+                        completedJson = buffer.substring(objectStart, scanned + 1);
+                    }
+                    if (completedJson != null) {
+                        scanned++;
+                        return true;
+                    }
+                }
+                case ',' -> {
+                    if (depth == 1) expectingKey = true;
+                }
+                default -> { }
+            }
+        }
+        return false;
+    }
+
+    public boolean isComplete() { return completedJson != null; }
+
+    /**
+     * @return the JSON up to and including the action when complete, otherwise everything received so far.
+     */
+    public String getResponse() {
+        return completedJson != null ? completedJson : buffer.toString();
+    }
+
+    public int getReceivedLength() { return buffer.length(); }
+}
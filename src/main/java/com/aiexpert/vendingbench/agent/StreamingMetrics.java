@@ -0,0 +1,37 @@
+package com.aiexpert.vendingbench.agent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency counters for streamed turns: time to first token, and time until the action
+ * object was complete and the rest of the stream could be dropped.
+ */
+public class StreamingMetrics {
+    private long streamedTurns;
+    private long earlyStops;
+    private long totalFirstTokenMs;
+    private long totalActionMs;
+    private long lastFirstTokenMs = -1;
+    private long lastActionMs = -1;
+
+    public synchronized void record(long firstTokenMs, long actionMs, boolean stoppedEarly) {
+        streamedTurns++;
+        if (stoppedEarly) earlyStops++;
+        totalFirstTokenMs += Math.max(firstTokenMs, 0);
+        totalActionMs += actionMs;
+        lastFirstTokenMs = firstTokenMs;
+        lastActionMs = actionMs;
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("streamedTurns", streamedTurns);
+        metrics.put("earlyStops", earlyStops);
+        metrics.put("avgTimeToFirstTokenMs", streamedTurns == 0 ? 0 : totalFirstTokenMs / streamedTurns);
+        metrics.put("avgTimeToActionMs", streamedTurns == 0 ? 0 : totalActionMs / streamedTurns);
+        metrics.put("lastTimeToFirstTokenMs", lastFirstTokenMs);
+        metrics.put("lastTimeToActionMs", lastActionMs);
+        return metrics;
+    }
+}
@@ -3,11 +3,9 @@ package com.aiexpert.vendingbench.agent;
 import com.aiexpert.vendingbench.model.SimulationState;
 import com.aiexpert.vendingbench.tool.Tool;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
-@Component
 public class SubAgent extends Agent {
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -0,0 +1,94 @@
+package com.aiexpert.vendingbench.agent;
+
+import com.aiexpert.vendingbench.model.Inventory;
+import com.aiexpert.vendingbench.model.Item;
+import com.aiexpert.vendingbench.model.SimulationState;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A compact, pipe-separated encoding: scalars on one line, then each inventory, the pending deliveries
+ * and each email list as a header row followed by one row per entry, so field names are written once
+ * instead of per item. Rows are sorted by item name (deliveries by arrival day first) to keep the text
+ * stable between turns.
+ */
+public class TabularStateEncoder implements StateEncoder {
+
+    @Override
+    public String getName() { return "tabular"; }
+
+    @Override
+    public String encode(SimulationState state) {
+        StringBuilder builder = new StringBuilder(512);
+        builder.append("turn=").append(state.getTurn())
+                .append(" day=").append(state.getDay())
+                .append(" cashBalance=").append(money(state.getCashBalance()))
+                .append(" dailyFee=").append(money(state.getDailyFee()))
+                .append(" totalUnitsSold=").append(state.getTotalUnitsSold()).append('\n');
+        appendInventory(builder, "storage", state.getStorage());
+        appendInventory(builder, "vendingMachine", state.getVendingMachine());
+        appendDeliveries(builder, state.getPendingDeliveries());
+        appendEmails(builder, "emailInbox", state.getEmailInbox());
+        appendEmails(builder, "sentEmails", state.getSentEmails());
+        return builder.toString();
+    }
+
+    private static void appendInventory(StringBuilder builder, String section, Inventory inventory) {
+        builder.append(section).append(" cashHeld=").append(money(inventory.getCashHeld())).append('\n');
+        builder.append("name|quantity|price|wholesaleCost\n");
+        inventory.getItems().values().stream()
+                .sorted(Comparator.comparing(Item::getName))
+                .forEach(item -> builder.append(escape(item.getName())).append('|')
+                        .append(item.getQuantity()).append('|')
+                        .append(money(item.getPrice())).append('|')
+                        .append(money(item.getWholesaleCost())).append('\n'));
+    }
+
+    private static void appendDeliveries(StringBuilder builder, Map<Integer, Map<String, Integer>> deliveries) {
+        builder.append("pendingDeliveries count=").append(deliveries.size()).append('\n');
+        if (deliveries.isEmpty()) {
+            return;
+        }
+        builder.append("arrivalDay|name|quantity\n");
+        new TreeMap<>(deliveries).forEach((day, items) -> new TreeMap<>(items).forEach((name, quantity) ->
+                builder.append(day).append('|').append(escape(name)).append('|').append(quantity).append('\n')));
+    }
+
+    private static void appendEmails(StringBuilder builder, String section, List<Map<String, String>> emails) {
+        builder.append(section).append(" count=").append(emails.size()).append('\n');
+        if (emails.isEmpty()) {
+            return;
+        }
+        Set<String> columns = new TreeSet<>();
+        emails.forEach(email -> columns.addAll(email.keySet()));
+        builder.append(String.join("|", columns)).append('\n');
+        for (Map<String, String> email : emails) {
+            boolean first = true;
+            for (String column : columns) {
+                if (!first) {
+                    builder.append('|');
+                }
+                builder.append(escape(email.getOrDefault(column, "")));
+                first = false;
+            }
+            builder.append('\n');
+        }
+    }
+
+    private static String money(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("|", "\\|").replace("\n", "\\n").replace("\r", "");
+    }
+}
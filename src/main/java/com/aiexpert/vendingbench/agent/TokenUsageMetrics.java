@@ -0,0 +1,88 @@
+package com.aiexpert.vendingbench.agent;
+
+import com.aiexpert.vendingbench.llm.LLMResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Running totals of the token usage reported for the agent's turns, including how much of
+ * each prompt the provider served from its prompt cache and how many tokens the state section took.
+ * State tokens are kept per kind: full snapshots under the encoding's name, and delta turns under
+ * {@link #DELTA}, so the average for an encoding is not diluted by the much smaller deltas.
+ */
+public class TokenUsageMetrics {
+    public static final String DELTA = "delta";
+
+    private long turns;
+    private long reportedTurns;
+    private long inputTokens;
+    private long cachedInputTokens;
+    private long outputTokens;
+    private int lastInputTokens = -1;
+    private int lastCachedInputTokens = -1;
+    private String stateEncoding;
+    private final Map<String, long[]> stateTokensByKind = new LinkedHashMap<>(); // Turns and tokens
+    private long stateTokens;
+    private int lastStateTokens = -1;
+
+    public synchronized void record(LLMResponse response) {
+        turns++;
+        lastInputTokens = response.inputTokens();
+        lastCachedInputTokens = response.cachedInputTokens();
+        if (response.inputTokens() < 0) {
+            return;
+        }
+        reportedTurns++;
+        inputTokens += response.inputTokens();
+        cachedInputTokens += Math.max(response.cachedInputTokens(), 0);
+        outputTokens += Math.max(response.outputTokens(), 0);
+    }
+
+    /**
+     * @param kind the encoding of a full snapshot, or {@link #DELTA} for a turn that only carried changes.
+     */
+    public synchronized void recordState(String kind, int tokens) {
+        if (!DELTA.equals(kind)) {
+            stateEncoding = kind;
+        }
+        long[] totals = stateTokensByKind.computeIfAbsent(kind, k -> new long[2]);
+        totals[0]++;
+        totals[1] += tokens;
+        stateTokens += tokens;
+        lastStateTokens = tokens;
+    }
+
+    /**
+     * Average tokens of the full-state snapshots, in the run's state encoding.
+     */
+    public synchronized double getAverageStateTokens() {
+        return stateEncoding == null ? 0.0 : getAverageStateTokens(stateEncoding);
+    }
+
+    public synchronized double getAverageStateTokens(String kind) {
+        long[] totals = stateTokensByKind.get(kind);
+        return totals == null || totals[0] == 0 ? 0.0 : (double) totals[1] / totals[0];
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("turns", turns);
+        metrics.put("reportedTurns", reportedTurns);
+        metrics.put("inputTokens", inputTokens);
+        metrics.put("cachedInputTokens", cachedInputTokens);
+        metrics.put("outputTokens", outputTokens);
+        metrics.put("cachedInputRatio", inputTokens == 0 ? 0.0 : (double) cachedInputTokens / inputTokens);
+        metrics.put("lastInputTokens", lastInputTokens);
+        metrics.put("lastCachedInputTokens", lastCachedInputTokens);
+        metrics.put("stateEncoding", stateEncoding);
+        metrics.put("stateTokens", stateTokens);
+        metrics.put("averageStateTokens", getAverageStateTokens());
+        if (stateTokensByKind.containsKey(DELTA)) {
+            metrics.put("deltaTurns", stateTokensByKind.get(DELTA)[0]);
+            metrics.put("averageDeltaTokens", getAverageStateTokens(DELTA));
+        }
+        metrics.put("lastStateTokens", lastStateTokens);
+        return metrics;
+    }
+}
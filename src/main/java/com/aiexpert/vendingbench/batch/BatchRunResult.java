@@ -0,0 +1,54 @@
+package com.aiexpert.vendingbench.batch;
+
+import java.util.Locale;
+
+/**
+ * One row of batch output: the configuration of a run and how it ended.
+ */
+public record BatchRunResult(
+        int runIndex,
+        String provider,
+        String modelName,
+        String persona,
+        String stateEncoding,
+        long seed,
+        int maxTurns,
+        int maxActionsPerTurn,
+        String status,
+        int turnsPlayed,
+        int daysPlayed,
+        double netWorth,
+        double cashBalance,
+        int totalUnitsSold,
+        double averageStateTokens,
+        long durationMs) {
+
+    static final String CSV_HEADER = "run,provider,model,persona,state_encoding,seed,max_turns,max_actions_per_turn,status,turns,days,net_worth,cash_balance,units_sold,avg_state_tokens,duration_ms";
+
+    String toCsvRow() {
+        return String.join(",",
+                String.valueOf(runIndex),
+                csv(provider),
+                csv(modelName),
+                csv(persona),
+                csv(stateEncoding),
+                String.valueOf(seed),
+                String.valueOf(maxTurns),
+                String.valueOf(maxActionsPerTurn),
+                csv(status),
+                String.valueOf(turnsPlayed),
+                String.valueOf(daysPlayed),
+                String.format(Locale.ROOT, "%.2f", netWorth),
+                String.format(Locale.ROOT, "%.2f", cashBalance),
+                String.valueOf(totalUnitsSold),
+                String.format(Locale.ROOT, "%.1f", averageStateTokens),
+                String.valueOf(durationMs));
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
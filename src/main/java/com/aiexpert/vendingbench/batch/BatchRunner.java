@@ -0,0 +1,149 @@
+package com.aiexpert.vendingbench.batch;
+
+import com.aiexpert.vendingbench.agent.MainAgent;
+import com.aiexpert.vendingbench.controller.dto.SimulationStartRequest;
+import com.aiexpert.vendingbench.model.SimulationState;
+import com.aiexpert.vendingbench.service.SimulationEngine;
+import com.aiexpert.vendingbench.service.SimulationSessionRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs every cell of an {@link ExperimentMatrix} headlessly, a bounded number at a time.
+ * Each run gets its own session from the registry and calls the engine loop directly,
+ * so there is no REST polling and no UI turn delay.
+ */
+@Service
+public class BatchRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchRunner.class);
+
+    private final SimulationSessionRegistry sessionRegistry;
+
+    public BatchRunner(SimulationSessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    public List<BatchRunResult> run(ExperimentMatrix matrix, Path output) throws IOException, InterruptedException {
+        List<SimulationStartRequest> cells = expand(matrix);
+        if (cells.isEmpty()) {
+            throw new IllegalArgumentException("Experiment matrix has no runs. Specify at least one model.");
+        }
+        int concurrency = Math.max(1, Math.min(matrix.getConcurrency(), cells.size()));
+        log.info("Starting batch of {} runs with concurrency {}.", cells.size(), concurrency);
+
+        List<BatchRunResult> results = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write(BatchRunResult.CSV_HEADER);
+            writer.newLine();
+            writer.flush();
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < cells.size(); i++) {
+                int runIndex = i + 1;
+                SimulationStartRequest cell = cells.get(i);
+                futures.add(pool.submit(() -> {
+                    BatchRunResult result = runCell(runIndex, cell);
+                    results.add(result);
+                    writeRow(writer, result);
+                    log.info("Run {}/{} finished: {} {} -> {} (net worth {})", runIndex, cells.size(),
+                            result.provider(), result.modelName(), result.status(), result.netWorth());
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.error("Batch run failed unexpectedly.", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    private BatchRunResult runCell(int runIndex, SimulationStartRequest request) {
+        String sessionId = "batch-" + runIndex;
+        SimulationEngine engine = sessionRegistry.getOrCreate(sessionId);
+        long startedAt = System.currentTimeMillis();
+        try {
+            engine.runToCompletion(request);
+        } catch (RuntimeException e) {
+            log.error("Run {} could not be started: {}", runIndex, e.getMessage());
+        }
+        long durationMs = System.currentTimeMillis() - startedAt;
+
+        try {
+            SimulationState state = engine.getCurrentState();
+            MainAgent mainAgent = engine.getMainAgent();
+            double averageStateTokens = mainAgent != null ? mainAgent.getTokenUsage().getAverageStateTokens() : 0.0;
+            int maxActionsPerTurn = mainAgent != null ? mainAgent.getMaxActionsPerTurn() : 1;
+            return new BatchRunResult(runIndex, request.getProvider(), request.getModelName(), request.getPersona(), request.getStateEncoding(),
+                    state.getSeed(), engine.getMaxTurns(), maxActionsPerTurn, engine.getStatus(), state.getTurn() - 1, state.getDay(),
+                    engine.calculateNetWorth(), state.getCashBalance(), state.getTotalUnitsSold(), averageStateTokens, durationMs);
+        } finally {
+            sessionRegistry.remove(sessionId);
+        }
+    }
+
+    private static void writeRow(BufferedWriter writer, BatchRunResult result) {
+        // Rows are flushed as runs finish so a long sweep leaves partial results if it is interrupted.
+        synchronized (writer) {
+            try {
+                writer.write(result.toCsvRow());
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                log.error("Failed to write result row for run {}: {}", result.runIndex(), e.getMessage());
+            }
+        }
+    }
+
+    private static List<SimulationStartRequest> expand(ExperimentMatrix matrix) {
+        List<String> personas = matrix.getPersonas().isEmpty() ? Collections.singletonList(null) : matrix.getPersonas();
+        // Without explicit seeds each run draws its own, which is still reported in the results.
+        List<Long> seeds = matrix.getSeeds().isEmpty() ? Collections.singletonList(null) : matrix.getSeeds();
+        List<String> stateEncodings = matrix.getStateEncodings().isEmpty() ? Collections.singletonList(null) : matrix.getStateEncodings();
+
+        List<SimulationStartRequest> cells = new ArrayList<>();
+        for (ExperimentMatrix.ModelSpec model : matrix.getModels()) {
+            for (String persona : personas) {
+                for (String stateEncoding : stateEncodings) {
+                    for (Long seed : seeds) {
+                        SimulationStartRequest request = new SimulationStartRequest();
+                        request.setProvider(model.getProvider());
+                        request.setModelName(model.getModelName());
+                        request.setApiKey(model.resolveApiKey());
+                        request.setPersona(persona);
+                        request.setMaxTurns(matrix.getMaxTurns());
+                        request.setVerboseLogging(matrix.isVerboseLogging());
+                        request.setStreaming(matrix.isStreaming());
+                        request.setDeltaPerception(matrix.isDeltaPerception());
+                        request.setStateEncoding(stateEncoding);
+                        request.setSeed(seed);
+                        // Nobody is there to answer, so the agent must not be able to pause the run.
+                        request.setDisableHumanHelp(true);
+                        cells.add(request);
+                    }
+                }
+            }
+        }
+        return cells;
+    }
+}
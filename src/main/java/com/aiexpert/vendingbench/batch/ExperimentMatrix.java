@@ -0,0 +1,63 @@
+package com.aiexpert.vendingbench.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes a batch experiment: every combination of model, persona, state encoding and seed becomes one run.
+ * Loaded from a JSON file by {@link com.aiexpert.vendingbench.VendingBenchBatchApplication}.
+ */
+public class ExperimentMatrix {
+    private List<ModelSpec> models = new ArrayList<>();
+    private List<String> personas = new ArrayList<>();
+    private List<Long> seeds = new ArrayList<>();
+    private List<String> stateEncodings = new ArrayList<>();
+    private int maxTurns;
+    private int concurrency = 4;
+    private boolean verboseLogging = false;
+    private boolean streaming = false;
+    private boolean deltaPerception = false;
+
+    public static class ModelSpec {
+        private String provider;
+        private String modelName;
+        private String apiKey;
+        private String apiKeyEnvVar; // Preferred over apiKey so keys stay out of matrix files
+
+        public String getProvider() { return provider; }
+        public void setProvider(String provider) { this.provider = provider; }
+        public String getModelName() { return modelName; }
+        public void setModelName(String modelName) { this.modelName = modelName; }
+        public String getApiKey() { return apiKey; }
+        public void setApiKey(String apiKey) { this.apiKey = apiKey; }
+        public String getApiKeyEnvVar() { return apiKeyEnvVar; }
+        public void setApiKeyEnvVar(String apiKeyEnvVar) { this.apiKeyEnvVar = apiKeyEnvVar; }
+
+        public String resolveApiKey() {
+            if (apiKeyEnvVar != null && !apiKeyEnvVar.isBlank()) {
+                return System.getenv(apiKeyEnvVar);
+            }
+            return apiKey;
+        }
+    }
+
+    // Getters and Setters
+    public List<ModelSpec> getModels() { return models; }
+    public void setModels(List<ModelSpec> models) { this.models = models; }
+    public List<String> getPersonas() { return personas; }
+    public void setPersonas(List<String> personas) { this.personas = personas; }
+    public List<Long> getSeeds() { return seeds; }
+    public void setSeeds(List<Long> seeds) { this.seeds = seeds; }
+    public List<String> getStateEncodings() { return stateEncodings; }
+    public void setStateEncodings(List<String> stateEncodings) { this.stateEncodings = stateEncodings; }
+    public int getMaxTurns() { return maxTurns; }
+    public void setMaxTurns(int maxTurns) { this.maxTurns = maxTurns; }
+    public int getConcurrency() { return concurrency; }
+    public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+    public boolean isVerboseLogging() { return verboseLogging; }
+    public void setVerboseLogging(boolean verboseLogging) { this.verboseLogging = verboseLogging; }
+    public boolean isStreaming() { return streaming; }
+    public void setStreaming(boolean streaming) { this.streaming = streaming; }
+    public boolean isDeltaPerception() { return deltaPerception; }
+    public void setDeltaPerception(boolean deltaPerception) { this.deltaPerception = deltaPerception; }
+}
@@ -3,6 +3,11 @@ package com.aiexpert.vendingbench.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "vending")
 public class SimulationDefaults {
 
@@ -12,15 +17,81 @@ public class SimulationDefaults {
     private final Simulation simulation = new Simulation();
     @NestedConfigurationProperty
     private final Safety safety = new Safety();
+    @NestedConfigurationProperty
+    private final Http http = new Http();
+    @NestedConfigurationProperty
+    private final LlmCache llmCache = new LlmCache();
+    @NestedConfigurationProperty
+    private final DemandProfiles demandProfiles = new DemandProfiles();
+    @NestedConfigurationProperty
+    private final Resilience resilience = new Resilience();
+    @NestedConfigurationProperty
+    private final Tokenizer tokenizer = new Tokenizer();
+    @NestedConfigurationProperty
+    private final Memory memory = new Memory();
+    @NestedConfigurationProperty
+    private final Embeddings embeddings = new Embeddings();
+    @NestedConfigurationProperty
+    private final Sessions sessions = new Sessions();
 
     public Agent getAgent() { return agent; }
     public Simulation getSimulation() { return simulation; }
     public Safety getSafety() { return safety; }
+    public Http getHttp() { return http; }
+    public LlmCache getLlmCache() { return llmCache; }
+    public DemandProfiles getDemandProfiles() { return demandProfiles; }
+    public Resilience getResilience() { return resilience; }
+    public Tokenizer getTokenizer() { return tokenizer; }
+    public Memory getMemory() { return memory; }
+    public Embeddings getEmbeddings() { return embeddings; }
+    public Sessions getSessions() { return sessions; }
 
     public static class Agent {
         private int maxContextTokens;
+        private int fullStateEveryTurns = 10; // Used when delta perception is on
+        private String stateEncoding = "json"; // json, pretty or tabular
+        private int maxActionsPerTurn = 1; // Above 1 lets the agent batch commands into one LLM call
+        @NestedConfigurationProperty
+        private final Summarizer summarizer = new Summarizer();
         public int getMaxContextTokens() { return maxContextTokens; }
         public void setMaxContextTokens(int maxContextTokens) { this.maxContextTokens = maxContextTokens; }
+        public int getFullStateEveryTurns() { return fullStateEveryTurns; }
+        public void setFullStateEveryTurns(int fullStateEveryTurns) { this.fullStateEveryTurns = fullStateEveryTurns; }
+        public String getStateEncoding() { return stateEncoding; }
+        public void setStateEncoding(String stateEncoding) { this.stateEncoding = stateEncoding; }
+        public int getMaxActionsPerTurn() { return maxActionsPerTurn; }
+        public void setMaxActionsPerTurn(int maxActionsPerTurn) { this.maxActionsPerTurn = maxActionsPerTurn; }
+        public Summarizer getSummarizer() { return summarizer; }
+
+        // Compresses the oldest history turns in the background before they have to be pruned
+        public static class Summarizer {
+            private Boolean enabled; // Unset: on only when a provider is configured
+            private String provider = ""; // Empty uses the agent's own model when enabled explicitly
+            private String modelName = "";
+            private String apiKeyEnvVar = "";
+            private double startAtRatio = 0.8; // Of the context budget
+            private double chunkRatio = 0.3; // Of the context budget, summarized per request
+            private int maxSummaryWords = 250;
+            private long timeoutSeconds = 60;
+
+            public Boolean getEnabled() { return enabled; }
+            public void setEnabled(Boolean enabled) { this.enabled = enabled; }
+            public boolean isActive() { return enabled != null ? enabled : provider != null && !provider.isBlank(); }
+            public String getProvider() { return provider; }
+            public void setProvider(String provider) { this.provider = provider; }
+            public String getModelName() { return modelName; }
+            public void setModelName(String modelName) { this.modelName = modelName; }
+            public String getApiKeyEnvVar() { return apiKeyEnvVar; }
+            public void setApiKeyEnvVar(String apiKeyEnvVar) { this.apiKeyEnvVar = apiKeyEnvVar; }
+            public double getStartAtRatio() { return startAtRatio; }
+            public void setStartAtRatio(double startAtRatio) { this.startAtRatio = startAtRatio; }
+            public double getChunkRatio() { return chunkRatio; }
+            public void setChunkRatio(double chunkRatio) { this.chunkRatio = chunkRatio; }
+            public int getMaxSummaryWords() { return maxSummaryWords; }
+            public void setMaxSummaryWords(int maxSummaryWords) { this.maxSummaryWords = maxSummaryWords; }
+            public long getTimeoutSeconds() { return timeoutSeconds; }
+            public void setTimeoutSeconds(long timeoutSeconds) { this.timeoutSeconds = timeoutSeconds; }
+        }
     }
 
     public static class Simulation {
@@ -56,4 +127,208 @@ public class SimulationDefaults {
         public int getMeltdownWindow() { return meltdownWindow; }
         public void setMeltdownWindow(int meltdownWindow) { this.meltdownWindow = meltdownWindow; }
     }
+
+    // Token counting for context budgets and metrics
+    public static class Tokenizer {
+        private boolean approximate = false; // Estimate from text length instead of tokenizing, e.g. for load tests
+        private double charsPerToken = 4.0; // Used by the estimate
+        private int cacheEntries = 4096; // Memoized counts per encoding
+        // Providers without a public tokenizer are counted with cl100k_base scaled by these factors
+        private Map<String, Double> calibration = new HashMap<>(Map.of("anthropic", 1.15, "gemini", 1.05, "ollama", 1.10));
+
+        public boolean isApproximate() { return approximate; }
+        public void setApproximate(boolean approximate) { this.approximate = approximate; }
+        public double getCharsPerToken() { return charsPerToken; }
+        public void setCharsPerToken(double charsPerToken) { this.charsPerToken = charsPerToken; }
+        public int getCacheEntries() { return cacheEntries; }
+        public void setCacheEntries(int cacheEntries) { this.cacheEntries = cacheEntries; }
+        public Map<String, Double> getCalibration() { return calibration; }
+        public void setCalibration(Map<String, Double> calibration) { this.calibration = calibration; }
+    }
+
+    // Long-term vector memory of each session
+    public static class Memory {
+        private int maxVectorEntries = 100000; // Oldest entries are evicted beyond this
+        private String vectorIndex = "hnsw"; // hnsw or exact
+        private int hnswM = 16; // Links per node and layer (twice that on the bottom layer)
+        private int hnswEfConstruction = 200;
+        private int hnswEfSearch = 64; // Higher trades latency for recall
+        private int exactSearchBelow = 2000; // The HNSW index scans exactly up to this many entries
+        private String directory = ""; // Empty keeps vector memory on the heap; otherwise one memory-mapped store per session
+        private String quantization = "none"; // none, int8 or binary
+        private int rescoreFactor = 4; // Quantized candidates rescored per result wanted
+        private int ingestQueueCapacity = 1000; // Writes waiting to be embedded; 0 embeds on the writer's thread
+        private long ingestIdleMs = 30000; // The ingest thread exits after this long without writes
+
+        public int getMaxVectorEntries() { return maxVectorEntries; }
+        public void setMaxVectorEntries(int maxVectorEntries) { this.maxVectorEntries = maxVectorEntries; }
+        public String getVectorIndex() { return vectorIndex; }
+        public void setVectorIndex(String vectorIndex) { this.vectorIndex = vectorIndex; }
+        public int getHnswM() { return hnswM; }
+        public void setHnswM(int hnswM) { this.hnswM = hnswM; }
+        public int getHnswEfConstruction() { return hnswEfConstruction; }
+        public void setHnswEfConstruction(int hnswEfConstruction) { this.hnswEfConstruction = hnswEfConstruction; }
+        public int getHnswEfSearch() { return hnswEfSearch; }
+        public void setHnswEfSearch(int hnswEfSearch) { this.hnswEfSearch = hnswEfSearch; }
+        public int getExactSearchBelow() { return exactSearchBelow; }
+        public void setExactSearchBelow(int exactSearchBelow) { this.exactSearchBelow = exactSearchBelow; }
+        public String getDirectory() { return directory; }
+        public void setDirectory(String directory) { this.directory = directory; }
+        public String getQuantization() { return quantization; }
+        public void setQuantization(String quantization) { this.quantization = quantization; }
+        public int getRescoreFactor() { return rescoreFactor; }
+        public void setRescoreFactor(int rescoreFactor) { this.rescoreFactor = rescoreFactor; }
+        public int getIngestQueueCapacity() { return ingestQueueCapacity; }
+        public void setIngestQueueCapacity(int ingestQueueCapacity) { this.ingestQueueCapacity = ingestQueueCapacity; }
+        public long getIngestIdleMs() { return ingestIdleMs; }
+        public void setIngestIdleMs(long ingestIdleMs) { this.ingestIdleMs = ingestIdleMs; }
+    }
+
+    // Embedding requests for vector memory, shared by all sessions
+    public static class Embeddings {
+        private int cacheEntries = 10000; // 0 disables the cache
+        private long batchWindowMs = 5; // How long a request waits for others to share its API call
+        private int maxBatchSize = 64; // Inputs per API call
+        private int maxConcurrentBatches = 4;
+        private long timeoutSeconds = 30;
+        private int localDimensions = 1536; // Of the offline embedder used without an API key
+        private String apiKeyEnvVar = "OPENAI_API_KEY"; // Used when the start request brings no OpenAI key
+
+        public int getCacheEntries() { return cacheEntries; }
+        public void setCacheEntries(int cacheEntries) { this.cacheEntries = cacheEntries; }
+        public long getBatchWindowMs() { return batchWindowMs; }
+        public void setBatchWindowMs(long batchWindowMs) { this.batchWindowMs = batchWindowMs; }
+        public int getMaxBatchSize() { return maxBatchSize; }
+        public void setMaxBatchSize(int maxBatchSize) { this.maxBatchSize = maxBatchSize; }
+        public int getMaxConcurrentBatches() { return maxConcurrentBatches; }
+        public void setMaxConcurrentBatches(int maxConcurrentBatches) { this.maxConcurrentBatches = maxConcurrentBatches; }
+        public long getTimeoutSeconds() { return timeoutSeconds; }
+        public void setTimeoutSeconds(long timeoutSeconds) { this.timeoutSeconds = timeoutSeconds; }
+        public int getLocalDimensions() { return localDimensions; }
+        public void setLocalDimensions(int localDimensions) { this.localDimensions = localDimensions; }
+        public String getApiKeyEnvVar() { return apiKeyEnvVar; }
+        public void setApiKeyEnvVar(String apiKeyEnvVar) { this.apiKeyEnvVar = apiKeyEnvVar; }
+    }
+
+    // Lifetime of the simulation sessions held by the registry
+    public static class Sessions {
+        private long idleTimeoutMinutes = 60; // Sessions not running turns and untouched this long are closed; 0 keeps them
+        private long reapIntervalSeconds = 60;
+
+        public long getIdleTimeoutMinutes() { return idleTimeoutMinutes; }
+        public void setIdleTimeoutMinutes(long idleTimeoutMinutes) { this.idleTimeoutMinutes = idleTimeoutMinutes; }
+        public long getReapIntervalSeconds() { return reapIntervalSeconds; }
+        public void setReapIntervalSeconds(long reapIntervalSeconds) { this.reapIntervalSeconds = reapIntervalSeconds; }
+    }
+
+    // Shared HTTP connection pool used by every LLM and embedding provider
+    public static class Http {
+        private int maxConnections = 100;
+        private int pendingAcquireMaxCount = 1000;
+        private long pendingAcquireTimeoutMs = 60000;
+        private long maxIdleTimeMs = 30000;
+        private long connectTimeoutMs = 10000;
+        private long responseTimeoutMs = 120000;
+        private long localResponseTimeoutMs = 180000; // Local models may need to load before answering
+        private boolean http2Enabled = true;
+        private String ollamaBaseUrl = "http://localhost:11434/api";
+
+        public int getMaxConnections() { return maxConnections; }
+        public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+        public int getPendingAcquireMaxCount() { return pendingAcquireMaxCount; }
+        public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) { this.pendingAcquireMaxCount = pendingAcquireMaxCount; }
+        public long getPendingAcquireTimeoutMs() { return pendingAcquireTimeoutMs; }
+        public void setPendingAcquireTimeoutMs(long pendingAcquireTimeoutMs) { this.pendingAcquireTimeoutMs = pendingAcquireTimeoutMs; }
+        public long getMaxIdleTimeMs() { return maxIdleTimeMs; }
+        public void setMaxIdleTimeMs(long maxIdleTimeMs) { this.maxIdleTimeMs = maxIdleTimeMs; }
+        public long getConnectTimeoutMs() { return connectTimeoutMs; }
+        public void setConnectTimeoutMs(long connectTimeoutMs) { this.connectTimeoutMs = connectTimeoutMs; }
+        public long getResponseTimeoutMs() { return responseTimeoutMs; }
+        public void setResponseTimeoutMs(long responseTimeoutMs) { this.responseTimeoutMs = responseTimeoutMs; }
+        public long getLocalResponseTimeoutMs() { return localResponseTimeoutMs; }
+        public void setLocalResponseTimeoutMs(long localResponseTimeoutMs) { this.localResponseTimeoutMs = localResponseTimeoutMs; }
+        public boolean isHttp2Enabled() { return http2Enabled; }
+        public void setHttp2Enabled(boolean http2Enabled) { this.http2Enabled = http2Enabled; }
+        public String getOllamaBaseUrl() { return ollamaBaseUrl; }
+        public void setOllamaBaseUrl(String ollamaBaseUrl) { this.ollamaBaseUrl = ollamaBaseUrl; }
+    }
+
+    // Response cache for environment-side prompts (demand profiles, email bodies and replies)
+    public static class LlmCache {
+        private boolean enabled = true;
+        private int maxEntries = 1000;
+        private long ttlSeconds = 7 * 24 * 3600; // 0 or less never expires
+        private String diskDirectory = ""; // Empty keeps the cache in memory only
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public int getMaxEntries() { return maxEntries; }
+        public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+        public long getTtlSeconds() { return ttlSeconds; }
+        public void setTtlSeconds(long ttlSeconds) { this.ttlSeconds = ttlSeconds; }
+        public String getDiskDirectory() { return diskDirectory; }
+        public void setDiskDirectory(String diskDirectory) { this.diskDirectory = diskDirectory; }
+    }
+
+    // How item demand profiles are requested at simulation start
+    public static class DemandProfiles {
+        private int concurrency = 8; // Requests in flight at once
+        private int batchSize = 20; // Items per request; 1 asks for each item separately
+        private long deadlineSeconds = 60;
+
+        public int getConcurrency() { return concurrency; }
+        public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+        public int getBatchSize() { return batchSize; }
+        public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+        public long getDeadlineSeconds() { return deadlineSeconds; }
+        public void setDeadlineSeconds(long deadlineSeconds) { this.deadlineSeconds = deadlineSeconds; }
+    }
+
+    // Rate limiting, retries and failover around every LLM provider; limits and circuit breakers are shared by all sessions
+    public static class Resilience {
+        private boolean enabled = true;
+        private double requestsPerMinute = 0; // Per provider and API key; 0 leaves calls unthrottled
+        private int burst = 10;
+        private int maxRetries = 3;
+        private long initialBackoffMs = 500;
+        private long maxBackoffMs = 10000;
+        private long hedgeDelayMs = 0; // Sends a duplicate request if no answer arrives in time; 0 disables hedging
+        private int circuitFailureThreshold = 5;
+        private long circuitOpenMs = 30000;
+        private List<FallbackModel> fallbackChain = new ArrayList<>();
+
+        public static class FallbackModel {
+            private String provider;
+            private String modelName;
+            private String apiKeyEnvVar;
+
+            public String getProvider() { return provider; }
+            public void setProvider(String provider) { this.provider = provider; }
+            public String getModelName() { return modelName; }
+            public void setModelName(String modelName) { this.modelName = modelName; }
+            public String getApiKeyEnvVar() { return apiKeyEnvVar; }
+            public void setApiKeyEnvVar(String apiKeyEnvVar) { this.apiKeyEnvVar = apiKeyEnvVar; }
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public double getRequestsPerMinute() { return requestsPerMinute; }
+        public void setRequestsPerMinute(double requestsPerMinute) { this.requestsPerMinute = requestsPerMinute; }
+        public int getBurst() { return burst; }
+        public void setBurst(int burst) { this.burst = burst; }
+        public int getMaxRetries() { return maxRetries; }
+        public void setMaxRetries(int maxRetries) { this.maxRetries = maxRetries; }
+        public long getInitialBackoffMs() { return initialBackoffMs; }
+        public void setInitialBackoffMs(long initialBackoffMs) { this.initialBackoffMs = initialBackoffMs; }
+        public long getMaxBackoffMs() { return maxBackoffMs; }
+        public void setMaxBackoffMs(long maxBackoffMs) { this.maxBackoffMs = maxBackoffMs; }
+        public long getHedgeDelayMs() { return hedgeDelayMs; }
+        public void setHedgeDelayMs(long hedgeDelayMs) { this.hedgeDelayMs = hedgeDelayMs; }
+        public int getCircuitFailureThreshold() { return circuitFailureThreshold; }
+        public void setCircuitFailureThreshold(int circuitFailureThreshold) { this.circuitFailureThreshold = circuitFailureThreshold; }
+        public long getCircuitOpenMs() { return circuitOpenMs; }
+        public void setCircuitOpenMs(long circuitOpenMs) { this.circuitOpenMs = circuitOpenMs; }
+        public List<FallbackModel> getFallbackChain() { return fallbackChain; }
+        public void setFallbackChain(List<FallbackModel> fallbackChain) { this.fallbackChain = fallbackChain; }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.aiexpert.vendingbench.controller;
+
+import com.aiexpert.vendingbench.llm.LLMHttpClients;
+import com.aiexpert.vendingbench.llm.LLMResponseCache;
+import com.aiexpert.vendingbench.llm.resilience.ProviderResilienceRegistry;
+import com.aiexpert.vendingbench.service.EmbeddingService;
+import com.aiexpert.vendingbench.service.SimulationSessionRegistry;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final LLMHttpClients httpClients;
+    private final LLMResponseCache responseCache;
+    private final ProviderResilienceRegistry resilienceRegistry;
+    private final SimulationSessionRegistry sessionRegistry;
+    private final EmbeddingService embeddingService;
+
+    public MetricsController(LLMHttpClients httpClients, LLMResponseCache responseCache, ProviderResilienceRegistry resilienceRegistry,
+                             SimulationSessionRegistry sessionRegistry, EmbeddingService embeddingService) {
+        this.httpClients = httpClients;
+        this.responseCache = responseCache;
+        this.resilienceRegistry = resilienceRegistry;
+        this.sessionRegistry = sessionRegistry;
+        this.embeddingService = embeddingService;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("llmHttp", httpClients.getMetrics());
+        metrics.put("llmCache", responseCache.getStats());
+        metrics.put("llmProviders", resilienceRegistry.getStats());
+        metrics.put("embeddings", embeddingService.getStats());
+        metrics.put("sessions", sessionRegistry.getSessionMetrics());
+        return ResponseEntity.ok(metrics);
+    }
+}
@@ -5,51 +5,51 @@ import com.aiexpert.vendingbench.controller.dto.HumanInputRequest;
 import com.aiexpert.vendingbench.controller.dto.SimulationStartRequest;
 import com.aiexpert.vendingbench.controller.dto.SimulationStateResponse;
 import com.aiexpert.vendingbench.service.SimulationEngine;
+import com.aiexpert.vendingbench.service.SimulationSessionRegistry;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/simulation")
 public class SimulationController {
 
-    private final SimulationEngine simulationEngine;
+    private final SimulationSessionRegistry sessionRegistry;
 
-    public SimulationController(SimulationEngine simulationEngine) {
-        this.simulationEngine = simulationEngine;
+    public SimulationController(SimulationSessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
     }
 
-    @PostMapping("/start")
-    public ResponseEntity<Void> startSimulation(@RequestBody SimulationStartRequest request) {
-        simulationEngine.start(
-            request.getProvider(),
-            request.getApiKey(),
-            request.getModelName(),
-            request.getPersona(),
-            request.getMaxTurns(),
-            request.isVerboseLogging(),
-            request.isHumanHelpTimeout(),
-            request.isDisableHumanHelp()
-        );
+    @GetMapping("/sessions")
+    public ResponseEntity<Set<String>> getSessions() {
+        return ResponseEntity.ok(sessionRegistry.getSessionIds());
+    }
+
+    @PostMapping("/{sessionId}/start")
+    public ResponseEntity<Void> startSimulation(@PathVariable String sessionId, @RequestBody SimulationStartRequest request) {
+        SimulationEngine simulationEngine = sessionRegistry.getOrCreate(sessionId);
+        simulationEngine.start(request);
         return ResponseEntity.ok().build();
     }
     
-    @PostMapping("/add-turns")
-    public ResponseEntity<Void> addTurns(@RequestBody AddTurnsRequest request) {
-        simulationEngine.addTurns(request.getTurns());
+    @PostMapping("/{sessionId}/add-turns")
+    public ResponseEntity<Void> addTurns(@PathVariable String sessionId, @RequestBody AddTurnsRequest request) {
+        sessionRegistry.get(sessionId).addTurns(request.getTurns());
         return ResponseEntity.ok().build();
     }
 
-    @PostMapping("/resume")
-    public ResponseEntity<Void> resumeWithHumanInput(@RequestBody HumanInputRequest request) {
-        simulationEngine.resumeWithHumanInput(request.getPrompt());
+    @PostMapping("/{sessionId}/resume")
+    public ResponseEntity<Void> resumeWithHumanInput(@PathVariable String sessionId, @RequestBody HumanInputRequest request) {
+        sessionRegistry.get(sessionId).resumeWithHumanInput(request.getPrompt());
         return ResponseEntity.ok().build();
     }
 
-    @GetMapping("/state")
-    public ResponseEntity<SimulationStateResponse> getSimulationState() {
+    @GetMapping("/{sessionId}/state")
+    public ResponseEntity<SimulationStateResponse> getSimulationState(@PathVariable String sessionId) {
+        SimulationEngine simulationEngine = sessionRegistry.get(sessionId);
         SimulationStateResponse response = new SimulationStateResponse();
         response.setStatus(simulationEngine.getStatus());
         response.setMainAgentStatus(simulationEngine.getMainAgent().getStatus());
@@ -60,28 +60,36 @@ public class SimulationController {
         response.setMainEventLog(simulationEngine.getMainEventLog());
         
         if (simulationEngine.getCurrentState() != null) {
+            response.setSeed(simulationEngine.getCurrentState().getSeed());
             response.setEmailInbox(simulationEngine.getCurrentState().getEmailInbox());
         }
         return ResponseEntity.ok(response);
     }
     
-    @GetMapping("/sent-emails")
-    public ResponseEntity<List<Map<String, String>>> getSentEmails() {
+    @GetMapping("/{sessionId}/sent-emails")
+    public ResponseEntity<List<Map<String, String>>> getSentEmails(@PathVariable String sessionId) {
+        SimulationEngine simulationEngine = sessionRegistry.get(sessionId);
         if (simulationEngine.getCurrentState() != null) {
             return ResponseEntity.ok(simulationEngine.getCurrentState().getSentEmails());
         }
         return ResponseEntity.ok(Collections.emptyList());
     }
 
-    @PostMapping("/pause")
-    public ResponseEntity<Void> pauseSimulation() {
-        simulationEngine.togglePause();
+    @PostMapping("/{sessionId}/pause")
+    public ResponseEntity<Void> pauseSimulation(@PathVariable String sessionId) {
+        sessionRegistry.get(sessionId).togglePause();
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/{sessionId}/reset")
+    public ResponseEntity<Void> resetSimulation(@PathVariable String sessionId) {
+        sessionRegistry.get(sessionId).reset();
         return ResponseEntity.ok().build();
     }
 
-    @PostMapping("/reset")
-    public ResponseEntity<Void> resetSimulation() {
-        simulationEngine.reset();
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> closeSession(@PathVariable String sessionId) {
+        sessionRegistry.remove(sessionId);
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+}
@@ -9,6 +9,11 @@ public class SimulationStartRequest {
     private boolean verboseLogging;
     private boolean humanHelpTimeout;
     private boolean disableHumanHelp; // New field
+    private Long seed; // Optional; a random seed is chosen (and reported) when absent
+    private boolean streaming; // Stream completions and act as soon as the action object is complete
+    private boolean deltaPerception; // Send only state changes between periodic full snapshots
+    private String stateEncoding; // json, pretty or tabular; the configured default when absent
+    private String embeddingApiKey; // OpenAI key for vector memory; defaults to apiKey for OpenAI runs, then the configured env var
 
     // Getters and Setters
     public String getProvider() { return provider; }
@@ -27,4 +32,14 @@ public class SimulationStartRequest {
     public void setHumanHelpTimeout(boolean humanHelpTimeout) { this.humanHelpTimeout = humanHelpTimeout; }
     public boolean isDisableHumanHelp() { return disableHumanHelp; }
     public void setDisableHumanHelp(boolean disableHumanHelp) { this.disableHumanHelp = disableHumanHelp; }
+    public Long getSeed() { return seed; }
+    public void setSeed(Long seed) { this.seed = seed; }
+    public boolean isStreaming() { return streaming; }
+    public void setStreaming(boolean streaming) { this.streaming = streaming; }
+    public boolean isDeltaPerception() { return deltaPerception; }
+    public void setDeltaPerception(boolean deltaPerception) { this.deltaPerception = deltaPerception; }
+    public String getStateEncoding() { return stateEncoding; }
+    public void setStateEncoding(String stateEncoding) { this.stateEncoding = stateEncoding; }
+    public String getEmbeddingApiKey() { return embeddingApiKey; }
+    public void setEmbeddingApiKey(String embeddingApiKey) { this.embeddingApiKey = embeddingApiKey; }
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ public class SimulationStateResponse {
     private String subAgentStatus;
     private SimulationState simulationState;
     private double netWorth;
+    private long seed;
     private List<String> mainEventLog;
     // private List<LogEntry> verboseLog; // REMOVED
     private List<Map<String, String>> emailInbox;
@@ -28,6 +29,8 @@ public class SimulationStateResponse {
     public void setSimulationState(SimulationState simulationState) { this.simulationState = simulationState; }
     public double getNetWorth() { return netWorth; }
     public void setNetWorth(double netWorth) { this.netWorth = netWorth; }
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
     public List<String> getMainEventLog() { return mainEventLog; }
     public void setMainEventLog(List<String> mainEventLog) { this.mainEventLog = mainEventLog; }
     public List<Map<String, String>> getEmailInbox() { return emailInbox; }
@@ -1,5 +1,6 @@
 package com.aiexpert.vendingbench.environment;
 
+import com.aiexpert.vendingbench.config.SimulationDefaults;
 import com.aiexpert.vendingbench.llm.LLMService;
 import com.aiexpert.vendingbench.llm.LLMServiceFactory;
 import com.aiexpert.vendingbench.logging.EventLogger;
@@ -8,60 +9,136 @@ import com.aiexpert.vendingbench.model.Item;
 import com.aiexpert.vendingbench.model.SalesReport;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
 
-@Service
 public class CustomerSimulation {
+    private static final double DEFAULT_ELASTICITY = -1.0;
+    private static final double DEFAULT_REFERENCE_PRICE = 1.50;
+    private static final int DEFAULT_BASE_SALES = 20;
+
     private final LLMServiceFactory llmServiceFactory;
     private final EventLogger logger;
+    private final SimulationDefaults.DemandProfiles config;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final Random random = new Random();
 
-    public CustomerSimulation(LLMServiceFactory llmServiceFactory, EventLogger logger) {
+    public CustomerSimulation(LLMServiceFactory llmServiceFactory, EventLogger logger, SimulationDefaults.DemandProfiles config) {
         this.llmServiceFactory = llmServiceFactory;
         this.logger = logger;
+        this.config = config;
     }
 
+    /**
+     * Requests demand profiles for all items, several items per prompt and several prompts in flight,
+     * then applies them in item order. Any item whose profile is missing or malformed gets the defaults.
+     */
     public void initializeItemDemand(Collection<Item> items) {
-        LLMService llmService = llmServiceFactory.getActiveService();
-        for (Item item : items) {
-            String prompt = String.format(
-                "You are a market analyst. For a vending machine item '%s', provide a realistic price elasticity, a reference price in USD, and a base daily sales number. " +
-                "Price elasticity should be a negative number, typically between -0.5 and -2.5. " +
-                "Respond ONLY with a JSON object like: {\"elasticity\": -1.2, \"reference_price\": 1.50, \"base_sales\": 30}",
-                item.getName()
-            );
-            logger.log("SIMULATION_SETUP", "CustomerSimulation", "Generating demand profile for " + item.getName());
-            String response = llmService.generate(prompt);
-            try {
-                JsonNode demandNode = objectMapper.readTree(response);
-                item.setElasticity(demandNode.path("elasticity").asDouble(-1.0));
+        LLMService llmService = llmServiceFactory.getCachedService();
+        List<Item> itemList = new ArrayList<>(items);
+        int batchSize = Math.max(1, config.getBatchSize());
+        List<List<Item>> batches = new ArrayList<>();
+        for (int i = 0; i < itemList.size(); i += batchSize) {
+            batches.add(itemList.subList(i, Math.min(i + batchSize, itemList.size())));
+        }
+        logger.log("SIMULATION_SETUP", "CustomerSimulation", "Generating demand profiles for " + itemList.size() + " items in " + batches.size() + " requests.");
+
+        Map<Item, JsonNode> profiles = new IdentityHashMap<>();
+        Flux.fromIterable(batches)
+                .flatMap(batch -> requestProfiles(llmService, batch), Math.max(1, config.getConcurrency()))
+                .doOnNext(profiles::putAll)
+                .blockLast();
+
+        for (Item item : itemList) {
+            JsonNode demandNode = profiles.get(item);
+            if (demandNode != null && demandNode.isObject()) {
+                item.setElasticity(demandNode.path("elasticity").asDouble(DEFAULT_ELASTICITY));
                 item.setReferencePrice(demandNode.path("reference_price").asDouble(item.getPrice()));
-                item.setBaseSales(demandNode.path("base_sales").asInt(20));
-                 logger.log("SIMULATION_SETUP", "CustomerSimulation", "Demand profile for " + item.getName() + " set.", Map.of("profile", response));
-            } catch (Exception e) {
-                logger.log("ERROR", "CustomerSimulation", "Failed to parse demand profile for " + item.getName() + ". Using defaults.", Map.of("error", e.getMessage()));
-                item.setElasticity(-1.0);
-                item.setReferencePrice(1.50);
-                item.setBaseSales(20);
+                item.setBaseSales(demandNode.path("base_sales").asInt(DEFAULT_BASE_SALES));
+                logger.log("SIMULATION_SETUP", "CustomerSimulation", "Demand profile for " + item.getName() + " set.", Map.of("profile", demandNode.toString()));
+            } else {
+                logger.log("ERROR", "CustomerSimulation", "Failed to parse demand profile for " + item.getName() + ". Using defaults.");
+                item.setElasticity(DEFAULT_ELASTICITY);
+                item.setReferencePrice(DEFAULT_REFERENCE_PRICE);
+                item.setBaseSales(DEFAULT_BASE_SALES);
             }
         }
     }
 
-    public SalesReport simulateDailySales(Inventory vendingMachineInventory, int day) {
+    private Mono<Map<Item, JsonNode>> requestProfiles(LLMService llmService, List<Item> batch) {
+        String prompt = batch.size() == 1 ? singleItemPrompt(batch.get(0)) : batchPrompt(batch);
+        return llmService.generateMono(prompt)
+                .timeout(Duration.ofSeconds(config.getDeadlineSeconds()))
+                .map(response -> parseProfiles(response, batch))
+                .onErrorResume(error -> {
+                    logger.log("ERROR", "CustomerSimulation", "Demand profile request failed for " + batch.size() + " items.", Map.of("error", String.valueOf(error.getMessage())));
+                    return Mono.just(Map.of());
+                });
+    }
+
+    private Map<Item, JsonNode> parseProfiles(String response, List<Item> batch) {
+        Map<Item, JsonNode> parsed = new IdentityHashMap<>();
+        try {
+            JsonNode root = objectMapper.readTree(response);
+            if (batch.size() == 1) {
+                parsed.put(batch.get(0), root);
+                return parsed;
+            }
+            // Profiles are matched by name, so a reordered or partial answer still maps correctly.
+            Map<String, JsonNode> byName = new HashMap<>();
+            for (JsonNode profile : root.path("profiles")) {
+                byName.put(profile.path("name").asText().toLowerCase(), profile);
+            }
+            for (Item item : batch) {
+                JsonNode profile = byName.get(item.getName().toLowerCase());
+                if (profile != null) parsed.put(item, profile);
+            }
+        } catch (Exception e) {
+            logger.log("ERROR", "CustomerSimulation", "Failed to parse demand profile response.", Map.of("error", String.valueOf(e.getMessage()), "response", response));
+        }
+        return parsed;
+    }
+
+    private String singleItemPrompt(Item item) {
+        return String.format(
+            "You are a market analyst. For a vending machine item '%s', provide a realistic price elasticity, a reference price in USD, and a base daily sales number. " +
+            "Price elasticity should be a negative number, typically between -0.5 and -2.5. " +
+            "Respond ONLY with a JSON object like: {\"elasticity\": -1.2, \"reference_price\": 1.50, \"base_sales\": 30}",
+            item.getName()
+        );
+    }
+
+    private String batchPrompt(List<Item> batch) {
+        String names = batch.stream().map(item -> "'" + item.getName() + "'").collect(Collectors.joining(", "));
+        return String.format(
+            "You are a market analyst. For each of these vending machine items: %s, provide a realistic price elasticity, a reference price in USD, and a base daily sales number. " +
+            "Price elasticity should be a negative number, typically between -0.5 and -2.5. " +
+            "Respond ONLY with a JSON object containing one entry per item, using the item names exactly as given, like: " +
+            "{\"profiles\": [{\"name\": \"Chips\", \"elasticity\": -1.2, \"reference_price\": 1.50, \"base_sales\": 30}]}",
+            names
+        );
+    }
+
+    public SalesReport simulateDailySales(Inventory vendingMachineInventory, int day, SplittableRandom demandRandom) {
         StringBuilder reportDetails = new StringBuilder("Daily Sales Report:\n");
         int dailyTotalUnitsSold = 0;
         double dailyTotalRevenue = 0.0;
 
         for (Item item : vendingMachineInventory.getClonedItems().values()) {
             if (item.getQuantity() > 0 && item.getPrice() > 0) {
-                int potentialSales = calculateSales(item, day);
+                int potentialSales = calculateSales(item, day, demandRandom);
                 int actualSales = Math.min(potentialSales, item.getQuantity());
 
                 if (actualSales > 0) {
@@ -79,13 +156,13 @@ public class CustomerSimulation {
         return new SalesReport(dailyTotalUnitsSold, dailyTotalRevenue, reportDetails.toString());
     }
     
-    public int calculateSales(Item item, int day) {
+    public int calculateSales(Item item, int day, SplittableRandom demandRandom) {
         if (item.getReferencePrice() <= 0) return 0;
         double priceRatio = item.getPrice() / item.getReferencePrice();
         double priceEffect = Math.pow(priceRatio, item.getElasticity());
         DayOfWeek dayOfWeek = LocalDate.ofEpochDay(day).getDayOfWeek();
         double dayMultiplier = (dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY) ? 1.5 : 1.0;
-        double noise = 0.8 + (1.2 - 0.8) * random.nextDouble();
+        double noise = 0.8 + (1.2 - 0.8) * demandRandom.nextDouble();
         double calculatedSales = item.getBaseSales() * priceEffect * dayMultiplier * noise;
         return (int) Math.round(Math.max(0, calculatedSales));
     }
@@ -4,13 +4,17 @@ import com.aiexpert.vendingbench.llm.LLMService;
 import com.aiexpert.vendingbench.llm.LLMServiceFactory;
 import com.aiexpert.vendingbench.logging.EventLogger;
 import com.aiexpert.vendingbench.model.SimulationState;
-import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
-@Service
 public class EmailSimulation {
+    // Replies are delivered within the same turn so seeded runs stay reproducible; a slow contact gets the canned reply instead.
+    private static final Duration REPLY_DEADLINE = Duration.ofSeconds(30);
+    private static final String DEFAULT_REPLY = "Thank you for your email. We have received your message and will get back to you shortly.";
+
     private final LLMServiceFactory llmServiceFactory;
     private final EventLogger logger;
     private final Map<String, String> contactProfiles;
@@ -55,7 +59,7 @@ public class EmailSimulation {
 
     private String generateResponse(String recipient, String emailBody) {
         String profile = getContactProfile(recipient);
-        LLMService llmService = llmServiceFactory.getActiveService();
+        LLMService llmService = llmServiceFactory.getCachedService();
 
         String prompt = String.format(
             "You are a Sub-Agent acting as a business contact. Your persona is: '%s'.\n\n" +
@@ -68,10 +72,16 @@ public class EmailSimulation {
         );
 
         try {
-            return llmService.generate(prompt);
+            return llmService.generateMono(prompt)
+                    .timeout(REPLY_DEADLINE)
+                    .onErrorResume(error -> {
+                        logger.log("ERROR", "EmailSimulation", "Failed to generate email response for " + recipient, Map.of("error", String.valueOf(error.getMessage())));
+                        return Mono.just(DEFAULT_REPLY);
+                    })
+                    .block();
         } catch (Exception e) {
             logger.log("ERROR", "EmailSimulation", "Failed to generate email response for " + recipient);
-            return "Thank you for your email. We have received your message and will get back to you shortly.";
+            return DEFAULT_REPLY;
         }
     }
 
@@ -1,16 +1,25 @@
 package com.aiexpert.vendingbench.llm;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class AnthropicService implements LLMService {
+    private static final Map<String, String> CACHE_BREAKPOINT = Map.of("type", "ephemeral");
+
+    private final WebClient webClient;
     private String apiKey;
     private String modelName = "claude-3-haiku-20240307";
-    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public AnthropicService(WebClient webClient) {
+        this.webClient = webClient;
+    }
 
     @Override
     public void configure(String apiKey, String modelName) {
@@ -21,34 +30,89 @@ public class AnthropicService implements LLMService {
     }
 
     @Override
-    public String generate(String prompt) {
+    public String getProviderName() {
+        return "Anthropic";
+    }
+
+    @Override
+    public String getModelName() {
+        return modelName;
+    }
+
+    @Override
+    public Mono<String> generateMono(String prompt) {
+        return completeMono(PromptLayout.of(prompt)).map(LLMResponse::text);
+    }
+
+    @Override
+    public Mono<LLMResponse> completeMono(PromptLayout layout) {
          if (apiKey == null || apiKey.isBlank()) {
             throw new IllegalStateException("API Key is not set for Anthropic.");
         }
-        WebClient webClient = WebClient.builder()
-                .baseUrl("https://api.anthropic.com/v1/messages")
-                .defaultHeader("x-api-key", this.apiKey)
-                .defaultHeader("anthropic-version", "2023-06-01")
-                .build();
         
-        Map<String, Object> requestBody = Map.of(
-            "model", this.modelName,
-            "max_tokens", 4096,
-            "messages", List.of(Map.of("role", "user", "content", prompt))
-        );
-
-        try {
-            String response = webClient.post()
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-            
-            JsonNode rootNode = objectMapper.readTree(response);
-            return rootNode.at("/content/0/text").asText();
-        } catch (Exception e) {
-            System.err.println("Anthropic API call failed: " + e.getMessage());
-            return LLMService.createFallbackError("Anthropic", e.getMessage());
+        return webClient.post()
+                .uri("/messages")
+                .header("x-api-key", this.apiKey)
+                .header("anthropic-version", "2023-06-01")
+                .bodyValue(buildRequestBody(layout))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(rootNode -> {
+                    JsonNode usage = rootNode.path("usage");
+                    int cacheRead = usage.path("cache_read_input_tokens").asInt(0);
+                    // input_tokens excludes cached and newly cached tokens, so add them back for the full prompt size.
+                    int input = usage.path("input_tokens").asInt(0) + cacheRead + usage.path("cache_creation_input_tokens").asInt(0);
+                    return new LLMResponse(rootNode.at("/content/0/text").asText(), input, usage.path("output_tokens").asInt(-1), cacheRead);
+                });
+    }
+
+    @Override
+    public Flux<String> generateStream(String prompt) {
+        return generateStream(PromptLayout.of(prompt));
+    }
+
+    @Override
+    public Flux<String> generateStream(PromptLayout layout) {
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new IllegalStateException("API Key is not set for Anthropic.");
+        }
+
+        Map<String, Object> requestBody = buildRequestBody(layout);
+        requestBody.put("stream", true);
+
+        // Text arrives in content_block_delta events; other event types carry no delta text.
+        return StreamingSupport.textDeltas(webClient.post()
+                .uri("/messages")
+                .header("x-api-key", this.apiKey)
+                .header("anthropic-version", "2023-06-01")
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToFlux(StreamingSupport.SSE_EVENTS), "/delta/text");
+    }
+
+    /**
+     * The system block ends in a cache breakpoint, and each history turn is its own content block with
+     * a breakpoint on the newest one. Next turn that block is still in place, one block before the new
+     * breakpoint, so the prefix written now is read back then; only the newest turn and the tail are new.
+     * Pruning or re-summarizing the oldest turns changes the prefix and costs one cache write.
+     */
+    private Map<String, Object> buildRequestBody(PromptLayout layout) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", this.modelName);
+        requestBody.put("max_tokens", 4096);
+        if (!layout.system().isBlank()) {
+            requestBody.put("system", List.of(Map.of("type", "text", "text", layout.system(), "cache_control", CACHE_BREAKPOINT)));
+        }
+
+        List<Map<String, Object>> content = new ArrayList<>();
+        List<String> history = layout.historyBlocks().stream().filter(block -> !block.isEmpty()).toList();
+        for (int i = 0; i < history.size(); i++) {
+            content.add(i == history.size() - 1
+                    ? Map.of("type", "text", "text", history.get(i), "cache_control", CACHE_BREAKPOINT)
+                    : Map.of("type", "text", "text", history.get(i)));
         }
+        content.add(Map.of("type", "text", "text", layout.tail()));
+        requestBody.put("messages", List.of(Map.of("role", "user", "content", content)));
+        return requestBody;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package com.aiexpert.vendingbench.llm;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decorates a provider with {@link LLMResponseCache}. Only successful responses are stored;
+ * failures reach the caller as errors and become fallback actions outside the cache.
+ * Wrap a single provider, never a failover chain: the key names the delegate's provider and model,
+ * which must be the ones that produced the response.
+ */
+public class CachingLLMService implements LLMService {
+    private final LLMService delegate;
+    private final LLMResponseCache cache;
+
+    public CachingLLMService(LLMService delegate, LLMResponseCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public void configure(String apiKey, String modelName) {
+        delegate.configure(apiKey, modelName);
+    }
+
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+
+    @Override
+    public String getModelName() {
+        return delegate.getModelName();
+    }
+
+    @Override
+    public Mono<String> generateMono(String prompt) {
+        String key = LLMResponseCache.key(getProviderName(), getModelName(), prompt);
+        String cached = cache.get(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return delegate.generateMono(prompt)
+                .doOnNext(response -> {
+                    if (!response.isBlank()) {
+                        cache.put(key, response);
+                    }
+                });
+    }
+
+    @Override
+    public Flux<String> generateStream(String prompt) {
+        String cached = cache.get(LLMResponseCache.key(getProviderName(), getModelName(), prompt));
+        return cached != null ? Flux.just(cached) : delegate.generateStream(prompt);
+    }
+
+    @Override
+    public String fallbackResponse(Throwable error) {
+        return delegate.fallbackResponse(error);
+    }
+}
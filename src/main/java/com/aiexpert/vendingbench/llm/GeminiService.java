@@ -2,18 +2,26 @@ package com.aiexpert.vendingbench.llm;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.netty.http.client.HttpClient;
-import java.time.Duration;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class GeminiService implements LLMService {
 
+    private final WebClient webClient;
     private String apiKey;
     private String modelName = "gemini-1.5-flash-latest";
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    public GeminiService(WebClient webClient) {
+        this.webClient = webClient;
+    }
+
     @Override
     public void configure(String apiKey, String modelName) {
         this.apiKey = apiKey;
@@ -23,45 +31,87 @@ public class GeminiService implements LLMService {
     }
 
     @Override
-    public String generate(String prompt) {
+    public String getProviderName() {
+        return "Gemini";
+    }
+
+    @Override
+    public String getModelName() {
+        return modelName;
+    }
+
+    @Override
+    public Mono<String> generateMono(String prompt) {
+        return completeMono(PromptLayout.of(prompt)).map(LLMResponse::text);
+    }
+
+    @Override
+    public Mono<LLMResponse> completeMono(PromptLayout layout) {
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new IllegalStateException("API Key is not set for Gemini.");
+        }
+
+        // The shared client applies the response timeout, so a hung call fails instead of blocking forever
+        return webClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/models/{model}:generateContent").queryParam("key", apiKey).build(this.modelName))
+                .bodyValue(buildRequestBody(layout))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .handle((rootNode, sink) -> {
+                    // Gemini API returns a JSON object where the desired JSON is a text string inside.
+                    // We need to extract this text and parse it again.
+                    String jsonText = rootNode.at("/candidates/0/content/parts/0/text").asText();
+                    JsonNode usage = rootNode.path("usageMetadata");
+                    try {
+                        sink.next(new LLMResponse(objectMapper.readTree(jsonText).toString(),
+                                usage.path("promptTokenCount").asInt(-1),
+                                usage.path("candidatesTokenCount").asInt(-1),
+                                usage.path("cachedContentTokenCount").asInt(0)));
+                    } catch (Exception e) {
+                        sink.error(e);
+                    }
+                });
+    }
+
+    @Override
+    public Flux<String> generateStream(String prompt) {
+        return generateStream(PromptLayout.of(prompt));
+    }
+
+    @Override
+    public Flux<String> generateStream(PromptLayout layout) {
         if (apiKey == null || apiKey.isBlank()) {
             throw new IllegalStateException("API Key is not set for Gemini.");
         }
 
-        // Configure HttpClient with a response timeout to prevent hangs
-        HttpClient httpClient = HttpClient.create()
-                .responseTimeout(Duration.ofSeconds(60)); // Timeout after 60 seconds
-
-        WebClient webClient = WebClient.builder()
-                .baseUrl("https://generativelanguage.googleapis.com/v1beta/models/" + this.modelName + ":generateContent")
-                .clientConnector(new ReactorClientHttpConnector(httpClient)) // Apply timeout settings
-                .build();
-
-        Map<String, Object> requestBody = Map.of(
-            "contents", new Map[]{ Map.of("parts", new Map[]{ Map.of("text", prompt) }) },
-            "generationConfig", Map.of("responseMimeType", "application/json")
-        );
-
-        try {
-            String response = webClient.post()
-                    .uri(uriBuilder -> uriBuilder.queryParam("key", apiKey).build())
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block(); // This call will now fail after 60 seconds if no response is received
-
-            JsonNode rootNode = objectMapper.readTree(response);
-            
-            // Gemini API returns a JSON object where the desired JSON is a text string inside.
-            // We need to extract this text and parse it again.
-            String jsonText = rootNode.at("/candidates/0/content/parts/0/text").asText();
-            JsonNode innerJson = objectMapper.readTree(jsonText);
-            
-            return innerJson.toString();
-
-        } catch (Exception e) {
-            System.err.println("Gemini API call failed: " + e.getMessage());
-            return LLMService.createFallbackError("Gemini", e.getMessage());
+        // Streamed chunks are raw fragments of the JSON text, so they are passed through without re-parsing.
+        return StreamingSupport.textDeltas(webClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/models/{model}:streamGenerateContent")
+                        .queryParam("alt", "sse")
+                        .queryParam("key", apiKey)
+                        .build(this.modelName))
+                .bodyValue(buildRequestBody(layout))
+                .retrieve()
+                .bodyToFlux(StreamingSupport.SSE_EVENTS), "/candidates/0/content/parts/0/text");
+    }
+
+    /**
+     * The stable block goes in systemInstruction and the history precedes the tail as separate parts,
+     * keeping the request prefix identical between turns for Gemini's implicit caching.
+     */
+    private Map<String, Object> buildRequestBody(PromptLayout layout) {
+        List<Map<String, String>> parts = new ArrayList<>();
+        if (!layout.history().isBlank()) {
+            parts.add(Map.of("text", layout.history()));
+        }
+        parts.add(Map.of("text", layout.tail()));
+
+        Map<String, Object> requestBody = new HashMap<>();
+        if (!layout.system().isBlank()) {
+            requestBody.put("systemInstruction", Map.of("parts", List.of(Map.of("text", layout.system()))));
         }
+        requestBody.put("contents", List.of(Map.of("role", "user", "parts", parts)));
+        requestBody.put("generationConfig", Map.of("responseMimeType", "application/json"));
+        return requestBody;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package com.aiexpert.vendingbench.llm;
+
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived WebClients for every LLM and embedding provider, shared by all sessions.
+ * All clients draw from one pooled ConnectionProvider, so connections, TLS sessions and
+ * keep-alive are reused across calls instead of being rebuilt on every request.
+ */
+@Component
+public class LLMHttpClients {
+
+    public static final String ANTHROPIC = "anthropic";
+    public static final String OPENAI = "openai";
+    public static final String GEMINI = "gemini";
+    public static final String OLLAMA = "ollama";
+
+    private static final int MAX_RESPONSE_BYTES = 16 * 1024 * 1024;
+
+    private final SimulationDefaults.Http config;
+    private final ConnectionProvider connectionProvider;
+    private final Map<String, WebClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, ConnectionStats> stats = new ConcurrentHashMap<>();
+
+    private static class ConnectionStats {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong connectionsOpened = new AtomicLong();
+        final AtomicLong connectionsActive = new AtomicLong();
+        final AtomicLong responseErrors = new AtomicLong();
+    }
+
+    public LLMHttpClients(SimulationDefaults defaults) {
+        this.config = defaults.getHttp();
+        this.connectionProvider = ConnectionProvider.builder("llm-providers")
+                .maxConnections(config.getMaxConnections())
+                .pendingAcquireMaxCount(config.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(config.getPendingAcquireTimeoutMs()))
+                .maxIdleTime(Duration.ofMillis(config.getMaxIdleTimeMs()))
+                .evictInBackground(Duration.ofMillis(config.getMaxIdleTimeMs()))
+                .build();
+    }
+
+    public WebClient forProvider(String provider) {
+        return clients.computeIfAbsent(provider, this::createClient);
+    }
+
+    private WebClient createClient(String provider) {
+        boolean local = OLLAMA.equals(provider);
+        String baseUrl = switch (provider) {
+            case ANTHROPIC -> "https://api.anthropic.com/v1";
+            case OPENAI -> "https://api.openai.com/v1";
+            case GEMINI -> "https://generativelanguage.googleapis.com/v1beta";
+            case OLLAMA -> config.getOllamaBaseUrl();
+            default -> throw new IllegalArgumentException("No HTTP client configured for provider: " + provider);
+        };
+
+        ConnectionStats providerStats = stats.computeIfAbsent(provider, p -> new ConnectionStats());
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) config.getConnectTimeoutMs())
+                .responseTimeout(Duration.ofMillis(local ? config.getLocalResponseTimeoutMs() : config.getResponseTimeoutMs()))
+                .doOnRequest((request, connection) -> providerStats.requests.incrementAndGet())
+                .doOnConnected(connection -> {
+                    providerStats.connectionsOpened.incrementAndGet();
+                    providerStats.connectionsActive.incrementAndGet();
+                })
+                .doOnDisconnected(connection -> providerStats.connectionsActive.decrementAndGet())
+                .doOnResponseError((response, error) -> providerStats.responseErrors.incrementAndGet());
+        if (!local && config.isHttp2Enabled()) {
+            // Negotiated via ALPN; falls back to HTTP/1.1 when the server does not offer h2.
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+
+        return WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(MAX_RESPONSE_BYTES))
+                .build();
+    }
+
+    /**
+     * Per-provider request and connection counters. A healthy pool shows far fewer
+     * connections opened than requests sent.
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        stats.forEach((provider, s) -> metrics.put(provider, Map.of(
+                "requests", s.requests.get(),
+                "connectionsOpened", s.connectionsOpened.get(),
+                "connectionsActive", s.connectionsActive.get(),
+                "responseErrors", s.responseErrors.get()
+        )));
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connectionProvider.disposeLater().block(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,12 @@
+package com.aiexpert.vendingbench.llm;
+
+/**
+ * A completion together with the token usage reported by the provider.
+ * Counts are -1 when the provider did not report them.
+ */
+public record LLMResponse(String text, int inputTokens, int outputTokens, int cachedInputTokens) {
+
+    public static LLMResponse of(String text) {
+        return new LLMResponse(text, -1, -1, -1);
+    }
+}
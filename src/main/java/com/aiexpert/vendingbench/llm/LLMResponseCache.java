@@ -0,0 +1,175 @@
+package com.aiexpert.vendingbench.llm;
+
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Content-addressed cache of LLM responses, keyed by provider, model and the SHA-256 of the prompt.
+ * Entries live in an in-memory LRU and, when a directory is configured, in one JSON file per key
+ * so that repeated runs skip identical environment prompts entirely.
+ * Only call sites that opt in through {@link LLMServiceFactory#getCachedService()} are cached.
+ */
+@Component
+public class LLMResponseCache {
+
+    private record Entry(long createdAtMillis, String response) {}
+
+    private final SimulationDefaults.LlmCache config;
+    private final LongSupplier clock;
+    private final Path diskDirectory;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Entry> memory;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public LLMResponseCache(SimulationDefaults defaults) {
+        this(defaults.getLlmCache(), System::currentTimeMillis);
+    }
+
+    LLMResponseCache(SimulationDefaults.LlmCache config, LongSupplier clock) {
+        this.config = config;
+        this.clock = clock;
+        String directory = config.getDiskDirectory();
+        this.diskDirectory = (directory == null || directory.isBlank()) ? null : Path.of(directory);
+        int maxEntries = Math.max(1, config.getMaxEntries());
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isEnabled() { return config.isEnabled(); }
+
+    public static String key(String provider, String modelName, String prompt) {
+        return provider.toLowerCase() + "|" + modelName + "|" + sha256(prompt);
+    }
+
+    /**
+     * @return the cached response, or null on a miss or an expired entry.
+     */
+    public String get(String key) {
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+        }
+        boolean fromDisk = false;
+        if (entry == null) {
+            entry = readFromDisk(key);
+            fromDisk = entry != null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (isExpired(entry)) {
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            synchronized (memory) {
+                memory.remove(key);
+            }
+            return null;
+        }
+        if (fromDisk) {
+            diskHits.incrementAndGet();
+            synchronized (memory) {
+                memory.put(key, entry);
+            }
+        }
+        hits.incrementAndGet();
+        return entry.response();
+    }
+
+    public void put(String key, String response) {
+        Entry entry = new Entry(clock.getAsLong(), response);
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        writeToDisk(key, entry);
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        synchronized (memory) {
+            stats.put("entries", memory.size());
+        }
+        stats.put("hits", hitCount);
+        stats.put("diskHits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("expirations", expirations.get());
+        stats.put("evictions", evictions.get());
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        return stats;
+    }
+
+    private boolean isExpired(Entry entry) {
+        return config.getTtlSeconds() > 0 && clock.getAsLong() - entry.createdAtMillis() > config.getTtlSeconds() * 1000;
+    }
+
+    private Entry readFromDisk(String key) {
+        if (diskDirectory == null) return null;
+        Path file = fileFor(key);
+        if (!Files.exists(file)) return null;
+        try {
+            return objectMapper.readValue(file.toFile(), Entry.class);
+        } catch (IOException e) {
+            System.err.println("Failed to read cached LLM response " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        if (diskDirectory == null) return;
+        try {
+            Files.createDirectories(diskDirectory);
+            Path file = fileFor(key);
+            // Write then rename so concurrent sessions never read a half-written entry.
+            Path temp = Files.createTempFile(diskDirectory, "entry", ".tmp");
+            objectMapper.writeValue(temp.toFile(), entry);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write cached LLM response: " + e.getMessage());
+        }
+    }
+
+    private Path fileFor(String key) {
+        return diskDirectory.resolve(sha256(key) + ".json");
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+}
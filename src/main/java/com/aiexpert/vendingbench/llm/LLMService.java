@@ -1,8 +1,90 @@
 package com.aiexpert.vendingbench.llm;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
 public interface LLMService {
     void configure(String apiKey, String modelName);
-    String generate(String prompt);
+
+    String getProviderName();
+
+    String getModelName();
+
+    /**
+     * Issues the call without blocking the caller. Transport, timeout and parsing failures
+     * are signalled as errors on the Mono, and cancelling the subscription aborts the request.
+     * Configuration problems such as a missing API key are thrown immediately.
+     * @param prompt The prompt to send.
+     * @return A Mono emitting the model's text response.
+     */
+    Mono<String> generateMono(String prompt);
+
+    /**
+     * Like {@link #generateMono(String)}, but sends the prompt in its cacheable layout and reports
+     * token usage. Providers that support prompt caching mark the stable blocks as cache breakpoints;
+     * the default simply sends the flattened prompt.
+     */
+    default Mono<LLMResponse> completeMono(PromptLayout layout) {
+        return generateMono(layout.flatten()).map(LLMResponse::of);
+    }
+
+    /**
+     * Streams the completion as text chunks in arrival order. Cancelling the subscription
+     * closes the stream, so callers can stop reading once they have what they need.
+     * Providers without a streaming endpoint emit the whole response as a single chunk.
+     */
+    default Flux<String> generateStream(String prompt) {
+        return generateMono(prompt).flux();
+    }
+
+    default Flux<String> generateStream(PromptLayout layout) {
+        return generateStream(layout.flatten());
+    }
+
+    /**
+     * Blocking call for code that needs the answer before it can continue.
+     * Failures are converted into the standard fallback action.
+     */
+    default String generate(String prompt) {
+        return withFallback(generateMono(prompt)).block();
+    }
+
+    /**
+     * Blocking variant of {@link #completeMono(PromptLayout)}; failures become the fallback action with unknown usage.
+     */
+    default LLMResponse complete(PromptLayout layout) {
+        return completeMono(layout)
+                .onErrorResume(error -> Mono.just(LLMResponse.of(fallbackResponse(error))))
+                .block();
+    }
+
+    /**
+     * Starts the call and returns immediately, so several independent calls can overlap.
+     * A call that runs past the deadline is cancelled and completes with the fallback action.
+     * Cancelling the future cancels the underlying HTTP request.
+     * @param prompt The prompt to send.
+     * @param deadline The maximum time to wait for this call.
+     * @return A future that always completes normally.
+     */
+    default CompletableFuture<String> generateAsync(String prompt, Duration deadline) {
+        return withFallback(generateMono(prompt).timeout(deadline)).toFuture();
+    }
+
+    /**
+     * Builds the response returned in place of a failed call.
+     * Providers can override this to give more specific guidance.
+     */
+    default String fallbackResponse(Throwable error) {
+        System.err.println(getProviderName() + " API call failed: " + error.getMessage());
+        return createFallbackError(getProviderName(), String.valueOf(error.getMessage()));
+    }
+
+    private Mono<String> withFallback(Mono<String> call) {
+        return call.onErrorResume(error -> Mono.just(fallbackResponse(error)));
+    }
 
     /**
      * Creates a standardized JSON fallback response when an API call fails.
@@ -19,4 +101,4 @@ public interface LLMService {
             sanitizedDetails
         );
     }
-}
\ No newline at end of file
+}
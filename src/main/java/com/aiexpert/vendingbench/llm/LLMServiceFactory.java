@@ -1,11 +1,24 @@
 package com.aiexpert.vendingbench.llm;
 
-import org.springframework.stereotype.Service;
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.llm.resilience.ProviderResilienceRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
 
-@Service
 public class LLMServiceFactory {
     
+    private final LLMHttpClients httpClients;
+    private final LLMResponseCache responseCache;
+    private final ProviderResilienceRegistry resilienceRegistry;
     private LLMService activeService;
+    private LLMService cachedService;
+
+    public LLMServiceFactory(LLMHttpClients httpClients, LLMResponseCache responseCache, ProviderResilienceRegistry resilienceRegistry) {
+        this.httpClients = httpClients;
+        this.responseCache = responseCache;
+        this.resilienceRegistry = resilienceRegistry;
+    }
 
     public LLMService getService(String provider) {
         if (provider == null || provider.isBlank()) {
@@ -13,17 +26,64 @@ public class LLMServiceFactory {
         }
 
         return switch (provider.toLowerCase()) {
-            case "gemini" -> new GeminiService();
-            case "anthropic" -> new AnthropicService();
-            case "openai" -> new OpenAIService();
-            case "ollama" -> new OllamaService();
+            case "gemini" -> new GeminiService(httpClients.forProvider(LLMHttpClients.GEMINI));
+            case "anthropic" -> new AnthropicService(httpClients.forProvider(LLMHttpClients.ANTHROPIC));
+            case "openai" -> new OpenAIService(httpClients.forProvider(LLMHttpClients.OPENAI));
+            case "ollama" -> new OllamaService(httpClients.forProvider(LLMHttpClients.OLLAMA));
+            case "scripted" -> new ScriptedLLMService();
             default -> throw new IllegalArgumentException("Unsupported LLM provider: " + provider);
         };
     }
     
     public void configureActiveService(String provider, String apiKey, String modelName) {
-        this.activeService = getService(provider);
-        this.activeService.configure(apiKey, modelName);
+        LLMService selected = getService(provider);
+        selected.configure(apiKey, modelName);
+        // The scripted provider answers locally in microseconds; rate limits and caching would only distort load tests.
+        boolean scripted = selected instanceof ScriptedLLMService;
+        boolean caching = responseCache.isEnabled() && !scripted;
+        if (resilienceRegistry.getConfig().isEnabled() && !scripted) {
+            List<ProviderResilienceRegistry.Target> chain = buildFallbackChain(selected, apiKey);
+            this.activeService = resilienceRegistry.wrap(chain);
+            // The cache sits below failover, so an answer is stored under the provider and model that gave it
+            this.cachedService = caching ? resilienceRegistry.wrap(chain.stream()
+                    .map(target -> new ProviderResilienceRegistry.Target(new CachingLLMService(target.service(), responseCache), target.apiKey()))
+                    .toList()) : activeService;
+        } else {
+            this.activeService = selected;
+            this.cachedService = caching ? new CachingLLMService(selected, responseCache) : selected;
+        }
+    }
+
+    private List<ProviderResilienceRegistry.Target> buildFallbackChain(LLMService selected, String apiKey) {
+        List<ProviderResilienceRegistry.Target> chain = new ArrayList<>();
+        chain.add(new ProviderResilienceRegistry.Target(selected, apiKey));
+        for (SimulationDefaults.Resilience.FallbackModel fallback : resilienceRegistry.getConfig().getFallbackChain()) {
+            LLMService service = getService(fallback.getProvider());
+            String fallbackKey = fallback.getApiKeyEnvVar() != null ? System.getenv(fallback.getApiKeyEnvVar()) : null;
+            service.configure(fallbackKey, fallback.getModelName());
+            boolean sameAsSelected = service.getProviderName().equals(selected.getProviderName())
+                    && service.getModelName().equals(selected.getModelName());
+            if (!sameAsSelected) {
+                chain.add(new ProviderResilienceRegistry.Target(service, fallbackKey));
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * A service for the agent's own housekeeping calls, such as history summaries, which may use a cheaper
+     * model than the agent itself. Without a provider the active service is returned.
+     */
+    public LLMService getAuxiliaryService(String provider, String apiKey, String modelName) {
+        if (provider == null || provider.isBlank()) {
+            return getActiveService();
+        }
+        LLMService service = getService(provider);
+        service.configure(apiKey, modelName);
+        if (!resilienceRegistry.getConfig().isEnabled() || service instanceof ScriptedLLMService) {
+            return service;
+        }
+        return resilienceRegistry.wrap(List.of(new ProviderResilienceRegistry.Target(service, apiKey)));
     }
 
     public LLMService getActiveService() {
@@ -32,4 +92,13 @@ public class LLMServiceFactory {
         }
         return activeService;
     }
+
+    /**
+     * The active service behind the response cache, for environment prompts whose answer
+     * does not need to change between runs. The agent under test should use {@link #getActiveService()}.
+     */
+    public LLMService getCachedService() {
+        getActiveService();
+        return cachedService;
+    }
 }
\ No newline at end of file
@@ -1,17 +1,19 @@
 package com.aiexpert.vendingbench.llm;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.netty.http.client.HttpClient;
-import java.time.Duration;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
 import java.util.Map;
 
 public class OllamaService implements LLMService {
+    private final WebClient webClient;
     private String modelName = "llama3";
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final String ollamaApiUrl = "http://localhost:11434/api/generate";
+
+    public OllamaService(WebClient webClient) {
+        this.webClient = webClient;
+    }
 
     @Override
     public void configure(String apiKey, String modelName) {
@@ -22,35 +24,68 @@ public class OllamaService implements LLMService {
     }
 
     @Override
-    public String generate(String prompt) {
-        // Configure HttpClient with a generous response timeout for model loading
-        HttpClient httpClient = HttpClient.create()
-                .responseTimeout(Duration.ofMinutes(3)); // Timeout after 3 minutes
+    public String getProviderName() {
+        return "Ollama";
+    }
+
+    @Override
+    public String getModelName() {
+        return modelName;
+    }
 
-        WebClient webClient = WebClient.builder()
-                .baseUrl(ollamaApiUrl)
-                .clientConnector(new ReactorClientHttpConnector(httpClient)) // Apply timeout settings
-                .build();
+    @Override
+    public Mono<String> generateMono(String prompt) {
+        return completeMono(PromptLayout.of(prompt)).map(LLMResponse::text);
+    }
 
+    /**
+     * Ollama keeps the evaluated prefix of the previous request in memory, so the flattened
+     * layout (stable blocks first) lets it skip re-evaluating most of the prompt each turn.
+     * It does not report how many tokens were reused.
+     */
+    @Override
+    public Mono<LLMResponse> completeMono(PromptLayout layout) {
         Map<String, Object> requestBody = Map.of(
             "model", this.modelName,
-            "prompt", prompt,
+            "prompt", layout.flatten(),
             "format", "json",
             "stream", false
         );
 
-        try {
-            String response = webClient.post()
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode rootNode = objectMapper.readTree(response);
-            return rootNode.path("response").asText();
-        } catch (Exception e) {
-            System.err.println("Ollama API call failed: " + e.getMessage() + ". Is Ollama running?");
-            return LLMService.createFallbackError("Ollama", "Local instance failed. Is it running and is the model '" + modelName + "' pulled?");
-        }
+        // The shared client allows a generous response timeout for model loading
+        return webClient.post()
+                .uri("/generate")
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(rootNode -> new LLMResponse(rootNode.path("response").asText(),
+                        rootNode.path("prompt_eval_count").asInt(-1),
+                        rootNode.path("eval_count").asInt(-1),
+                        -1));
+    }
+
+    @Override
+    public Flux<String> generateStream(String prompt) {
+        Map<String, Object> requestBody = Map.of(
+            "model", this.modelName,
+            "prompt", prompt,
+            "format", "json",
+            "stream", true
+        );
+
+        // Ollama streams newline-delimited JSON objects, each carrying the next fragment in "response".
+        return webClient.post()
+                .uri("/generate")
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToFlux(JsonNode.class)
+                .map(chunk -> chunk.path("response").asText())
+                .filter(text -> !text.isEmpty());
+    }
+
+    @Override
+    public String fallbackResponse(Throwable error) {
+        System.err.println("Ollama API call failed: " + error.getMessage() + ". Is Ollama running?");
+        return LLMService.createFallbackError("Ollama", "Local instance failed. Is it running and is the model '" + modelName + "' pulled?");
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,23 @@
 package com.aiexpert.vendingbench.llm;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class OpenAIService implements LLMService {
+    private final WebClient webClient;
     private String apiKey;
     private String modelName = "gpt-4-turbo";
-    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public OpenAIService(WebClient webClient) {
+        this.webClient = webClient;
+    }
 
     @Override
     public void configure(String apiKey, String modelName) {
@@ -21,33 +28,78 @@ public class OpenAIService implements LLMService {
     }
 
     @Override
-    public String generate(String prompt) {
+    public String getProviderName() {
+        return "OpenAI";
+    }
+
+    @Override
+    public String getModelName() {
+        return modelName;
+    }
+
+    @Override
+    public Mono<String> generateMono(String prompt) {
+        return completeMono(PromptLayout.of(prompt)).map(LLMResponse::text);
+    }
+
+    @Override
+    public Mono<LLMResponse> completeMono(PromptLayout layout) {
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new IllegalStateException("API Key is not set for OpenAI.");
+        }
+
+        return webClient.post()
+                .uri("/chat/completions")
+                .header("Authorization", "Bearer " + this.apiKey)
+                .bodyValue(buildRequestBody(layout))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(rootNode -> {
+                    JsonNode usage = rootNode.path("usage");
+                    return new LLMResponse(rootNode.at("/choices/0/message/content").asText(),
+                            usage.path("prompt_tokens").asInt(-1),
+                            usage.path("completion_tokens").asInt(-1),
+                            usage.at("/prompt_tokens_details/cached_tokens").asInt(0));
+                });
+    }
+
+    @Override
+    public Flux<String> generateStream(String prompt) {
+        return generateStream(PromptLayout.of(prompt));
+    }
+
+    @Override
+    public Flux<String> generateStream(PromptLayout layout) {
         if (apiKey == null || apiKey.isBlank()) {
             throw new IllegalStateException("API Key is not set for OpenAI.");
         }
-        WebClient webClient = WebClient.builder()
-                .baseUrl("https://api.openai.com/v1/chat/completions")
-                .defaultHeader("Authorization", "Bearer " + this.apiKey)
-                .build();
-
-        Map<String, Object> requestBody = Map.of(
-            "model", this.modelName,
-            "messages", List.of(Map.of("role", "user", "content", prompt)),
-            "response_format", Map.of("type", "json_object")
-        );
-
-        try {
-            String response = webClient.post()
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode rootNode = objectMapper.readTree(response);
-            return rootNode.at("/choices/0/message/content").asText();
-        } catch (Exception e) {
-            System.err.println("OpenAI API call failed: " + e.getMessage());
-            return LLMService.createFallbackError("OpenAI", e.getMessage());
+
+        Map<String, Object> requestBody = buildRequestBody(layout);
+        requestBody.put("stream", true);
+
+        return StreamingSupport.textDeltas(webClient.post()
+                .uri("/chat/completions")
+                .header("Authorization", "Bearer " + this.apiKey)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToFlux(StreamingSupport.SSE_EVENTS), "/choices/0/delta/content");
+    }
+
+    /**
+     * OpenAI caches matching prompt prefixes automatically, so the stable system block goes
+     * first as its own message and the history is followed by the per-turn tail.
+     */
+    private Map<String, Object> buildRequestBody(PromptLayout layout) {
+        List<Map<String, String>> messages = new ArrayList<>();
+        if (!layout.system().isBlank()) {
+            messages.add(Map.of("role", "system", "content", layout.system()));
         }
+        messages.add(Map.of("role", "user", "content", layout.history() + layout.tail()));
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", this.modelName);
+        requestBody.put("messages", messages);
+        requestBody.put("response_format", Map.of("type", "json_object"));
+        return requestBody;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.aiexpert.vendingbench.llm;
+
+import java.util.List;
+
+/**
+ * A prompt split by how often each part changes, so providers can cache the stable prefix.
+ * The system block is fixed for a whole run, the history only grows at its end (one block per
+ * turn, so last turn's prompt ends on a block boundary of this one), and the tail is rebuilt every
+ * turn. Flattening keeps that order, so even providers with automatic prefix caching see an
+ * unchanged prefix from turn to turn.
+ */
+public record PromptLayout(String system, List<String> historyBlocks, String tail) {
+
+    public static PromptLayout of(String prompt) {
+        return new PromptLayout("", List.of(), prompt);
+    }
+
+    public String history() {
+        return String.join("", historyBlocks);
+    }
+
+    public String flatten() {
+        return system + history() + tail;
+    }
+}
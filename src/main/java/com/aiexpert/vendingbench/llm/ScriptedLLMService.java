@@ -0,0 +1,302 @@
+package com.aiexpert.vendingbench.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A stand-in provider that answers instantly and deterministically without any network access.
+ * Agent prompts are answered by a simple restocking policy driven by the CURRENT STATE block, in
+ * any state encoding (or, with delta perception, the last snapshot with the STATE CHANGES applied), demand-profile
+ * prompts get stable profiles derived from the item name, and email prompts get a fixed reply.
+ * Used to load-test and profile the engine itself.
+ */
+public class ScriptedLLMService implements LLMService {
+    private static final String STATE_MARKER = "# CURRENT STATE:";
+    private static final String DELTA_MARKER = "# STATE CHANGES";
+    private static final String BATCH_MARKER = "\"actions\":";
+    private static final Pattern QUOTED_NAME = Pattern.compile("'([^']+)'");
+    private static final Pattern TABULAR_SECTION = Pattern.compile("(\\w+) (cashHeld|count)=(\\S+)");
+    private static final int LOW_MACHINE_STOCK = 5;
+    private static final int MACHINE_TARGET_STOCK = 10;
+    private static final int LOW_STORAGE_STOCK = 20;
+    private static final int ORDER_QUANTITY = 30;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String modelName = "restock-policy";
+    // Each action runs at most once per simulated day, so a failing tool cannot loop forever.
+    private int lastCollectDay = -1;
+    private int lastRestockDay = -1;
+    private int lastOrderDay = -1;
+    private long fallbackTurns;
+    private ObjectNode lastState; // Last snapshot with later changes applied
+
+    @Override
+    public void configure(String apiKey, String modelName) {
+        // API key is ignored for the scripted provider
+        if (modelName != null && !modelName.isBlank()) {
+            this.modelName = modelName;
+        }
+    }
+
+    @Override
+    public String getProviderName() {
+        return "Scripted";
+    }
+
+    @Override
+    public String getModelName() {
+        return modelName;
+    }
+
+    @Override
+    public Mono<String> generateMono(String prompt) {
+        return Mono.fromSupplier(() -> respond(prompt));
+    }
+
+    synchronized String respond(String prompt) {
+        if (prompt.contains("market analyst")) {
+            return demandProfiles(prompt);
+        }
+        // Agent prompts come before the email heuristic: the agent's tool list mentions email too
+        int stateStart = prompt.indexOf(STATE_MARKER);
+        int deltaStart = prompt.indexOf(DELTA_MARKER);
+        if (stateStart >= 0 || deltaStart >= 0) {
+            try {
+                JsonNode state = stateStart >= 0
+                        ? rememberSnapshot(readBlock(prompt, stateStart))
+                        : applyDelta(readBlock(prompt, deltaStart));
+                return prompt.contains(BATCH_MARKER) ? dayPlan(state) : nextAction(state).toString();
+            } catch (Exception e) {
+                // A policy that cannot see the state would only collect cash, so say so instead
+                throw new IllegalStateException("The scripted provider could not read the agent's state: " + e.getMessage(), e);
+            }
+        }
+        if (prompt.contains("email")) {
+            return "Thank you for reaching out. We have noted your message and will follow up shortly.";
+        }
+        return dayCycleAction();
+    }
+
+    // The block that follows the marker's header line: JSON, or the tabular encoding
+    private JsonNode readBlock(String prompt, int markerStart) throws Exception {
+        int lineEnd = prompt.indexOf('\n', markerStart);
+        String block = prompt.substring(lineEnd < 0 ? prompt.length() : lineEnd + 1);
+        return block.stripLeading().startsWith("{") ? objectMapper.readTree(block) : readTabular(block);
+    }
+
+    /**
+     * Reads the scalars and inventories of a TabularStateEncoder block into the shape of the JSON
+     * encoding. The block ends at the first blank line; email and delivery rows are skipped.
+     */
+    private ObjectNode readTabular(String block) throws Exception {
+        String[] lines = block.split("\n", -1);
+        ObjectNode state = objectMapper.createObjectNode();
+        for (String pair : lines[0].trim().split(" ")) {
+            int equals = pair.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Not a tabular state line: " + lines[0]);
+            }
+            state.set(pair.substring(0, equals), objectMapper.readTree(pair.substring(equals + 1)));
+        }
+        ObjectNode items = null; // Of the inventory whose rows are being read
+        for (int i = 1; i < lines.length && !lines[i].isBlank(); i++) {
+            Matcher section = TABULAR_SECTION.matcher(lines[i]);
+            if (section.matches()) {
+                items = null;
+                if ("cashHeld".equals(section.group(2))) {
+                    ObjectNode inventory = state.putObject(section.group(1));
+                    inventory.put("cashHeld", Double.parseDouble(section.group(3)));
+                    items = inventory.putObject("items");
+                }
+                continue;
+            }
+            if (items == null || lines[i].startsWith("name|")) {
+                continue;
+            }
+            List<String> cells = tabularCells(lines[i]);
+            ObjectNode item = items.putObject(cells.get(0));
+            item.put("name", cells.get(0));
+            item.put("quantity", Integer.parseInt(cells.get(1)));
+            item.put("price", Double.parseDouble(cells.get(2)));
+            item.put("wholesaleCost", Double.parseDouble(cells.get(3)));
+        }
+        return state;
+    }
+
+    // Splits a row on unescaped pipes and undoes the encoder's escaping
+    private static List<String> tabularCells(String row) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (c == '\\' && i + 1 < row.length()) {
+                char escaped = row.charAt(++i);
+                cell.append(escaped == 'n' ? '\n' : escaped);
+            } else if (c == '|') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    private JsonNode rememberSnapshot(JsonNode snapshot) {
+        lastState = snapshot instanceof ObjectNode object ? object.deepCopy() : null;
+        return snapshot;
+    }
+
+    /**
+     * Applies a STATE CHANGES block to the last snapshot. Inventory sections list changed items by
+     * name, plus cashHeld when it changed.
+     */
+    private JsonNode applyDelta(JsonNode delta) {
+        if (lastState == null) {
+            throw new IllegalStateException("State changes arrived before any snapshot.");
+        }
+        for (String field : List.of("turn", "day", "cashBalance", "totalUnitsSold")) {
+            if (delta.has(field)) {
+                lastState.set(field, delta.get(field));
+            }
+        }
+        for (String section : List.of("storage", "vendingMachine")) {
+            JsonNode changes = delta.path(section);
+            ObjectNode inventory = child(lastState, section);
+            for (Iterator<Map.Entry<String, JsonNode>> it = changes.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> change = it.next();
+                if ("cashHeld".equals(change.getKey())) {
+                    inventory.set("cashHeld", change.getValue());
+                    continue;
+                }
+                ObjectNode item = child(child(inventory, "items"), change.getKey());
+                item.put("name", change.getKey());
+                for (String itemField : List.of("quantity", "price")) {
+                    if (change.getValue().has(itemField)) {
+                        item.set(itemField, change.getValue().get(itemField));
+                    }
+                }
+            }
+        }
+        return lastState;
+    }
+
+    private static ObjectNode child(ObjectNode parent, String name) {
+        return parent.get(name) instanceof ObjectNode child ? child : parent.putObject(name);
+    }
+
+    // When the agent may batch commands, the whole day's routine goes out in one response.
+    private String dayPlan(JsonNode state) {
+        ObjectNode root = objectMapper.createObjectNode();
+        ArrayNode actions = root.putArray("actions");
+        List<String> thoughts = new ArrayList<>();
+        ObjectNode next;
+        do {
+            next = nextAction(state);
+            thoughts.add(next.path("thought").asText());
+            actions.add(next.get("action"));
+        } while (!"wait_for_next_day".equals(next.at("/action/tool").asText()));
+        root.put("thought", String.join(" ", thoughts));
+        return root.toString();
+    }
+
+    private ObjectNode nextAction(JsonNode state) {
+        int day = state.path("day").asInt();
+        JsonNode machine = state.path("vendingMachine");
+        JsonNode storage = state.path("storage").path("items");
+
+        if (machine.path("cashHeld").asDouble() > 0 && lastCollectDay != day) {
+            lastCollectDay = day;
+            return action("Collecting the cash in the machine.", "collect_cash", objectMapper.createObjectNode());
+        }
+
+        if (lastRestockDay != day) {
+            ArrayNode restock = objectMapper.createArrayNode();
+            for (Iterator<Map.Entry<String, JsonNode>> it = storage.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> entry = it.next();
+                int inMachine = machine.path("items").path(entry.getKey()).path("quantity").asInt(0);
+                int available = entry.getValue().path("quantity").asInt(0);
+                int quantity = Math.min(available, MACHINE_TARGET_STOCK - inMachine);
+                if (inMachine < LOW_MACHINE_STOCK && quantity > 0) {
+                    restock.addObject().put("name", entry.getKey()).put("quantity", quantity);
+                }
+            }
+            if (!restock.isEmpty()) {
+                lastRestockDay = day;
+                ObjectNode params = objectMapper.createObjectNode();
+                params.set("items", restock);
+                return action("The machine is running low, moving stock from storage.", "restock_machine", params);
+            }
+        }
+
+        if (lastOrderDay != day) {
+            ArrayNode order = objectMapper.createArrayNode();
+            for (Iterator<Map.Entry<String, JsonNode>> it = storage.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> entry = it.next();
+                if (entry.getValue().path("quantity").asInt(0) < LOW_STORAGE_STOCK) {
+                    order.addObject().put("name", entry.getKey()).put("quantity", ORDER_QUANTITY);
+                }
+            }
+            if (!order.isEmpty()) {
+                lastOrderDay = day;
+                ObjectNode params = objectMapper.createObjectNode();
+                params.set("items", order);
+                return action("Storage is running low, ordering from the supplier.", "purchase_from_supplier", params);
+            }
+        }
+
+        return action("Nothing else to do today.", "wait_for_next_day", objectMapper.createObjectNode());
+    }
+
+    // Used when the prompt carries no state: alternate collecting cash and ending the day.
+    private String dayCycleAction() {
+        boolean collect = fallbackTurns++ % 2 == 0;
+        return (collect
+                ? action("Collecting cash before ending the day.", "collect_cash", objectMapper.createObjectNode())
+                : action("Ending the day.", "wait_for_next_day", objectMapper.createObjectNode())).toString();
+    }
+
+    private String demandProfiles(String prompt) {
+        String itemsSection = prompt.substring(0, Math.max(prompt.indexOf("provide"), 0));
+        ArrayNode profiles = objectMapper.createArrayNode();
+        Matcher matcher = QUOTED_NAME.matcher(itemsSection);
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            // Derived from the name so every run (and every batch layout) sees the same profile.
+            int hash = Math.abs(name.hashCode());
+            profiles.addObject()
+                    .put("name", name)
+                    .put("elasticity", -0.5 - (hash % 200) / 100.0)
+                    .put("reference_price", 1.0 + (hash / 200 % 150) / 100.0)
+                    .put("base_sales", 10 + hash / 30000 % 31);
+        }
+        if (profiles.size() == 1 && !prompt.contains("\"profiles\"")) {
+            ObjectNode single = (ObjectNode) profiles.get(0);
+            single.remove("name");
+            return single.toString();
+        }
+        ObjectNode root = objectMapper.createObjectNode();
+        root.set("profiles", profiles);
+        return root.toString();
+    }
+
+    private ObjectNode action(String thought, String tool, ObjectNode parameters) {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("thought", thought);
+        ObjectNode actionNode = root.putObject("action");
+        actionNode.put("tool", tool);
+        actionNode.set("parameters", parameters);
+        return root;
+    }
+}
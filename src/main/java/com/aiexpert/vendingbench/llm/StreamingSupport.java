@@ -0,0 +1,39 @@
+package com.aiexpert.vendingbench.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+/**
+ * Shared decoding for providers that stream completions as server-sent events.
+ */
+final class StreamingSupport {
+    static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_EVENTS = new ParameterizedTypeReference<>() {};
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private StreamingSupport() {}
+
+    /**
+     * Extracts the text delta at the given JSON pointer from each event, skipping
+     * keep-alives, "[DONE]" markers and events that carry no text.
+     */
+    static Flux<String> textDeltas(Flux<ServerSentEvent<String>> events, String textPointer) {
+        return events
+                .mapNotNull(ServerSentEvent::data)
+                .filter(data -> !data.isBlank() && !"[DONE]".equals(data.trim()))
+                .<String>handle((data, sink) -> {
+                    try {
+                        JsonNode node = objectMapper.readTree(data);
+                        String text = node.at(textPointer).asText();
+                        if (!text.isEmpty()) {
+                            sink.next(text);
+                        }
+                    } catch (Exception e) {
+                        sink.error(e);
+                    }
+                });
+    }
+}
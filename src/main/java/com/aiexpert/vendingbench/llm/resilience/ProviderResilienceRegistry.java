@@ -0,0 +1,73 @@
+package com.aiexpert.vendingbench.llm.resilience;
+
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.llm.LLMService;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the rate limiters and circuit breakers for every provider and API key in this JVM,
+ * so that all sessions sharing a key also share its throughput and its health state.
+ */
+@Component
+public class ProviderResilienceRegistry {
+
+    /** A provider to route to, with the key it was configured with (null for keyless local models). */
+    public record Target(LLMService service, String apiKey) {}
+
+    private final SimulationDefaults.Resilience config;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public ProviderResilienceRegistry(SimulationDefaults defaults) {
+        this.config = defaults.getResilience();
+    }
+
+    public SimulationDefaults.Resilience getConfig() { return config; }
+
+    public LLMService wrap(List<Target> targets) {
+        List<ResilientLLMService.Route> routes = new ArrayList<>();
+        for (Target target : targets) {
+            String key = routeKey(target.service().getProviderName(), target.apiKey());
+            TokenBucket bucket = buckets.computeIfAbsent(key,
+                    k -> new TokenBucket(config.getRequestsPerMinute(), config.getBurst(), System::nanoTime));
+            CircuitBreaker breaker = breakers.computeIfAbsent(key,
+                    k -> new CircuitBreaker(config.getCircuitFailureThreshold(), config.getCircuitOpenMs(), System::nanoTime));
+            routes.add(new ResilientLLMService.Route(target.service(), bucket, breaker));
+        }
+        return new ResilientLLMService(routes, config);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        buckets.forEach((key, bucket) -> {
+            Map<String, Object> entry = new TreeMap<>(bucket.getStats());
+            CircuitBreaker breaker = breakers.get(key);
+            if (breaker != null) entry.putAll(breaker.getStats());
+            stats.put(key, entry);
+        });
+        return stats;
+    }
+
+    // Keys are identified by a short fingerprint so they never appear in metrics or logs.
+    private static String routeKey(String provider, String apiKey) {
+        if (apiKey == null || apiKey.isBlank()) {
+            return provider.toLowerCase();
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return provider.toLowerCase() + ":" + HexFormat.of().formatHex(digest, 0, 4);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+}
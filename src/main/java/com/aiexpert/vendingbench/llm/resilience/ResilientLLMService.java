@@ -0,0 +1,212 @@
+package com.aiexpert.vendingbench.llm.resilience;
+
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.llm.LLMResponse;
+import com.aiexpert.vendingbench.llm.LLMService;
+import com.aiexpert.vendingbench.llm.PromptLayout;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Wraps the selected provider and its fallback chain. Every call waits for a token from the
+ * shared per-key bucket, retries transient failures with jittered exponential backoff, can hedge
+ * slow calls with a duplicate request, and fails over down the chain when a provider gives up
+ * or its circuit is open. Only when the whole chain fails does the caller see an error,
+ * which the blocking entry points turn into the usual ask-for-help fallback.
+ */
+public class ResilientLLMService implements LLMService {
+
+    /** One provider in the chain together with the shared limiter and breaker for its key. */
+    public record Route(LLMService service, TokenBucket bucket, CircuitBreaker breaker) {}
+
+    private final List<Route> routes;
+    private final SimulationDefaults.Resilience config;
+
+    public ResilientLLMService(List<Route> routes, SimulationDefaults.Resilience config) {
+        if (routes.isEmpty()) {
+            throw new IllegalArgumentException("At least one provider is required.");
+        }
+        this.routes = List.copyOf(routes);
+        this.config = config;
+    }
+
+    private LLMService primary() { return routes.get(0).service(); }
+
+    @Override
+    public void configure(String apiKey, String modelName) {
+        primary().configure(apiKey, modelName);
+    }
+
+    @Override
+    public String getProviderName() {
+        return primary().getProviderName();
+    }
+
+    @Override
+    public String getModelName() {
+        return primary().getModelName();
+    }
+
+    @Override
+    public Mono<String> generateMono(String prompt) {
+        // Assembling the primary call up front surfaces configuration errors (e.g. a missing key) to the caller.
+        Mono<String> primaryCall = primary().generateMono(prompt);
+        return withFailover(0, primaryCall, service -> service.generateMono(prompt));
+    }
+
+    @Override
+    public Mono<LLMResponse> completeMono(PromptLayout layout) {
+        Mono<LLMResponse> primaryCall = primary().completeMono(layout);
+        return withFailover(0, primaryCall, service -> service.completeMono(layout));
+    }
+
+    @Override
+    public Flux<String> generateStream(String prompt) {
+        return generateStream(PromptLayout.of(prompt));
+    }
+
+    /**
+     * Streams from the primary provider. Failures before the first chunk are retried; if the primary
+     * still fails, the rest of the chain answers with a regular completion emitted as one chunk.
+     * Chunks already handed to the caller are never replayed.
+     */
+    @Override
+    public Flux<String> generateStream(PromptLayout layout) {
+        Route route = routes.get(0);
+        Flux<String> primaryStream = route.service().generateStream(layout);
+        Mono<String> fallback = withFailover(1, null, service -> service.completeMono(layout)).map(LLMResponse::text);
+
+        return Flux.defer(() -> {
+            if (!route.breaker().tryAcquire()) {
+                return fallback.flux();
+            }
+            AtomicBoolean emitted = new AtomicBoolean();
+            return route.bucket().acquire()
+                    .thenMany(primaryStream)
+                    .doOnNext(chunk -> emitted.set(true))
+                    .doOnError(error -> onAttemptError(route, error))
+                    .retryWhen(backoff().filter(error -> !emitted.get() && isRetryable(error)))
+                    .doOnComplete(() -> onStreamSucceeded(route))
+                    // Callers stop reading once they have what they need, or when they time out
+                    .doOnCancel(() -> {
+                        if (emitted.get()) {
+                            onStreamSucceeded(route);
+                        } else {
+                            route.breaker().recordCancelled();
+                        }
+                    })
+                    .onErrorResume(error -> {
+                        recordFinalFailure(route, error);
+                        return emitted.get() || routes.size() == 1 ? Flux.error(error) : fallback.flux();
+                    });
+        });
+    }
+
+    @Override
+    public String fallbackResponse(Throwable error) {
+        return primary().fallbackResponse(error);
+    }
+
+    /**
+     * Tries the route at {@code index}, then each later route in turn.
+     * @param eagerCall the already-assembled call for this route, or null to assemble it lazily.
+     */
+    private <T> Mono<T> withFailover(int index, Mono<T> eagerCall, Function<LLMService, Mono<T>> call) {
+        if (index >= routes.size()) {
+            return Mono.error(new IllegalStateException("All providers in the fallback chain are unavailable."));
+        }
+        Route route = routes.get(index);
+        boolean last = index == routes.size() - 1;
+        Mono<T> routeCall = eagerCall != null ? eagerCall : Mono.defer(() -> call.apply(route.service()));
+
+        return Mono.defer(() -> {
+            if (!route.breaker().tryAcquire()) {
+                return withFailover(index + 1, null, call);
+            }
+            return attempt(route, routeCall)
+                    .doOnNext(result -> route.breaker().recordSuccess())
+                    .doOnCancel(() -> route.breaker().recordCancelled()) // e.g. the caller's timeout
+                    .onErrorResume(error -> {
+                        recordFinalFailure(route, error);
+                        if (last) return Mono.error(error);
+                        System.err.println(route.service().getProviderName() + " failed (" + error.getMessage() + "); failing over to the next provider.");
+                        return withFailover(index + 1, null, call);
+                    });
+        });
+    }
+
+    private <T> Mono<T> attempt(Route route, Mono<T> routeCall) {
+        Mono<T> single = route.bucket().acquire()
+                .then(routeCall)
+                .doOnNext(result -> route.bucket().onSuccess())
+                .doOnError(error -> onAttemptError(route, error));
+
+        Mono<T> hedged = single;
+        if (config.getHedgeDelayMs() > 0) {
+            hedged = Mono.firstWithValue(single, Mono.delay(Duration.ofMillis(config.getHedgeDelayMs())).then(single))
+                    .onErrorMap(ResilientLLMService::unwrapHedgeError);
+        }
+        return hedged.retryWhen(backoff().filter(ResilientLLMService::isRetryable));
+    }
+
+    private RetryBackoffSpec backoff() {
+        return Retry.backoff(config.getMaxRetries(), Duration.ofMillis(Math.max(config.getInitialBackoffMs(), 1)))
+                .maxBackoff(Duration.ofMillis(Math.max(config.getMaxBackoffMs(), 1)))
+                .jitter(0.5)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    private static void onStreamSucceeded(Route route) {
+        route.breaker().recordSuccess();
+        route.bucket().onSuccess();
+    }
+
+    private static void onAttemptError(Route route, Throwable error) {
+        if (error instanceof WebClientResponseException response && response.getStatusCode().value() == 429) {
+            route.bucket().onThrottled();
+        }
+    }
+
+    private static void recordFinalFailure(Route route, Throwable error) {
+        // Client errors such as a malformed request say nothing about the provider's health.
+        if (isRetryable(error) || isAuthFailure(error)) {
+            route.breaker().recordFailure();
+        }
+    }
+
+    public static boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == 408 || status == 429 || status >= 500;
+        }
+        return error instanceof WebClientRequestException
+                || error instanceof TimeoutException
+                || error instanceof IOException;
+    }
+
+    private static boolean isAuthFailure(Throwable error) {
+        return error instanceof WebClientResponseException response
+                && (response.getStatusCode().value() == 401 || response.getStatusCode().value() == 403);
+    }
+
+    private static Throwable unwrapHedgeError(Throwable error) {
+        if (error instanceof NoSuchElementException && error.getSuppressed().length > 0) {
+            return error.getSuppressed()[0];
+        }
+        List<Throwable> errors = Exceptions.unwrapMultiple(error);
+        return errors.isEmpty() ? error : errors.get(0);
+    }
+}
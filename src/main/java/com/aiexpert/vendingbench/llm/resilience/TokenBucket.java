@@ -0,0 +1,89 @@
+package com.aiexpert.vendingbench.llm.resilience;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Reservation-based token bucket. Callers that find the bucket empty take tokens on credit and
+ * wait for their turn, so concurrent sessions are served in arrival order instead of racing.
+ * The refill rate adapts: it halves whenever the provider throttles us and creeps back up
+ * towards the configured rate as calls succeed. A rate of 0 or less disables limiting.
+ */
+public class TokenBucket {
+    private static final double MIN_RATE_FRACTION = 0.05;
+    private static final double RECOVERY_FRACTION = 0.05;
+
+    private final boolean unlimited;
+    private final double maxRatePerSecond;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+
+    private double ratePerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+    private long throttledCount;
+
+    public TokenBucket(double requestsPerMinute, int burst, LongSupplier nanoClock) {
+        this.unlimited = requestsPerMinute <= 0;
+        this.maxRatePerSecond = Math.max(requestsPerMinute, 1) / 60.0;
+        this.capacity = Math.max(burst, 1);
+        this.nanoClock = nanoClock;
+        this.ratePerSecond = maxRatePerSecond;
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Takes one token and returns how long the caller must wait before using it.
+     */
+    public synchronized long reserveNanos() {
+        if (unlimited) {
+            return 0;
+        }
+        refill();
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) (-tokens / ratePerSecond * 1_000_000_000L);
+    }
+
+    public Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            long waitNanos = reserveNanos();
+            return waitNanos == 0 ? Mono.empty() : Mono.delay(Duration.ofNanos(waitNanos)).then();
+        });
+    }
+
+    public synchronized void onThrottled() {
+        throttledCount++;
+        if (unlimited) {
+            return;
+        }
+        refill();
+        ratePerSecond = Math.max(maxRatePerSecond * MIN_RATE_FRACTION, ratePerSecond / 2);
+        // Drop any saved-up burst so waiting callers back off immediately.
+        tokens = Math.min(tokens, 0);
+    }
+
+    public synchronized void onSuccess() {
+        refill();
+        ratePerSecond = Math.min(maxRatePerSecond, ratePerSecond + maxRatePerSecond * RECOVERY_FRACTION);
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        refill();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requestsPerMinute", unlimited ? 0.0 : ratePerSecond * 60);
+        stats.put("availableTokens", tokens);
+        stats.put("throttled", throttledCount);
+        return stats;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * ratePerSecond);
+        lastRefillNanos = now;
+    }
+}
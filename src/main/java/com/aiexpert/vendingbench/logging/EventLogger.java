@@ -1,13 +1,11 @@
 package com.aiexpert.vendingbench.logging;
 
-import org.springframework.stereotype.Service;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
-@Service
 public class EventLogger {
     private static final int MAX_VERBOSE_LOGS = 1000;
     private static final int MAX_MAIN_LOGS = 200;
@@ -0,0 +1,76 @@
+package com.aiexpert.vendingbench.memory;
+
+import com.aiexpert.vendingbench.model.VectorMemoryEntry;
+import com.aiexpert.vendingbench.util.VectorMath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Exact search: one dot product per entry and a bounded min-heap. Fast enough for a few thousand
+ * entries, and the reference that approximate indexes are measured against.
+ */
+public class BruteForceVectorIndex implements VectorIndex {
+    private final Map<String, VectorMemoryEntry> entries = new LinkedHashMap<>();
+    private volatile long embeddingBytes;
+
+    private record ScoredEntry(VectorMemoryEntry entry, float score) {}
+
+    @Override
+    public String getName() { return "exact"; }
+
+    @Override
+    public void add(VectorMemoryEntry entry) {
+        remove(entry.id());
+        entries.put(entry.id(), entry);
+        embeddingBytes += (long) entry.embedding().length * Float.BYTES;
+    }
+
+    @Override
+    public boolean remove(String id) {
+        VectorMemoryEntry removed = entries.remove(id);
+        if (removed == null) {
+            return false;
+        }
+        embeddingBytes -= (long) removed.embedding().length * Float.BYTES;
+        return true;
+    }
+
+    @Override
+    public List<VectorMemoryEntry> search(float[] unitQuery, int topK) {
+        return nearest(entries.values(), unitQuery, topK);
+    }
+
+    @Override
+    public int size() { return entries.size(); }
+
+    @Override
+    public long getEmbeddingBytes() { return embeddingBytes; }
+
+    public static List<VectorMemoryEntry> nearest(Iterable<VectorMemoryEntry> candidates, float[] unitQuery, int topK) {
+        if (topK <= 0) {
+            return List.of();
+        }
+        PriorityQueue<ScoredEntry> heap = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(ScoredEntry::score));
+        for (VectorMemoryEntry entry : candidates) {
+            float score = VectorMath.dot(entry.embedding(), unitQuery);
+            if (heap.size() < topK) {
+                heap.add(new ScoredEntry(entry, score));
+            } else if (score > heap.peek().score()) {
+                heap.poll();
+                heap.add(new ScoredEntry(entry, score));
+            }
+        }
+        List<VectorMemoryEntry> best = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            best.add(heap.poll().entry());
+        }
+        Collections.reverse(best);
+        return best;
+    }
+}
@@ -0,0 +1,372 @@
+package com.aiexpert.vendingbench.memory;
+
+import com.aiexpert.vendingbench.model.VectorMemoryEntry;
+import com.aiexpert.vendingbench.util.VectorMath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Hierarchical Navigable Small World graph (Malkov and Yashunin, 2016) for approximate nearest-neighbour
+ * search. Each entry lives on layer 0 and, with exponentially falling probability, on the layers above;
+ * a search descends greedily from the sparse top layer and then explores {@code efSearch} candidates on
+ * layer 0, touching a few hundred vectors instead of all of them.
+ * <p>
+ * Removal only marks a node deleted: it keeps routing searches but never appears in results. Once deleted
+ * nodes outnumber live ones a new graph is built from the live entries on a background thread, while this
+ * one keeps serving. The first call after the new graph is ready replays the changes made meanwhile onto
+ * it and switches over, so only that replay, not the build, runs under the caller's lock. While the index
+ * holds no more than {@code exactSearchBelow} live entries, searches scan them exactly, since that is both
+ * fast and perfect.
+ */
+public class HnswVectorIndex implements VectorIndex {
+
+    private static final class Node {
+        private final VectorMemoryEntry entry;
+        private final int[][] neighbors; // Per layer, the first neighborCounts[layer] slots are used
+        private final int[] neighborCounts;
+        private boolean deleted;
+
+        private Node(VectorMemoryEntry entry, int level, int m) {
+            this.entry = entry;
+            this.neighbors = new int[level + 1][];
+            this.neighborCounts = new int[level + 1];
+            for (int layer = 0; layer <= level; layer++) {
+                // One spare slot so a neighbour can be appended before the list is pruned back
+                neighbors[layer] = new int[(layer == 0 ? 2 * m : m) + 1];
+            }
+        }
+
+        private int level() { return neighbors.length - 1; }
+    }
+
+    private record Candidate(int node, float score) {}
+
+    // An entry added or, when added is null, an id removed while a new graph was being built
+    private record Change(VectorMemoryEntry added, String removedId) {}
+
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int exactSearchBelow;
+    private final double levelMultiplier;
+    private final SplittableRandom random;
+
+    private List<Node> nodes = new ArrayList<>();
+    private Map<String, Integer> nodeIds = new HashMap<>();
+    private int entryPoint = -1;
+    private int deletedCount;
+    private volatile long embeddingBytes; // Read by metrics from other threads
+    // Visited marks are stamped with a per-search generation so they never need clearing
+    private int[] visited = new int[0];
+    private int visitGeneration;
+    private FutureTask<HnswVectorIndex> rebuild; // Null unless a new graph is being built
+    private List<Change> changesDuringRebuild;
+
+    public HnswVectorIndex(int m, int efConstruction, int efSearch, int exactSearchBelow, long seed) {
+        if (m < 2 || efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException("HNSW needs m >= 2, efConstruction >= 1 and efSearch >= 1.");
+        }
+        this.m = m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.exactSearchBelow = exactSearchBelow;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public String getName() { return "hnsw"; }
+
+    @Override
+    public void add(VectorMemoryEntry entry) {
+        swapInRebuiltGraph(false);
+        remove(entry.id());
+        insert(entry);
+        if (rebuild != null) {
+            changesDuringRebuild.add(new Change(entry, null));
+        }
+    }
+
+    @Override
+    public boolean remove(String id) {
+        swapInRebuiltGraph(false);
+        if (!markDeleted(id)) {
+            return false;
+        }
+        if (rebuild != null) {
+            changesDuringRebuild.add(new Change(null, id));
+        } else if (deletedCount > size()) {
+            startRebuild();
+        }
+        return true;
+    }
+
+    @Override
+    public List<VectorMemoryEntry> search(float[] unitQuery, int topK) {
+        swapInRebuiltGraph(false);
+        if (topK <= 0 || size() == 0) {
+            return List.of();
+        }
+        if (size() <= exactSearchBelow) {
+            return BruteForceVectorIndex.nearest(liveEntries(), unitQuery, topK);
+        }
+        int current = greedyDescent(unitQuery, 0);
+        // Deleted nodes take up candidate slots, so widen the beam by the share of them
+        int ef = (int) Math.min(nodes.size(), (long) Math.max(efSearch, topK) * nodes.size() / size());
+        PriorityQueue<Candidate> found = searchLayer(unitQuery, current, ef, 0);
+        List<Candidate> ordered = new ArrayList<>(found);
+        ordered.sort((a, b) -> Float.compare(b.score(), a.score()));
+        List<VectorMemoryEntry> best = new ArrayList<>(topK);
+        for (Candidate candidate : ordered) {
+            Node node = nodes.get(candidate.node());
+            if (!node.deleted) {
+                best.add(node.entry);
+                if (best.size() == topK) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int size() { return nodes.size() - deletedCount; }
+
+    @Override
+    public long getEmbeddingBytes() { return embeddingBytes; }
+
+    private void insert(VectorMemoryEntry entry) {
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+        int id = nodes.size();
+        Node node = new Node(entry, level, m);
+        nodes.add(node);
+        long bytes = (long) entry.embedding().length * Float.BYTES;
+        for (int[] links : node.neighbors) {
+            bytes += (long) links.length * Integer.BYTES;
+        }
+        embeddingBytes += bytes;
+        nodeIds.put(entry.id(), id);
+        if (nodes.size() > visited.length) {
+            visited = Arrays.copyOf(visited, Math.max(16, visited.length * 2));
+        }
+        if (entryPoint < 0) {
+            entryPoint = id;
+            return;
+        }
+        float[] vector = entry.embedding();
+        int topLevel = nodes.get(entryPoint).level();
+        int current = greedyDescent(vector, level + 1);
+        for (int layer = Math.min(level, topLevel); layer >= 0; layer--) {
+            PriorityQueue<Candidate> found = searchLayer(vector, current, efConstruction, layer);
+            List<Candidate> ordered = new ArrayList<>(found);
+            ordered.sort((a, b) -> Float.compare(b.score(), a.score()));
+            current = ordered.get(0).node();
+            for (Candidate neighbor : selectNeighbors(ordered, m)) {
+                link(id, neighbor.node(), layer);
+                link(neighbor.node(), id, layer);
+            }
+        }
+        if (level > topLevel) {
+            entryPoint = id;
+        }
+    }
+
+    /**
+     * Walks down from the entry point to {@code stopLayer}, moving to the closest neighbour on each layer.
+     */
+    private int greedyDescent(float[] query, int stopLayer) {
+        int current = entryPoint;
+        float currentScore = VectorMath.dot(query, nodes.get(current).entry.embedding());
+        for (int layer = nodes.get(entryPoint).level(); layer >= stopLayer; layer--) {
+            boolean moved = true;
+            while (moved) {
+                moved = false;
+                Node node = nodes.get(current);
+                for (int i = 0; i < node.neighborCounts[layer]; i++) {
+                    int neighbor = node.neighbors[layer][i];
+                    float score = VectorMath.dot(query, nodes.get(neighbor).entry.embedding());
+                    if (score > currentScore) {
+                        current = neighbor;
+                        currentScore = score;
+                        moved = true;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on one layer. Returns up to {@code ef} nodes as a min-heap, worst on top.
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] query, int start, int ef, int layer) {
+        int generation = ++visitGeneration;
+        PriorityQueue<Candidate> frontier = new PriorityQueue<>((a, b) -> Float.compare(b.score(), a.score()));
+        PriorityQueue<Candidate> found = new PriorityQueue<>(ef + 1, (a, b) -> Float.compare(a.score(), b.score()));
+        Candidate first = new Candidate(start, VectorMath.dot(query, nodes.get(start).entry.embedding()));
+        visited[start] = generation;
+        frontier.add(first);
+        found.add(first);
+        while (!frontier.isEmpty()) {
+            Candidate closest = frontier.poll();
+            if (found.size() >= ef && closest.score() < found.peek().score()) {
+                break;
+            }
+            Node node = nodes.get(closest.node());
+            for (int i = 0; i < node.neighborCounts[layer]; i++) {
+                int neighbor = node.neighbors[layer][i];
+                if (visited[neighbor] == generation) {
+                    continue;
+                }
+                visited[neighbor] = generation;
+                float score = VectorMath.dot(query, nodes.get(neighbor).entry.embedding());
+                if (found.size() < ef || score > found.peek().score()) {
+                    Candidate candidate = new Candidate(neighbor, score);
+                    frontier.add(candidate);
+                    found.add(candidate);
+                    if (found.size() > ef) {
+                        found.poll();
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The paper's neighbour heuristic: walking candidates best first, keep one only if it is closer to the
+     * new node than to every neighbour already kept, so links spread in different directions. Remaining
+     * slots are then filled with the closest rejected candidates.
+     */
+    private List<Candidate> selectNeighbors(List<Candidate> orderedCandidates, int limit) {
+        List<Candidate> selected = new ArrayList<>(limit);
+        List<Candidate> rejected = new ArrayList<>();
+        for (Candidate candidate : orderedCandidates) {
+            if (selected.size() == limit) {
+                break;
+            }
+            float[] vector = nodes.get(candidate.node()).entry.embedding();
+            boolean diverse = true;
+            for (Candidate kept : selected) {
+                if (VectorMath.dot(vector, nodes.get(kept.node()).entry.embedding()) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            (diverse ? selected : rejected).add(candidate);
+        }
+        for (int i = 0; i < rejected.size() && selected.size() < limit; i++) {
+            selected.add(rejected.get(i));
+        }
+        return selected;
+    }
+
+    /**
+     * Adds {@code to} to the neighbour list of {@code from}, pruning the list with the heuristic when full.
+     */
+    private void link(int from, int to, int layer) {
+        Node node = nodes.get(from);
+        int[] links = node.neighbors[layer];
+        links[node.neighborCounts[layer]++] = to;
+        int limit = links.length - 1;
+        if (node.neighborCounts[layer] <= limit) {
+            return;
+        }
+        float[] vector = node.entry.embedding();
+        List<Candidate> ordered = new ArrayList<>(limit + 1);
+        for (int i = 0; i < node.neighborCounts[layer]; i++) {
+            ordered.add(new Candidate(links[i], VectorMath.dot(vector, nodes.get(links[i]).entry.embedding())));
+        }
+        ordered.sort((a, b) -> Float.compare(b.score(), a.score()));
+        List<Candidate> kept = selectNeighbors(ordered, limit);
+        for (int i = 0; i < kept.size(); i++) {
+            links[i] = kept.get(i).node();
+        }
+        node.neighborCounts[layer] = kept.size();
+    }
+
+    private List<VectorMemoryEntry> liveEntries() {
+        List<VectorMemoryEntry> live = new ArrayList<>(size());
+        for (Node node : nodes) {
+            if (!node.deleted) {
+                live.add(node.entry);
+            }
+        }
+        return live;
+    }
+
+    private boolean markDeleted(String id) {
+        Integer node = nodeIds.remove(id);
+        if (node == null) {
+            return false;
+        }
+        nodes.get(node).deleted = true;
+        deletedCount++;
+        return true;
+    }
+
+    /**
+     * Builds a graph of the live entries on its own thread. Entries are immutable, so the builder only
+     * reads the snapshot and never touches this graph.
+     */
+    private void startRebuild() {
+        List<VectorMemoryEntry> live = liveEntries();
+        long seed = random.nextLong();
+        rebuild = new FutureTask<>(() -> {
+            HnswVectorIndex fresh = new HnswVectorIndex(m, efConstruction, efSearch, exactSearchBelow, seed);
+            live.forEach(fresh::insert);
+            return fresh;
+        });
+        changesDuringRebuild = new ArrayList<>();
+        Thread builder = new Thread(rebuild, "hnsw-rebuild");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Replaces this graph with the rebuilt one once it is ready, or, when {@code wait} is set, as soon as
+     * it is (used by tests).
+     */
+    void swapInRebuiltGraph(boolean wait) {
+        if (rebuild == null || (!wait && !rebuild.isDone())) {
+            return;
+        }
+        HnswVectorIndex fresh;
+        try {
+            fresh = rebuild.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            System.err.println("Failed to rebuild the HNSW index; keeping the current graph: " + e.getCause());
+            rebuild = null;
+            changesDuringRebuild = null;
+            return;
+        }
+        for (Change change : changesDuringRebuild) {
+            if (change.added() != null) {
+                fresh.markDeleted(change.added().id());
+                fresh.insert(change.added());
+            } else {
+                fresh.markDeleted(change.removedId());
+            }
+        }
+        rebuild = null;
+        changesDuringRebuild = null;
+        nodes = fresh.nodes;
+        nodeIds = fresh.nodeIds;
+        entryPoint = fresh.entryPoint;
+        deletedCount = fresh.deletedCount;
+        embeddingBytes = fresh.embeddingBytes;
+        visited = fresh.visited;
+        visitGeneration = fresh.visitGeneration;
+    }
+}
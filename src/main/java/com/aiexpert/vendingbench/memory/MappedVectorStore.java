@@ -0,0 +1,488 @@
+package com.aiexpert.vendingbench.memory;
+
+import com.aiexpert.vendingbench.model.VectorMemoryEntry;
+import com.aiexpert.vendingbench.util.VectorMath;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * File-backed vector memory that survives restarts. A directory holds three files:
+ * <ul>
+ *   <li>{@code index.bin}: two header records and one fixed-size record per entry (id, timestamp, text position,
+ *   deleted flag);</li>
+ *   <li>{@code vectors-<generation>.f32}: the unit-length embeddings, one row per entry;</li>
+ *   <li>{@code texts-<generation>.log}: the texts, appended as UTF-8.</li>
+ * </ul>
+ * The index and vectors are memory-mapped, so opening a store reads only its header and searches scan the
+ * embeddings in the page cache rather than on the heap; texts are read only for the results returned.
+ * Nothing is opened until the store is first used. Writes reach the page cache immediately and the disk
+ * when the OS flushes them or the store is closed, so they survive a JVM restart.
+ * <p>
+ * Ids must be numeric and increasing, as {@code MemoryManager} assigns them, so an id is found by binary
+ * search. The store also records which embedder produced its vectors (see {@link #getEmbedder()}), since
+ * vectors from different embedders cannot be compared even when their dimensions match. Removal sets the deleted flag; once deleted entries outnumber live ones, the live entries are
+ * copied into files of the next generation and {@code index.bin} is atomically replaced to point at them.
+ */
+public class MappedVectorStore implements VectorIndex, Closeable {
+    private static final String INDEX_FILE = "index.bin";
+    private static final int MAGIC = 0x56454332; // "VEC2"
+    private static final int RECORD_BYTES = 32;
+    private static final int HEADER_RECORDS = 2;
+    private static final int MAX_EMBEDDER_BYTES = RECORD_BYTES - Integer.BYTES;
+    private static final long CHUNK_BYTES = 16L << 20;
+    private static final int MIN_DELETED_TO_COMPACT = 1024;
+
+    /**
+     * A file mapped in fixed-size chunks of whole records, extended one chunk at a time.
+     */
+    private static final class MappedRecords {
+        private final FileChannel channel;
+        private final int recordBytes;
+        private final int recordsPerChunk;
+        private final List<MappedByteBuffer> mapped = new ArrayList<>();
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private final List<FloatBuffer> floatViews = new ArrayList<>();
+
+        private MappedRecords(FileChannel channel, int recordBytes) {
+            this.channel = channel;
+            this.recordBytes = recordBytes;
+            this.recordsPerChunk = (int) Math.max(1, CHUNK_BYTES / recordBytes);
+        }
+
+        private ByteBuffer chunk(long record) throws IOException {
+            int index = (int) (record / recordsPerChunk);
+            long chunkBytes = (long) recordsPerChunk * recordBytes;
+            while (chunks.size() <= index) {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, chunks.size() * chunkBytes, chunkBytes);
+                mapped.add(chunk);
+                chunks.add(chunk.order(ByteOrder.LITTLE_ENDIAN));
+                floatViews.add(chunk.asFloatBuffer());
+            }
+            return chunks.get(index);
+        }
+
+        private FloatBuffer floats(long record) throws IOException {
+            chunk(record);
+            return floatViews.get((int) (record / recordsPerChunk));
+        }
+
+        private int offset(long record) {
+            return (int) (record % recordsPerChunk) * recordBytes;
+        }
+
+        private void force() {
+            mapped.forEach(MappedByteBuffer::force);
+        }
+    }
+
+    /**
+     * One generation of the store's files. Index record 0 is the header: magic, dimensions, generation,
+     * entry count and the end of the text log. It is rewritten after each append, so a torn append is
+     * simply not counted. Record 1 holds the embedder's name, as a length and UTF-8 bytes.
+     */
+    private static final class Segment {
+        private final Path directory;
+        private final long generation;
+        private final FileChannel indexChannel;
+        private final FileChannel textChannel;
+        private final MappedRecords index;
+        private FileChannel vectorChannel;
+        private MappedRecords vectors;
+        private int dimensions;
+        private String embedder = "";
+        private long count;
+        private long textEnd;
+        private int deletedCount;
+
+        private Segment(Path directory, Path indexFile, long generation) throws IOException {
+            this.directory = directory;
+            this.generation = generation;
+            this.indexChannel = openChannel(indexFile);
+            this.textChannel = openChannel(directory.resolve("texts-" + generation + ".log"));
+            this.index = new MappedRecords(indexChannel, RECORD_BYTES);
+        }
+
+        private static Segment open(Path directory) throws IOException {
+            Path indexFile = directory.resolve(INDEX_FILE);
+            if (!Files.exists(indexFile)) {
+                Segment created = new Segment(directory, indexFile, 0);
+                created.writeHeader();
+                return created;
+            }
+            long generation;
+            try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(header, 0);
+                if (header.getInt(0) != MAGIC) {
+                    throw new IOException("Not a vector store index, or one from an older version: " + indexFile);
+                }
+                generation = header.getLong(8);
+            }
+            Segment segment = new Segment(directory, indexFile, generation);
+            ByteBuffer header = segment.index.chunk(0);
+            segment.dimensions = header.getInt(4);
+            segment.count = header.getLong(16);
+            segment.textEnd = header.getLong(24);
+            ByteBuffer embedderRecord = segment.index.chunk(1);
+            byte[] embedderBytes = new byte[Math.min(embedderRecord.getInt(segment.index.offset(1)), MAX_EMBEDDER_BYTES)];
+            embedderRecord.get(segment.index.offset(1) + Integer.BYTES, embedderBytes);
+            segment.embedder = new String(embedderBytes, StandardCharsets.UTF_8);
+            if (segment.dimensions > 0) {
+                segment.mapVectors();
+            }
+            for (long row = 0; row < segment.count; row++) {
+                if (segment.isDeleted(row)) {
+                    segment.deletedCount++;
+                }
+            }
+            return segment;
+        }
+
+        private static FileChannel openChannel(Path file) throws IOException {
+            return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private void mapVectors() throws IOException {
+            vectorChannel = openChannel(directory.resolve("vectors-" + generation + ".f32"));
+            vectors = new MappedRecords(vectorChannel, dimensions * Float.BYTES);
+        }
+
+        private void writeHeader() throws IOException {
+            ByteBuffer header = index.chunk(0);
+            header.putInt(0, MAGIC);
+            header.putInt(4, dimensions);
+            header.putLong(8, generation);
+            header.putLong(16, count);
+            header.putLong(24, textEnd);
+            byte[] embedderBytes = embedder.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer embedderRecord = index.chunk(1);
+            embedderRecord.putInt(index.offset(1), embedderBytes.length);
+            embedderRecord.put(index.offset(1) + Integer.BYTES, embedderBytes);
+        }
+
+        private void append(long id, long timestamp, String text, float[] embedding) throws IOException {
+            if (dimensions == 0) {
+                dimensions = embedding.length;
+                mapVectors();
+            }
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            textChannel.write(ByteBuffer.wrap(bytes), textEnd);
+
+            vectors.floats(count).put(vectors.offset(count) / Float.BYTES, embedding);
+
+            long record = count + HEADER_RECORDS;
+            ByteBuffer indexChunk = index.chunk(record);
+            int offset = index.offset(record);
+            indexChunk.putLong(offset, id);
+            indexChunk.putLong(offset + 8, timestamp);
+            indexChunk.putLong(offset + 16, textEnd);
+            indexChunk.putInt(offset + 24, bytes.length);
+            indexChunk.putInt(offset + 28, 0);
+
+            textEnd += bytes.length;
+            count++;
+            writeHeader();
+        }
+
+        private long id(long row) throws IOException {
+            return index.chunk(row + HEADER_RECORDS).getLong(index.offset(row + HEADER_RECORDS));
+        }
+
+        private boolean isDeleted(long row) throws IOException {
+            return index.chunk(row + HEADER_RECORDS).getInt(index.offset(row + HEADER_RECORDS) + 28) != 0;
+        }
+
+        private void markDeleted(long row) throws IOException {
+            index.chunk(row + HEADER_RECORDS).putInt(index.offset(row + HEADER_RECORDS) + 28, 1);
+            deletedCount++;
+        }
+
+        private void readVector(long row, float[] into) throws IOException {
+            vectors.floats(row).get(vectors.offset(row) / Float.BYTES, into);
+        }
+
+        private VectorMemoryEntry readEntry(long row) throws IOException {
+            ByteBuffer indexChunk = index.chunk(row + HEADER_RECORDS);
+            int offset = index.offset(row + HEADER_RECORDS);
+            ByteBuffer text = ByteBuffer.allocate(indexChunk.getInt(offset + 24));
+            textChannel.read(text, indexChunk.getLong(offset + 16));
+            float[] embedding = new float[dimensions];
+            readVector(row, embedding);
+            return new VectorMemoryEntry(String.valueOf(indexChunk.getLong(offset)), new String(text.array(), StandardCharsets.UTF_8),
+                    embedding, indexChunk.getLong(offset + 8));
+        }
+
+        private void force() throws IOException {
+            index.force();
+            if (vectors != null) {
+                vectors.force();
+            }
+            textChannel.force(false);
+        }
+
+        private void close() throws IOException {
+            force();
+            indexChannel.close();
+            textChannel.close();
+            if (vectorChannel != null) {
+                vectorChannel.close();
+            }
+        }
+    }
+
+    private record ScoredRow(long row, float score) {}
+
+    private final Path directory;
+    private Segment segment;
+    private float[] scratch;
+
+    public MappedVectorStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String getName() { return "mapped"; }
+
+    @Override
+    public synchronized void add(VectorMemoryEntry entry) {
+        long id = parseId(entry.id());
+        if (id < 0) {
+            throw new IllegalArgumentException("Vector store ids must be numeric: " + entry.id());
+        }
+        Segment current = segment();
+        if (current.dimensions > 0 && entry.embedding().length != current.dimensions) {
+            throw new IllegalArgumentException("Embedding has " + entry.embedding().length + " dimensions but the vector store at "
+                    + directory + " holds " + current.dimensions + ".");
+        }
+        try {
+            if (current.count > 0 && id <= current.id(current.count - 1)) {
+                throw new IllegalArgumentException("Vector store ids must increase; " + id + " is not after " + current.id(current.count - 1) + ".");
+            }
+            current.append(id, entry.timestamp(), entry.text(), entry.embedding());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to vector store " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized boolean remove(String id) {
+        long target = parseId(id);
+        Segment current = segment();
+        try {
+            long row = findRow(current, target);
+            if (row < 0 || current.isDeleted(row)) {
+                return false;
+            }
+            current.markDeleted(row);
+            if (current.deletedCount >= MIN_DELETED_TO_COMPACT && current.deletedCount > current.count - current.deletedCount) {
+                compact();
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to update vector store " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized List<VectorMemoryEntry> search(float[] unitQuery, int topK) {
+        Segment current = segment();
+        if (topK <= 0 || current.count == current.deletedCount) {
+            return List.of();
+        }
+        if (unitQuery.length != current.dimensions) {
+            throw new IllegalArgumentException("Query has " + unitQuery.length + " dimensions but the vector store holds " + current.dimensions + ".");
+        }
+        if (scratch == null || scratch.length != current.dimensions) {
+            scratch = new float[current.dimensions];
+        }
+        try {
+            PriorityQueue<ScoredRow> heap = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(ScoredRow::score));
+            for (long row = 0; row < current.count; row++) {
+                if (current.isDeleted(row)) {
+                    continue;
+                }
+                current.readVector(row, scratch);
+                float score = VectorMath.dot(scratch, unitQuery);
+                if (heap.size() < topK) {
+                    heap.add(new ScoredRow(row, score));
+                } else if (score > heap.peek().score()) {
+                    heap.poll();
+                    heap.add(new ScoredRow(row, score));
+                }
+            }
+            List<VectorMemoryEntry> best = new ArrayList<>(heap.size());
+            while (!heap.isEmpty()) {
+                best.add(current.readEntry(heap.poll().row()));
+            }
+            Collections.reverse(best);
+            return best;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to search vector store " + directory, e);
+        }
+    }
+
+    /**
+     * The name of the embedder that produced the stored vectors, or empty if none was recorded.
+     */
+    public synchronized String getEmbedder() {
+        return segment().embedder;
+    }
+
+    public synchronized void setEmbedder(String embedder) {
+        if (embedder.getBytes(StandardCharsets.UTF_8).length > MAX_EMBEDDER_BYTES) {
+            throw new IllegalArgumentException("Embedder names are limited to " + MAX_EMBEDDER_BYTES + " bytes: " + embedder);
+        }
+        Segment current = segment();
+        current.embedder = embedder;
+        try {
+            current.writeHeader();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to update vector store " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        Segment current = segment();
+        return (int) (current.count - current.deletedCount);
+    }
+
+    /**
+     * Embeddings live in the mapped files, outside the heap.
+     */
+    @Override
+    public long getEmbeddingBytes() { return 0; }
+
+    /**
+     * The live entry with this id, read from the files, or null.
+     */
+    public synchronized VectorMemoryEntry get(String id) {
+        Segment current = segment();
+        try {
+            long row = findRow(current, parseId(id));
+            return row < 0 || current.isDeleted(row) ? null : current.readEntry(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read vector store " + directory, e);
+        }
+    }
+
+    /**
+     * Ids of the live entries, oldest first.
+     */
+    public synchronized List<String> ids() {
+        Segment current = segment();
+        List<String> ids = new ArrayList<>(size());
+        try {
+            for (long row = 0; row < current.count; row++) {
+                if (!current.isDeleted(row)) {
+                    ids.add(String.valueOf(current.id(row)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read vector store " + directory, e);
+        }
+        return ids;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+    private Segment segment() {
+        if (segment == null) {
+            try {
+                Files.createDirectories(directory);
+                segment = Segment.open(directory);
+                deleteOtherGenerations(segment.generation);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open vector store " + directory, e);
+            }
+        }
+        return segment;
+    }
+
+    private static long findRow(Segment segment, long id) throws IOException {
+        long low = 0;
+        long high = segment.count - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            long midId = segment.id(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private void compact() throws IOException {
+        Segment old = segment;
+        Path temp = directory.resolve(INDEX_FILE + ".tmp");
+        Files.deleteIfExists(temp);
+        Segment compacted = new Segment(directory, temp, old.generation + 1);
+        compacted.dimensions = old.dimensions;
+        compacted.embedder = old.embedder;
+        if (compacted.dimensions > 0) {
+            compacted.mapVectors();
+        }
+        compacted.writeHeader();
+        for (long row = 0; row < old.count; row++) {
+            if (!old.isDeleted(row)) {
+                VectorMemoryEntry entry = old.readEntry(row);
+                compacted.append(Long.parseLong(entry.id()), entry.timestamp(), entry.text(), entry.embedding());
+            }
+        }
+        compacted.force();
+        // The index names its generation, so replacing it switches to the new files in one step
+        Files.move(temp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        segment = compacted;
+        old.close();
+        deleteOtherGenerations(compacted.generation);
+    }
+
+    private void deleteOtherGenerations(long generation) throws IOException {
+        String vectors = "vectors-" + generation + ".f32";
+        String texts = "texts-" + generation + ".log";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "{vectors-*.f32,texts-*.log,*.tmp}")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!name.equals(vectors) && !name.equals(texts)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
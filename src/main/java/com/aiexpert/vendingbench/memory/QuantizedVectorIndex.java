@@ -0,0 +1,205 @@
+package com.aiexpert.vendingbench.memory;
+
+import com.aiexpert.vendingbench.model.VectorMemoryEntry;
+import com.aiexpert.vendingbench.util.VectorMath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Exact-scan search over compressed embeddings. Candidates are picked with cheap quantized scores, then
+ * {@code rescoreFactor * topK} of them are rescored more precisely:
+ * <ul>
+ *   <li>{@code int8}: one signed byte per dimension with a per-vector scale (4x smaller than float);</li>
+ *   <li>{@code binary}: one sign bit per dimension compared by Hamming distance (32x smaller).</li>
+ * </ul>
+ * With a {@link MappedVectorStore} behind it, rescoring uses the full-precision embeddings in the mapped
+ * files and only the codes stay on the heap. Without one there is no full-precision copy: binary mode also
+ * keeps int8 codes to rescore with, and int8 mode ranks by its own scores.
+ */
+public class QuantizedVectorIndex implements VectorIndex {
+
+    public enum Mode { INT8, BINARY }
+
+    /**
+     * The heap-resident part of an entry. Text and timestamp are kept only when there is no store.
+     */
+    private record Coded(String id, String text, long timestamp, byte[] int8, float scale, long[] bits) {}
+
+    private record Scored(int position, float score) {}
+
+    private final Mode mode;
+    private final int rescoreFactor;
+    private final MappedVectorStore store;
+    private final List<Coded> entries = new ArrayList<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private boolean loaded;
+
+    public QuantizedVectorIndex(Mode mode, int rescoreFactor, MappedVectorStore store) {
+        this.mode = mode;
+        this.rescoreFactor = Math.max(1, rescoreFactor);
+        this.store = store;
+        this.loaded = store == null;
+    }
+
+    @Override
+    public String getName() { return mode.name().toLowerCase() + (store != null ? "+mapped" : ""); }
+
+    @Override
+    public synchronized void add(VectorMemoryEntry entry) {
+        ensureLoaded();
+        remove(entry.id());
+        if (store != null) {
+            store.add(entry);
+        }
+        positions.put(entry.id(), entries.size());
+        entries.add(encode(entry));
+    }
+
+    @Override
+    public synchronized boolean remove(String id) {
+        ensureLoaded();
+        Integer position = positions.remove(id);
+        if (position == null) {
+            return false;
+        }
+        // Swap the last entry into the hole; scan order does not matter
+        Coded last = entries.remove(entries.size() - 1);
+        if (position < entries.size()) {
+            entries.set(position, last);
+            positions.put(last.id(), position);
+        }
+        if (store != null) {
+            store.remove(id);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized List<VectorMemoryEntry> search(float[] unitQuery, int topK) {
+        ensureLoaded();
+        if (topK <= 0 || entries.isEmpty()) {
+            return List.of();
+        }
+        boolean rescore = store != null || mode == Mode.BINARY;
+        List<Scored> candidates = candidates(unitQuery, rescore ? topK * rescoreFactor : topK);
+        if (!rescore) {
+            return candidates.stream().map(candidate -> toEntry(entries.get(candidate.position()))).toList();
+        }
+        List<Scored> rescored = new ArrayList<>(candidates.size());
+        List<VectorMemoryEntry> stored = new ArrayList<>(candidates.size());
+        for (Scored candidate : candidates) {
+            Coded coded = entries.get(candidate.position());
+            if (store != null) {
+                VectorMemoryEntry full = store.get(coded.id());
+                stored.add(full);
+                rescored.add(new Scored(rescored.size(), full == null ? -Float.MAX_VALUE : VectorMath.dot(full.embedding(), unitQuery)));
+            } else {
+                stored.add(toEntry(coded));
+                rescored.add(new Scored(rescored.size(), VectorMath.dot(unitQuery, coded.int8()) * coded.scale()));
+            }
+        }
+        return best(rescored, topK).stream().map(scored -> stored.get(scored.position())).toList();
+    }
+
+    @Override
+    public synchronized int size() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getEmbeddingBytes() {
+        long bytes = 0;
+        for (Coded coded : entries) {
+            bytes += (coded.int8() != null ? coded.int8().length + Float.BYTES : 0) + (coded.bits() != null ? coded.bits().length * 8L : 0);
+        }
+        return bytes;
+    }
+
+    /**
+     * The {@code limit} best entries by quantized score, best first.
+     */
+    private List<Scored> candidates(float[] unitQuery, int limit) {
+        PriorityQueue<Scored> heap = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Scored::score));
+        long[] queryBits = mode == Mode.BINARY ? VectorMath.signBits(unitQuery) : null;
+        for (int i = 0; i < entries.size(); i++) {
+            Coded coded = entries.get(i);
+            float score = queryBits != null
+                    ? -VectorMath.hammingDistance(queryBits, coded.bits())
+                    : VectorMath.dot(unitQuery, coded.int8()) * coded.scale();
+            if (heap.size() < limit) {
+                heap.add(new Scored(i, score));
+            } else if (score > heap.peek().score()) {
+                heap.poll();
+                heap.add(new Scored(i, score));
+            }
+        }
+        return drain(heap);
+    }
+
+    private static List<Scored> best(List<Scored> scored, int limit) {
+        PriorityQueue<Scored> heap = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Scored::score));
+        for (Scored candidate : scored) {
+            if (heap.size() < limit) {
+                heap.add(candidate);
+            } else if (candidate.score() > heap.peek().score()) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        return drain(heap);
+    }
+
+    private static List<Scored> drain(PriorityQueue<Scored> heap) {
+        List<Scored> best = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            best.add(heap.poll());
+        }
+        Collections.reverse(best);
+        return best;
+    }
+
+    private Coded encode(VectorMemoryEntry entry) {
+        float[] embedding = entry.embedding();
+        // Only binary mode with a store can drop the int8 codes: the store rescores instead
+        boolean keepInt8 = mode == Mode.INT8 || store == null;
+        float scale = keepInt8 ? VectorMath.int8Scale(embedding) : 0f;
+        byte[] int8 = keepInt8 ? VectorMath.quantizeInt8(embedding, scale) : null;
+        long[] bits = mode == Mode.BINARY ? VectorMath.signBits(embedding) : null;
+        return store != null
+                ? new Coded(entry.id(), null, 0L, int8, scale, bits)
+                : new Coded(entry.id(), entry.text(), entry.timestamp(), int8, scale, bits);
+    }
+
+    /**
+     * Rebuilds an entry for the result list. Without a store the embedding is the dequantized int8 codes.
+     */
+    private VectorMemoryEntry toEntry(Coded coded) {
+        float[] embedding = new float[coded.int8().length];
+        for (int i = 0; i < embedding.length; i++) {
+            embedding[i] = coded.int8()[i] * coded.scale();
+        }
+        return new VectorMemoryEntry(coded.id(), coded.text(), embedding, coded.timestamp());
+    }
+
+    /**
+     * Codes are not persisted; the first use after a restart recomputes them from the store.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        for (String id : store.ids()) {
+            VectorMemoryEntry entry = store.get(id);
+            positions.put(id, entries.size());
+            entries.add(encode(entry));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.aiexpert.vendingbench.memory;
+
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.model.VectorMemoryEntry;
+
+import java.util.List;
+
+/**
+ * Nearest-neighbour search over vector memories. Entries must carry unit-length embeddings, so that
+ * similarity is a dot product. Implementations are not thread-safe; each session owns its own index.
+ */
+public interface VectorIndex {
+
+    String getName();
+
+    void add(VectorMemoryEntry entry);
+
+    /**
+     * @return true if an entry with this id was present.
+     */
+    boolean remove(String id);
+
+    /**
+     * The {@code topK} entries most similar to a unit-length query, best first.
+     */
+    List<VectorMemoryEntry> search(float[] unitQuery, int topK);
+
+    int size();
+
+    /**
+     * Heap bytes held for embeddings and, where there is one, the search graph. An estimate for comparing
+     * configurations, not an exact measurement.
+     */
+    long getEmbeddingBytes();
+
+    /**
+     * Builds the index a session's vector memory is configured for. {@code store} is the session's
+     * file-backed store, or null to keep vector memory on the heap.
+     */
+    static VectorIndex create(SimulationDefaults.Memory config, MappedVectorStore store) {
+        String quantization = config.getQuantization();
+        if (quantization != null && !quantization.isBlank() && !quantization.equalsIgnoreCase("none")) {
+            QuantizedVectorIndex.Mode mode = switch (quantization.toLowerCase()) {
+                case "int8" -> QuantizedVectorIndex.Mode.INT8;
+                case "binary" -> QuantizedVectorIndex.Mode.BINARY;
+                default -> throw new IllegalArgumentException("Unsupported quantization: " + quantization + ". Use none, int8 or binary.");
+            };
+            return new QuantizedVectorIndex(mode, config.getRescoreFactor(), store);
+        }
+        if (store != null) {
+            return store;
+        }
+        String name = config.getVectorIndex();
+        if (name == null || name.isBlank() || name.equalsIgnoreCase("hnsw")) {
+            // Fixed seed so a session's graph, and hence its approximate results, are reproducible
+            return new HnswVectorIndex(config.getHnswM(), config.getHnswEfConstruction(), config.getHnswEfSearch(),
+                    config.getExactSearchBelow(), 42L);
+        }
+        if (name.equalsIgnoreCase("exact")) {
+            return new BruteForceVectorIndex();
+        }
+        throw new IllegalArgumentException("Unsupported vector index: " + name + ". Use hnsw or exact.");
+    }
+}
@@ -1,5 +1,7 @@
 package com.aiexpert.vendingbench.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -7,6 +9,9 @@ import java.util.stream.Collectors;
 public class Inventory {
     private Map<String, Item> items = new ConcurrentHashMap<>();
     private double cashHeld = 0.0;
+    // Bumped on every mutation so readers can tell whether anything changed without comparing contents.
+    @JsonIgnore
+    private long version = 0;
 
     public void addOrUpdateItem(String name, int quantity, double price, double wholesaleCost) {
         items.compute(name, (k, v) -> {
@@ -19,6 +24,7 @@ public class Inventory {
                 return v;
             }
         });
+        version++;
     }
 
     public void addItem(Item itemToAdd) {
@@ -30,6 +36,7 @@ public class Inventory {
                 return existingItem;
             }
         });
+        version++;
     }
 
     public void removeItem(String itemName, int quantityToRemove) {
@@ -38,6 +45,7 @@ public class Inventory {
             item.setQuantity(Math.max(0, newQuantity));
             return item;
         });
+        version++;
 
         // --- THIS LINE WAS THE BUG. IT HAS BEEN REMOVED. ---
         // items.values().removeIf(item -> item.getQuantity() <= 0);
@@ -50,10 +58,23 @@ public class Inventory {
             .collect(Collectors.toMap(Map.Entry::getKey, e -> new Item(e.getValue())));
     }
 
+    public boolean setItemPrice(String itemName, double price) {
+        Item item = items.get(itemName);
+        if (item == null) {
+            return false;
+        }
+        item.setPrice(price);
+        version++;
+        return true;
+    }
+
     public Item getItem(String name) { return items.get(name); }
     public Map<String, Item> getItems() { return items; }
-    public void setItems(Map<String, Item> items) { this.items = items; }
+    public void setItems(Map<String, Item> items) { this.items = items; version++; }
     public double getCashHeld() { return cashHeld; }
-    public void setCashHeld(double cashHeld) { this.cashHeld = cashHeld; }
-    public void addCash(double amount) { this.cashHeld += amount; }
+    public void setCashHeld(double cashHeld) { this.cashHeld = cashHeld; version++; }
+    public void addCash(double amount) { this.cashHeld += amount; version++; }
+    @JsonIgnore
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 }
\ No newline at end of file
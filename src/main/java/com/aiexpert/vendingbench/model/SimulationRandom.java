@@ -0,0 +1,38 @@
+package com.aiexpert.vendingbench.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * All randomness used by one simulation run, derived from a single seed.
+ * Each subsystem draws from its own stream, so for example an extra supplier order
+ * does not shift the customer demand noise of later days. Two runs with the same seed
+ * (and the same agent decisions) therefore see identical environment behaviour.
+ *
+ * Not thread-safe: a run's streams must only be used from its simulation loop.
+ */
+public class SimulationRandom {
+    private final long seed;
+    private final SplittableRandom demand;
+    private final SplittableRandom supplierFailures;
+    private final SplittableRandom supplierPricing;
+    private final SplittableRandom partialShipments;
+    private final SplittableRandom deliveryDelays;
+
+    public SimulationRandom(long seed) {
+        this.seed = seed;
+        // Streams are split in a fixed order; append new ones at the end to keep existing seeds replayable.
+        SplittableRandom root = new SplittableRandom(seed);
+        this.demand = root.split();
+        this.supplierFailures = root.split();
+        this.supplierPricing = root.split();
+        this.partialShipments = root.split();
+        this.deliveryDelays = root.split();
+    }
+
+    public long getSeed() { return seed; }
+    public SplittableRandom demand() { return demand; }
+    public SplittableRandom supplierFailures() { return supplierFailures; }
+    public SplittableRandom supplierPricing() { return supplierPricing; }
+    public SplittableRandom partialShipments() { return partialShipments; }
+    public SplittableRandom deliveryDelays() { return deliveryDelays; }
+}
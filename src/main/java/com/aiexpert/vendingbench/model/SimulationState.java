@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class SimulationState {
     private int turn = 1;
@@ -18,15 +19,30 @@ public class SimulationState {
     private List<Map<String, String>> sentEmails = new ArrayList<>();
     private int totalUnitsSold = 0;
 
+    // Change counters for delta perception. The version covers this object's own fields (not the inventories,
+    // which keep their own), and emailsReceived counts every email ever added even after the inbox is cleared.
+    @JsonIgnore
+    private long version = 0;
+    @JsonIgnore
+    private long emailsReceived = 0;
+
     @JsonIgnore
     private final Map<String, Item> productCatalog;
 
+    @JsonIgnore
+    private final SimulationRandom random;
+
     @JsonIgnore
     private Map<Integer, Map<String, Integer>> pendingDeliveries = new ConcurrentHashMap<>();
 
     public SimulationState(double initialCashBalance, double dailyFee) {
+        this(initialCashBalance, dailyFee, ThreadLocalRandom.current().nextLong());
+    }
+
+    public SimulationState(double initialCashBalance, double dailyFee, long seed) {
         this.cashBalance = initialCashBalance;
         this.dailyFee = dailyFee;
+        this.random = new SimulationRandom(seed);
         
         storage.addOrUpdateItem("Chips", 50, 1.75, 0.30);
         storage.addOrUpdateItem("Candy", 50, 1.25, 0.25);
@@ -41,14 +57,33 @@ public class SimulationState {
         return productCatalog;
     }
 
+    @JsonIgnore
+    public long getSeed() {
+        return random.getSeed();
+    }
+
+    @JsonIgnore
+    public SimulationRandom getRandom() {
+        return random;
+    }
+
     public void incrementTurn() { this.turn++; }
     public void incrementDay() {
         this.day++;
         this.cashBalance -= this.dailyFee;
+        version++;
     }
 
-    public void addEmail(Map<String, String> email) { this.emailInbox.add(email); }
-    public void clearEmails() { this.emailInbox.clear(); }
+    public void addEmail(Map<String, String> email) {
+        this.emailInbox.add(email);
+        emailsReceived++;
+        version++;
+    }
+
+    public void clearEmails() {
+        this.emailInbox.clear();
+        version++;
+    }
 
     public void addSentEmail(String recipient, String body) {
         Map<String, String> sentEmail = Map.of(
@@ -57,6 +92,7 @@ public class SimulationState {
             "timestamp", Instant.now().toString()
         );
         this.sentEmails.add(sentEmail);
+        version++;
     }
 
     public void addPendingDelivery(int arrivalDay, Map<String, Integer> items) {
@@ -73,19 +109,25 @@ public class SimulationState {
     public int getTurn() { return turn; }
     public void setTurn(int turn) { this.turn = turn; }
     public int getDay() { return day; }
-    public void setDay(int day) { this.day = day; }
+    public void setDay(int day) { this.day = day; version++; }
     public double getCashBalance() { return cashBalance; }
-    public void setCashBalance(double cashBalance) { this.cashBalance = cashBalance; }
+    public void setCashBalance(double cashBalance) { this.cashBalance = cashBalance; version++; }
     public double getDailyFee() { return dailyFee; }
     public Inventory getStorage() { return storage; }
-    public void setStorage(Inventory storage) { this.storage = storage; }
+    public void setStorage(Inventory storage) { this.storage = storage; version++; }
     public Inventory getVendingMachine() { return vendingMachine; }
-    public void setVendingMachine(Inventory vendingMachine) { this.vendingMachine = vendingMachine; }
+    public void setVendingMachine(Inventory vendingMachine) { this.vendingMachine = vendingMachine; version++; }
     public List<Map<String, String>> getEmailInbox() { return emailInbox; }
-    public void setEmailInbox(List<Map<String, String>> emailInbox) { this.emailInbox = emailInbox; }
+    public void setEmailInbox(List<Map<String, String>> emailInbox) { this.emailInbox = emailInbox; version++; }
     public List<Map<String, String>> getSentEmails() { return sentEmails; }
-    public void setSentEmails(List<Map<String, String>> sentEmails) { this.sentEmails = sentEmails; }
+    public void setSentEmails(List<Map<String, String>> sentEmails) { this.sentEmails = sentEmails; version++; }
     public int getTotalUnitsSold() { return totalUnitsSold; }
-    public void setTotalUnitsSold(int totalUnitsSold) { this.totalUnitsSold = totalUnitsSold; }
+    public void setTotalUnitsSold(int totalUnitsSold) { this.totalUnitsSold = totalUnitsSold; version++; }
     public Map<Integer, Map<String, Integer>> getPendingDeliveries() { return pendingDeliveries; }
+    @JsonIgnore
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+    @JsonIgnore
+    public long getEmailsReceived() { return emailsReceived; }
+    public void setEmailsReceived(long emailsReceived) { this.emailsReceived = emailsReceived; }
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package com.aiexpert.vendingbench.service;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Micro-batching front end for an embeddings API. Texts requested within {@code window} of each other
+ * (up to {@code maxBatchSize}) go out as one multi-input call, and a text already waiting or in flight
+ * shares that request instead of adding another. Each batcher times its window on its own thread:
+ * closing a batcher while its flush runs on the shared parallel scheduler could lose another
+ * batcher's window timer, leaving its requests waiting forever.
+ */
+public class EmbeddingBatcher {
+
+    private record Pending(String text, Sinks.One<float[]> result) {}
+
+    private final Function<List<String>, Mono<List<float[]>>> embedBatch;
+    private final Sinks.Many<Pending> queue = Sinks.many().unicast().onBackpressureBuffer();
+    private final Map<String, Sinks.One<float[]>> inFlight = new ConcurrentHashMap<>();
+    private final Scheduler timer;
+    private final Disposable subscription;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedTexts = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final AtomicLong sharedRequests = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    public EmbeddingBatcher(Function<List<String>, Mono<List<float[]>>> embedBatch, int maxBatchSize, Duration window, int maxConcurrentBatches) {
+        this.embedBatch = embedBatch;
+        this.timer = Schedulers.newSingle("embedding-batcher", true);
+        this.subscription = queue.asFlux()
+                .bufferTimeout(Math.max(1, maxBatchSize), window, timer)
+                .flatMap(this::send, Math.max(1, maxConcurrentBatches))
+                .subscribe();
+    }
+
+    /**
+     * The embedding of {@code text}, completed when the batch it joins returns.
+     */
+    public Mono<float[]> embed(String text) {
+        Sinks.One<float[]> created = Sinks.one();
+        Sinks.One<float[]> existing = inFlight.putIfAbsent(text, created);
+        if (existing != null) {
+            sharedRequests.incrementAndGet();
+            return existing.asMono();
+        }
+        // The unicast sink rejects concurrent emissions, so callers from different threads take turns
+        synchronized (queue) {
+            Sinks.EmitResult result = queue.tryEmitNext(new Pending(text, created));
+            if (result.isFailure()) {
+                inFlight.remove(text, created);
+                return Mono.error(new IllegalStateException("Embedding batcher is closed (" + result + ")."));
+            }
+        }
+        return created.asMono();
+    }
+
+    public Map<String, Object> getStats() {
+        long batchCount = batches.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batches", batchCount);
+        stats.put("texts", batchedTexts.get());
+        stats.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) batchedTexts.get() / batchCount);
+        stats.put("largestBatch", largestBatch.get());
+        stats.put("sharedRequests", sharedRequests.get());
+        stats.put("failedBatches", failedBatches.get());
+        return stats;
+    }
+
+    public void close() {
+        subscription.dispose();
+        timer.dispose();
+        inFlight.values().forEach(sink -> sink.tryEmitError(new IllegalStateException("Embedding batcher closed.")));
+        inFlight.clear();
+    }
+
+    private Mono<Void> send(List<Pending> batch) {
+        List<String> texts = new ArrayList<>(batch.size());
+        batch.forEach(pending -> texts.add(pending.text()));
+        batches.incrementAndGet();
+        batchedTexts.addAndGet(batch.size());
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+        return Mono.defer(() -> embedBatch.apply(texts))
+                .defaultIfEmpty(List.of())
+                .doOnNext(embeddings -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        Pending pending = batch.get(i);
+                        inFlight.remove(pending.text(), pending.result());
+                        if (i < embeddings.size() && embeddings.get(i) != null) {
+                            pending.result().tryEmitValue(embeddings.get(i));
+                        } else {
+                            pending.result().tryEmitError(new IllegalStateException("Embeddings response is missing input " + i + "."));
+                        }
+                    }
+                })
+                .doOnError(error -> {
+                    failedBatches.incrementAndGet();
+                    for (Pending pending : batch) {
+                        inFlight.remove(pending.text(), pending.result());
+                        pending.result().tryEmitError(error);
+                    }
+                })
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+}
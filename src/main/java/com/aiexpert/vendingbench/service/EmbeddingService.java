@@ -1,81 +1,222 @@
 package com.aiexpert.vendingbench.service;
 
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.llm.LLMHttpClients;
+import com.aiexpert.vendingbench.llm.LLMResponseCache;
+import com.aiexpert.vendingbench.llm.resilience.ResilientLLMService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Embeddings for vector memory, shared by all sessions. Each call names the calling session's OpenAI key.
+ * Results are cached by model and text hash, and cache misses from concurrent sessions are micro-batched
+ * into multi-input API calls, one batcher per API key, so sessions with different keys are never mixed.
+ * Only keyless sessions embed locally: a failed API call fails the write or search rather than returning
+ * a local embedding, which would land in a different vector space from the session's other memories.
+ */
 @Service
 public class EmbeddingService {
+    private final WebClient webClient;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private String apiKey;
+    private final SimulationDefaults.Embeddings config;
+    private final SimulationDefaults.Resilience retryConfig;
+    private final LocalTextEmbedder localEmbedder;
+    private final Map<String, float[]> cache;
+    private final Map<String, EmbeddingBatcher> batchers = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
     private final String model = "text-embedding-3-small";
 
-    public void configure(String openaiApiKey) {
-        this.apiKey = openaiApiKey;
+    public EmbeddingService(LLMHttpClients httpClients, SimulationDefaults defaults) {
+        this.webClient = httpClients.forProvider(LLMHttpClients.OPENAI);
+        this.config = defaults.getEmbeddings();
+        this.retryConfig = defaults.getResilience();
+        this.localEmbedder = new LocalTextEmbedder(config.getLocalDimensions());
+        int maxEntries = config.getCacheEntries();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Names the vector space that {@code createEmbeddings} uses for this key: the API model, or the
+     * local embedder and its dimensions. Vectors from different embedders must not be compared.
+     */
+    public String embedderFor(String apiKey) {
+        return apiKey == null || apiKey.isBlank() ? "local-" + config.getLocalDimensions() : model;
+    }
+
+    public float[] createEmbedding(String apiKey, String text) {
+        return createEmbeddings(apiKey, List.of(text)).get(0);
     }
 
-    public float[] createEmbedding(String text) {
+    /**
+     * Embeddings of {@code texts}, in order. Every cache miss is queued before any result is awaited, so
+     * the misses share batched API calls.
+     * @throws IllegalStateException when the API call for a cache miss fails after its retries.
+     */
+    public List<float[]> createEmbeddings(String apiKey, List<String> texts) {
         if (apiKey == null || apiKey.isBlank()) {
-            // Return dummy embedding if no API key (for testing)
-            return createDummyEmbedding(text);
+            // Offline runs embed locally
+            return texts.stream().map(localEmbedder::embed).toList();
+        }
+
+        float[][] embeddings = new float[texts.size()][];
+        String[] cacheKeys = new String[texts.size()];
+        List<Mono<float[]>> requests = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            cacheKeys[i] = LLMResponseCache.key(LLMHttpClients.OPENAI, model, texts.get(i));
+            float[] cached;
+            synchronized (cache) {
+                cached = cache.get(cacheKeys[i]);
+            }
+            if (cached != null) {
+                hits.incrementAndGet();
+                embeddings[i] = cached.clone();
+                requests.add(null);
+            } else {
+                misses.incrementAndGet();
+                requests.add(batcherFor(apiKey).embed(texts.get(i)));
+            }
         }
 
-        WebClient webClient = WebClient.builder()
-                .baseUrl("https://api.openai.com/v1/embeddings")
-                .defaultHeader("Authorization", "Bearer " + this.apiKey)
-                .build();
+        for (int i = 0; i < texts.size(); i++) {
+            if (requests.get(i) == null) {
+                continue;
+            }
+            try {
+                float[] embedding = requests.get(i).block(Duration.ofSeconds(config.getTimeoutSeconds()));
+                if (config.getCacheEntries() > 0) {
+                    synchronized (cache) {
+                        cache.put(cacheKeys[i], embedding);
+                    }
+                }
+                embeddings[i] = embedding.clone();
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                throw new IllegalStateException("Embedding API call failed: " + e.getMessage(), e);
+            }
+        }
+        return Arrays.asList(embeddings);
+    }
 
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (cache) {
+            stats.put("cacheEntries", cache.size());
+        }
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("failures", failures.get());
+        long batches = 0;
+        long texts = 0;
+        long largestBatch = 0;
+        long shared = 0;
+        for (EmbeddingBatcher batcher : batchers.values()) {
+            Map<String, Object> batcherStats = batcher.getStats();
+            batches += (long) batcherStats.get("batches");
+            texts += (long) batcherStats.get("texts");
+            largestBatch = Math.max(largestBatch, (long) batcherStats.get("largestBatch"));
+            shared += (long) batcherStats.get("sharedRequests");
+        }
+        stats.put("apiCalls", batches);
+        stats.put("averageBatchSize", batches == 0 ? 0.0 : (double) texts / batches);
+        stats.put("largestBatch", largestBatch);
+        stats.put("sharedRequests", shared);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchers.values().forEach(EmbeddingBatcher::close);
+        batchers.clear();
+    }
+
+    private EmbeddingBatcher batcherFor(String key) {
+        return batchers.computeIfAbsent(key, k -> new EmbeddingBatcher(texts -> requestEmbeddings(k, texts).retryWhen(retries()),
+                config.getMaxBatchSize(), Duration.ofMillis(config.getBatchWindowMs()), config.getMaxConcurrentBatches()));
+    }
+
+    // Transient failures are retried with the providers' backoff settings
+    private Retry retries() {
+        return Retry.backoff(retryConfig.getMaxRetries(), Duration.ofMillis(Math.max(retryConfig.getInitialBackoffMs(), 1)))
+                .maxBackoff(Duration.ofMillis(Math.max(retryConfig.getMaxBackoffMs(), 1)))
+                .jitter(0.5)
+                .filter(ResilientLLMService::isRetryable)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    // One multi-input API call; overridden in tests
+    Mono<List<float[]>> requestEmbeddings(String key, List<String> texts) {
         Map<String, Object> requestBody = Map.of(
             "model", model,
-            "input", text
+            "input", texts
         );
 
+        return webClient.post()
+                .uri("/embeddings")
+                .header("Authorization", "Bearer " + key)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class)
+                .map(this::parseEmbeddings);
+    }
+
+    private List<float[]> parseEmbeddings(String response) {
         try {
-            String response = webClient.post()
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode rootNode = objectMapper.readTree(response);
-            JsonNode embeddingNode = rootNode.at("/data/0/embedding");
-            
-            float[] embedding = new float[embeddingNode.size()];
-            for (int i = 0; i < embeddingNode.size(); i++) {
-                embedding[i] = (float) embeddingNode.get(i).asDouble();
+            JsonNode dataNode = objectMapper.readTree(response).path("data");
+            List<float[]> embeddings = new ArrayList<>(dataNode.size());
+            for (int i = 0; i < dataNode.size(); i++) {
+                embeddings.add(null);
+            }
+            for (JsonNode item : dataNode) {
+                // Results carry the position of their input; do not rely on response order
+                int index = item.path("index").asInt(embeddings.indexOf(null));
+                JsonNode embeddingNode = item.path("embedding");
+                float[] embedding = new float[embeddingNode.size()];
+                for (int i = 0; i < embeddingNode.size(); i++) {
+                    embedding[i] = (float) embeddingNode.get(i).asDouble();
+                }
+                embeddings.set(index, embedding);
             }
-            return embedding;
+            return embeddings;
         } catch (Exception e) {
-            System.err.println("Embedding API call failed: " + e.getMessage());
-            return createDummyEmbedding(text);
+            throw new IllegalStateException("Unreadable embeddings response: " + e.getMessage(), e);
         }
     }
 
-    private float[] createDummyEmbedding(String text) {
-        // Simple hash-based dummy embedding for testing without API key
-        int hash = text.hashCode();
-        float[] embedding = new float[1536]; // Same dimension as text-embedding-3-small
-        for (int i = 0; i < embedding.length; i++) {
-            embedding[i] = (float) Math.sin(hash + i) * 0.1f;
-        }
-        return embedding;
-    }
-
     public static double cosineSimilarity(float[] vectorA, float[] vectorB) {
         double dotProduct = 0.0;
         double normA = 0.0;
         double normB = 0.0;
-        
+
         for (int i = 0; i < vectorA.length && i < vectorB.length; i++) {
             dotProduct += vectorA[i] * vectorB[i];
-            normA += Math.pow(vectorA[i], 2);
-            normB += Math.pow(vectorB[i], 2);
+            normA += vectorA[i] * vectorA[i];
+            normB += vectorB[i] * vectorB[i];
         }
-        
+
         return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+package com.aiexpert.vendingbench.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Offline text embedder for runs without an embeddings API. Each text becomes a bag of hashed features
+ * (words, word pairs and the character trigrams of each word) with sublinear term frequency, projected into
+ * a fixed number of dimensions with signed feature hashing. Texts sharing words, or word stems through their
+ * trigrams, end up with a high cosine similarity; unrelated texts land near zero.
+ * <p>
+ * There is no corpus to learn document frequencies from, so fixed weights stand in for IDF: common English
+ * function words count for little, and word pairs and trigrams add smaller amounts of supporting evidence.
+ * Embedding a short memory takes a few microseconds and is fully deterministic.
+ */
+public class LocalTextEmbedder {
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float STOPWORD_WEIGHT = 0.1f;
+    private static final float BIGRAM_WEIGHT = 0.6f;
+    private static final float TRIGRAM_WEIGHT = 0.25f;
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "the", "and", "or", "but", "if", "then", "of", "to", "in", "on", "at", "by", "for", "with",
+            "from", "as", "is", "are", "was", "were", "be", "been", "it", "its", "this", "that", "these", "those",
+            "i", "we", "you", "they", "he", "she", "my", "our", "your", "their", "me", "us", "them", "so", "not",
+            "no", "do", "did", "does", "have", "has", "had", "will", "would", "should", "can", "could", "there",
+            "what", "which", "who", "when", "where", "how", "all", "any", "some", "more", "most", "very", "just");
+
+    private final int dimensions;
+
+    public LocalTextEmbedder(int dimensions) {
+        if (dimensions < 16) {
+            throw new IllegalArgumentException("Local embeddings need at least 16 dimensions.");
+        }
+        this.dimensions = dimensions;
+    }
+
+    public int getDimensions() { return dimensions; }
+
+    public float[] embed(String text) {
+        List<String> words = tokenize(text);
+        Map<String, Float> weights = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            boolean stopword = STOPWORDS.contains(word);
+            addFeature(counts, weights, "w:" + word, stopword ? STOPWORD_WEIGHT : WORD_WEIGHT);
+            if (i > 0 && !(stopword && STOPWORDS.contains(words.get(i - 1)))) {
+                addFeature(counts, weights, "b:" + words.get(i - 1) + " " + word, BIGRAM_WEIGHT);
+            }
+            if (!stopword && word.length() > 3) {
+                String bounded = "^" + word + "$";
+                for (int start = 0; start + 3 <= bounded.length(); start++) {
+                    addFeature(counts, weights, "c:" + bounded.substring(start, start + 3), TRIGRAM_WEIGHT);
+                }
+            }
+        }
+
+        float[] embedding = new float[dimensions];
+        for (Map.Entry<String, Integer> feature : counts.entrySet()) {
+            // Sublinear term frequency: repeating a word adds evidence, but less and less
+            float value = (float) (1.0 + Math.log(feature.getValue())) * weights.get(feature.getKey());
+            long hash = hash(feature.getKey());
+            int bucket = (int) Long.remainderUnsigned(hash >>> 1, dimensions);
+            // The sign bit keeps colliding features from adding up systematically
+            embedding[bucket] += (hash & 1L) == 0 ? value : -value;
+        }
+        return embedding;
+    }
+
+    private static void addFeature(Map<String, Integer> counts, Map<String, Float> weights, String feature, float weight) {
+        counts.merge(feature, 1, Integer::sum);
+        weights.putIfAbsent(feature, weight);
+    }
+
+    /**
+     * Lower-cased runs of letters and digits; a decimal point inside a number is kept, so "$1.50" is "1.50".
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            boolean decimalPoint = c == '.' && start >= 0 && i + 1 < lower.length()
+                    && Character.isDigit(lower.charAt(i - 1)) && Character.isDigit(lower.charAt(i + 1));
+            if (Character.isLetterOrDigit(c) || decimalPoint) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * 64-bit FNV-1a followed by a final avalanche, so nearby strings spread over all buckets.
+     */
+    private static long hash(String feature) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < feature.length(); i++) {
+            hash ^= feature.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,40 +1,101 @@
 package com.aiexpert.vendingbench.service;
 
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.logging.EventLogger;
+import com.aiexpert.vendingbench.memory.MappedVectorStore;
+import com.aiexpert.vendingbench.memory.VectorIndex;
 import com.aiexpert.vendingbench.model.VectorMemoryEntry;
-import org.springframework.stereotype.Service;
+import com.aiexpert.vendingbench.util.VectorMath;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
-@Service
 public class MemoryManager {
     private StringBuilder scratchpad;
     private final Map<String, String> keyValueStore;
-    private final List<VectorMemoryEntry> vectorDatabase;
+    // Entries hold unit-length embeddings, so cosine similarity is a dot product
+    private final VectorIndex vectorIndex;
+    private final MappedVectorStore vectorStore; // Null when vector memory lives on the heap
+    private Deque<String> vectorIds; // Oldest first, for eviction; loaded on first write
     private final EmbeddingService embeddingService;
-    
-    private static final int MAX_VECTOR_ENTRIES = 1000;
+    private volatile String embeddingApiKey;
+    private String indexEmbedder; // The embedder of the stored vectors, empty before any; loaded on first use
+    private final int maxVectorEntries;
     private long nextId = 1;
+    private volatile long vectorSearches;
+    private volatile long vectorSearchNanos;
 
-    public MemoryManager(EmbeddingService embeddingService) {
+    // Write-behind ingestion: writes are acknowledged once queued, and embedded and indexed by one
+    // background thread per session. Searches wait for every write acknowledged before them. The thread
+    // exits once it has been idle for ingestIdleMs and the next write starts another.
+    private record PendingWrite(String id, String text) {}
+
+    private record Embedded(String embedder, List<float[]> vectors) {}
+
+    private static final int MAX_INGEST_BATCH = 256;
+    private static final Duration SEARCH_WAIT_LIMIT = Duration.ofSeconds(60);
+    private static final Duration CLOSE_WAIT_LIMIT = Duration.ofSeconds(30);
+
+    private final String sessionId;
+    private final EventLogger logger;
+    private final int ingestQueueCapacity;
+    private final long ingestIdleMs;
+    private final BlockingQueue<PendingWrite> ingestQueue; // Null when writes are embedded on the caller's thread
+    private final ReentrantLock vectorLock = new ReentrantLock(); // Guards the index, ids and ingestion state
+    private final Condition ingested = vectorLock.newCondition();
+    private Thread ingestThread; // Started by the first queued write, null while idle
+    private long reservedWrites; // Ids handed to queued writers, including those not yet in the queue
+    private volatile long acknowledgedWrites;
+    private volatile long appliedWrites;
+    private volatile long maxPendingWrites;
+    private volatile long searchesAwaitingWrites;
+    private boolean closed;
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final AtomicLong blockedWrites = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+
+    public MemoryManager(EmbeddingService embeddingService, SimulationDefaults.Memory config, String sessionId, EventLogger logger) {
         this.scratchpad = new StringBuilder();
         this.keyValueStore = new ConcurrentHashMap<>();
-        this.vectorDatabase = new ArrayList<>();
+        this.vectorStore = config.getDirectory() == null || config.getDirectory().isBlank()
+                ? null : new MappedVectorStore(Path.of(config.getDirectory(), sessionId));
+        this.vectorIndex = VectorIndex.create(config, vectorStore);
         this.embeddingService = embeddingService;
+        this.maxVectorEntries = config.getMaxVectorEntries();
+        this.sessionId = sessionId;
+        this.logger = logger;
+        this.ingestQueueCapacity = config.getIngestQueueCapacity();
+        this.ingestIdleMs = Math.max(1, config.getIngestIdleMs());
+        this.ingestQueue = ingestQueueCapacity > 0 ? new ArrayBlockingQueue<>(ingestQueueCapacity) : null;
     }
 
+    /**
+     * Sets this session's OpenAI key for embeddings; without one, memories are embedded locally. With a
+     * key, a failed embedding call fails the write or search instead of embedding locally; failed writes are counted.
+     */
     public void configureEmbeddings(String openaiApiKey) {
-        embeddingService.configure(openaiApiKey);
+        this.embeddingApiKey = openaiApiKey;
     }
 
     public void reset() {
         this.scratchpad = new StringBuilder();
         this.keyValueStore.clear();
-        // Vector database can optionally persist across resets for long-term memory
-        // this.vectorDatabase.clear();
+        // Vector memory persists across resets, and across restarts when it is stored on disk
     }
 
     // --- Scratchpad Methods ---
@@ -61,39 +122,346 @@ public class MemoryManager {
     }
 
     // --- Vector Database Methods ---
+
+    /**
+     * Stores {@code text} and returns its id. With an ingestion queue the text is embedded and indexed in
+     * the background; when the queue is full the caller waits for space rather than growing it.
+     */
     public String storeInVectorDB(String text) {
-        String id = String.valueOf(nextId++);
-        float[] embedding = embeddingService.createEmbedding(text);
-        
-        VectorMemoryEntry entry = new VectorMemoryEntry(id, text, embedding);
-        vectorDatabase.add(entry);
-        
-        // Prune old entries if we exceed maximum
-        if (vectorDatabase.size() > MAX_VECTOR_ENTRIES) {
-            vectorDatabase.remove(0);
+        long started = System.nanoTime();
+        String id;
+        if (ingestQueue == null) {
+            Embedded embedded;
+            try {
+                embedded = embed(List.of(text));
+            } catch (RuntimeException e) {
+                failedWrites.incrementAndGet();
+                throw e;
+            }
+            float[] embedding = VectorMath.normalize(embedded.vectors().get(0));
+            vectorLock.lock();
+            try {
+                try {
+                    useEmbedder(embedded.embedder());
+                } catch (IllegalStateException e) {
+                    failedWrites.incrementAndGet();
+                    throw e;
+                }
+                id = nextVectorId();
+                index(id, text, embedding);
+                acknowledgedWrites++;
+                appliedWrites++;
+            } finally {
+                vectorLock.unlock();
+            }
+        } else {
+            // Writers take turns so ids reach the queue, and so the index, in the order they were handed out
+            synchronized (ingestQueue) {
+                PendingWrite write;
+                vectorLock.lock();
+                try {
+                    if (closed) {
+                        throw new IllegalStateException("Vector memory is closed.");
+                    }
+                    write = new PendingWrite(nextVectorId(), text);
+                    reservedWrites++;
+                    startIngestThread();
+                } finally {
+                    vectorLock.unlock();
+                }
+                try {
+                    if (!ingestQueue.offer(write)) {
+                        blockedWrites.incrementAndGet();
+                        ingestQueue.put(write);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    vectorLock.lock();
+                    try {
+                        reservedWrites--;
+                    } finally {
+                        vectorLock.unlock();
+                    }
+                    throw new IllegalStateException("Interrupted while waiting for room in the vector memory queue.");
+                }
+                vectorLock.lock();
+                try {
+                    acknowledgedWrites++;
+                    maxPendingWrites = Math.max(maxPendingWrites, acknowledgedWrites - appliedWrites);
+                } finally {
+                    vectorLock.unlock();
+                }
+                id = write.id();
+            }
         }
-        
+        writeNanos.addAndGet(System.nanoTime() - started);
+        writes.incrementAndGet();
         return id;
     }
 
+    /**
+     * Searches after every write acknowledged before the call has been indexed; the query is embedded
+     * while those writes are still being ingested.
+     */
     public List<String> searchVectorDB(String query, int topK) {
-        if (vectorDatabase.isEmpty()) {
+        long acknowledged = acknowledgedWrites;
+        if (getVectorDBSize() == 0) {
             return List.of("Vector database is empty.");
         }
         
-        float[] queryEmbedding = embeddingService.createEmbedding(query);
+        Embedded embedded = embed(List.of(query));
+        float[] queryEmbedding = VectorMath.normalize(embedded.vectors().get(0));
         
-        return vectorDatabase.stream()
-                .sorted((a, b) -> Double.compare(
-                    EmbeddingService.cosineSimilarity(b.embedding(), queryEmbedding),
-                    EmbeddingService.cosineSimilarity(a.embedding(), queryEmbedding)
-                ))
-                .limit(topK)
-                .map(entry -> entry.text())
-                .collect(Collectors.toList());
+        vectorLock.lock();
+        try {
+            checkEmbedder(embedded.embedder());
+            if (appliedWrites < acknowledged) {
+                searchesAwaitingWrites++;
+                if (!awaitIngested(acknowledged, SEARCH_WAIT_LIMIT)) {
+                    System.err.println("Searching vector memory before " + (acknowledged - appliedWrites) + " earlier writes were indexed.");
+                }
+            }
+            long started = System.nanoTime();
+            List<VectorMemoryEntry> nearest = vectorIndex.search(queryEmbedding, topK);
+            vectorSearchNanos += System.nanoTime() - started;
+            vectorSearches++;
+            return nearest.stream()
+                    .map(VectorMemoryEntry::text)
+                    .toList();
+        } finally {
+            vectorLock.unlock();
+        }
     }
 
+    /**
+     * Entries stored so far, counting acknowledged writes that are still waiting to be indexed.
+     */
     public int getVectorDBSize() {
-        return vectorDatabase.size();
+        long pending = acknowledgedWrites - appliedWrites;
+        return (int) Math.min(maxVectorEntries, vectorIndex.size() + pending);
+    }
+
+    /**
+     * Lets queued writes finish, up to a limit, then stops ingestion and closes the store.
+     */
+    public void close() {
+        Thread thread;
+        vectorLock.lock();
+        try {
+            closed = true;
+            if (!awaitIngested(acknowledgedWrites, CLOSE_WAIT_LIMIT)) {
+                System.err.println("Closing vector memory with " + (acknowledgedWrites - appliedWrites) + " writes not yet indexed.");
+            }
+            thread = ingestThread;
+        } finally {
+            vectorLock.unlock();
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(CLOSE_WAIT_LIMIT.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (vectorStore != null) {
+            try {
+                vectorStore.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close vector memory store: " + e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getVectorMetrics() {
+        long writeCount = writes.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("index", vectorIndex.getName());
+        metrics.put("entries", vectorIndex.size());
+        metrics.put("embeddingBytes", vectorIndex.getEmbeddingBytes());
+        metrics.put("searches", vectorSearches);
+        metrics.put("averageSearchMicros", vectorSearches == 0 ? 0.0 : vectorSearchNanos / 1000.0 / vectorSearches);
+        metrics.put("writes", writeCount);
+        metrics.put("averageWriteMicros", writeCount == 0 ? 0.0 : writeNanos.get() / 1000.0 / writeCount);
+        metrics.put("queueCapacity", ingestQueue == null ? 0 : ingestQueueCapacity);
+        metrics.put("pendingWrites", acknowledgedWrites - appliedWrites);
+        metrics.put("maxPendingWrites", maxPendingWrites);
+        metrics.put("blockedWrites", blockedWrites.get());
+        metrics.put("searchesAwaitingWrites", searchesAwaitingWrites);
+        metrics.put("failedWrites", failedWrites.get());
+        metrics.put("ingestThreadRunning", isIngestThreadRunning());
+        return metrics;
+    }
+
+    private boolean isIngestThreadRunning() {
+        vectorLock.lock();
+        try {
+            return ingestThread != null;
+        } finally {
+            vectorLock.unlock();
+        }
+    }
+
+    private void startIngestThread() {
+        if (ingestThread == null) {
+            ingestThread = new Thread(this::runIngestion, "vector-ingest-" + sessionId);
+            ingestThread.setDaemon(true);
+            ingestThread.start();
+        }
+    }
+
+    private void runIngestion() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (true) {
+            PendingWrite first;
+            try {
+                first = ingestQueue.poll(ingestIdleMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                if (stopIngestThreadIfIdle()) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            // Writes that piled up while the last batch was embedded share the next embedding calls
+            ingestQueue.drainTo(batch, MAX_INGEST_BATCH - 1);
+            applyWrites(batch);
+            batch.clear();
+        }
+    }
+
+    // Exits only when every reserved write has been applied, so a writer that found this thread
+    // still running is never left with nobody to take its write
+    private boolean stopIngestThreadIfIdle() {
+        vectorLock.lock();
+        try {
+            if (appliedWrites < reservedWrites) {
+                return false;
+            }
+            ingestThread = null;
+            return true;
+        } finally {
+            vectorLock.unlock();
+        }
+    }
+
+    private void applyWrites(List<PendingWrite> batch) {
+        List<float[]> embeddings = null;
+        String embedder = null;
+        try {
+            Embedded embedded = embed(batch.stream().map(PendingWrite::text).toList());
+            embeddings = embedded.vectors();
+            embedder = embedded.embedder();
+        } catch (RuntimeException e) {
+            // The writers were already acknowledged, so the session's event log is where the failure shows
+            logger.log("ERROR", "MemoryManager", "Failed to store " + batch.size() + " vector memory writes: " + e.getMessage());
+        }
+        vectorLock.lock();
+        try {
+            if (embeddings != null) {
+                try {
+                    useEmbedder(embedder);
+                } catch (IllegalStateException e) {
+                    logger.log("ERROR", "MemoryManager", "Failed to store " + batch.size() + " vector memory writes: " + e.getMessage());
+                    embeddings = null;
+                }
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                PendingWrite write = batch.get(i);
+                try {
+                    if (embeddings == null) {
+                        failedWrites.incrementAndGet();
+                        continue;
+                    }
+                    index(write.id(), write.text(), VectorMath.normalize(embeddings.get(i)));
+                } catch (RuntimeException e) {
+                    failedWrites.incrementAndGet();
+                    logger.log("ERROR", "MemoryManager", "Failed to index vector memory " + write.id() + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            // Failed writes count as applied too, so searches waiting on them are released
+            appliedWrites += batch.size();
+            ingested.signalAll();
+            vectorLock.unlock();
+        }
+    }
+
+    // One key for the whole call, so the vectors and the embedder name match even if the key changes meanwhile
+    private Embedded embed(List<String> texts) {
+        String key = embeddingApiKey;
+        return new Embedded(embeddingService.embedderFor(key), embeddingService.createEmbeddings(key, texts));
+    }
+
+    // Caller holds vectorLock. Vectors from different embedders are not comparable, so a memory that
+    // already holds one embedder's vectors refuses another's.
+    private void checkEmbedder(String embedder) {
+        if (indexEmbedder == null) {
+            indexEmbedder = vectorStore != null ? vectorStore.getEmbedder() : "";
+        }
+        if (!indexEmbedder.isEmpty() && !indexEmbedder.equals(embedder) && vectorIndex.size() > 0) {
+            throw new IllegalStateException("Vector memory holds " + indexEmbedder + " embeddings, but this session embeds with "
+                    + embedder + ". Use the same embedding key as the run that stored them, or a new session.");
+        }
+    }
+
+    // Caller holds vectorLock
+    private void useEmbedder(String embedder) {
+        checkEmbedder(embedder);
+        if (!embedder.equals(indexEmbedder)) {
+            indexEmbedder = embedder;
+            if (vectorStore != null) {
+                vectorStore.setEmbedder(embedder);
+            }
+        }
+    }
+
+    // Caller holds vectorLock
+    private void index(String id, String text, float[] embedding) {
+        Deque<String> ids = vectorIds();
+        vectorIndex.add(new VectorMemoryEntry(id, text, embedding));
+        ids.addLast(id);
+
+        // Prune old entries if we exceed maximum
+        if (ids.size() > maxVectorEntries) {
+            vectorIndex.remove(ids.removeFirst());
+        }
+    }
+
+    // Caller holds vectorLock
+    private boolean awaitIngested(long target, Duration limit) {
+        long remaining = limit.toNanos();
+        try {
+            while (appliedWrites < target && remaining > 0) {
+                remaining = ingested.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return appliedWrites >= target;
+    }
+
+    // Caller holds vectorLock
+    private String nextVectorId() {
+        vectorIds();
+        return String.valueOf(nextId++);
+    }
+
+    // Caller holds vectorLock
+    private Deque<String> vectorIds() {
+        if (vectorIds == null) {
+            vectorIds = new ArrayDeque<>();
+            if (vectorStore != null) {
+                // Continue numbering after the memories left by earlier runs
+                for (String id : vectorStore.ids()) {
+                    vectorIds.addLast(id);
+                    nextId = Math.max(nextId, Long.parseLong(id) + 1);
+                }
+            }
+        }
+        return vectorIds;
     }
-}
\ No newline at end of file
+}
@@ -2,14 +2,12 @@ package com.aiexpert.vendingbench.service;
 
 import com.aiexpert.vendingbench.agent.Action;
 import com.aiexpert.vendingbench.config.SimulationDefaults;
-import org.springframework.stereotype.Service;
 
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
 
-@Service
 public class SafetyService {
 
     private final SimulationDefaults defaults;
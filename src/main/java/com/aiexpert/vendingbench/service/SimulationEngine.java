@@ -1,10 +1,15 @@
 package com.aiexpert.vendingbench.service;
 
 import com.aiexpert.vendingbench.agent.Action;
+import com.aiexpert.vendingbench.agent.HistorySummarizer;
 import com.aiexpert.vendingbench.agent.MainAgent;
+import com.aiexpert.vendingbench.agent.StateEncoder;
 import com.aiexpert.vendingbench.agent.SubAgent;
 import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.controller.dto.SimulationStartRequest;
 import com.aiexpert.vendingbench.environment.CustomerSimulation;
+import com.aiexpert.vendingbench.llm.LLMHttpClients;
+import com.aiexpert.vendingbench.llm.LLMService;
 import com.aiexpert.vendingbench.llm.LLMServiceFactory;
 import com.aiexpert.vendingbench.logging.EventLogger;
 import com.aiexpert.vendingbench.model.Item;
@@ -15,26 +20,39 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
-@Service
+/**
+ * Runs a single simulation session. Instances are created and owned by
+ * {@link SimulationSessionRegistry}; each one has its own state, agents, memory,
+ * safety monitor and event log, so many sessions can run side by side in one JVM.
+ */
 public class SimulationEngine {
 
     private static final Logger verboseJsonLogger = LoggerFactory.getLogger("VerboseJsonLogger");
 
     public static final String IDLE_TOOL = "idle";
     public static final String HUMAN_HELP_TOOL = "ask_for_human_help";
+    private static final String WAIT_TOOL = "wait_for_next_day";
     private static final long HUMAN_HELP_TIMEOUT_MS = 30000;
+    private static final long LOOP_STOP_TIMEOUT_MS = 2000;
 
+    private final String sessionId;
     private final LLMServiceFactory llmServiceFactory;
     private final SimulationDefaults defaults;
     private final CustomerSimulation customerSimulation;
@@ -45,21 +63,28 @@ public class SimulationEngine {
     private final ToolService toolService;
     private final SafetyService safetyService;
     private final StateCloner stateCloner;
+    private final ThreadFactory loopThreadFactory;
+    private final ScheduledExecutorService timeoutScheduler;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     private SimulationState state;
     private MainAgent mainAgent;
     private Map<String, Tool> availableTools;
-    private ExecutorService executor;
+    private Thread loopThread;
     private final AtomicBoolean running = new AtomicBoolean(false);
-    private final AtomicBoolean paused = new AtomicBoolean(false);
-    private int maxTurns;
-    private String status = "Idle";
+    // The loop thread parks on 'resumed' while paused; resume, timeout and reset all signal it.
+    private final ReentrantLock pauseLock = new ReentrantLock();
+    private final Condition resumed = pauseLock.newCondition();
+    private boolean paused = false; // Guarded by pauseLock
+    private ScheduledFuture<?> humanHelpTimeout; // Guarded by pauseLock
+    private volatile int maxTurns; // Effective limit: the request's, or the configured default
+    private long turnDelayMs;
+    private volatile String status = "Idle";
     private boolean verboseLoggingEnabled = true;
     private boolean humanHelpTimeoutEnabled = false;
-    private long helpRequestTimestamp = 0;
 
-    public SimulationEngine(LLMServiceFactory llmServiceFactory, SimulationDefaults defaults, CustomerSimulation cs, EventLogger logger, TokenizerService ts, SubAgent subAgent, MemoryManager memoryManager, ToolService toolService, SafetyService safetyService, StateCloner stateCloner) {
+    public SimulationEngine(String sessionId, LLMServiceFactory llmServiceFactory, SimulationDefaults defaults, CustomerSimulation cs, EventLogger logger, TokenizerService ts, SubAgent subAgent, MemoryManager memoryManager, ToolService toolService, SafetyService safetyService, StateCloner stateCloner, ThreadFactory loopThreadFactory, ScheduledExecutorService timeoutScheduler) {
+        this.sessionId = sessionId;
         this.llmServiceFactory = llmServiceFactory;
         this.defaults = defaults;
         this.customerSimulation = cs;
@@ -70,32 +95,80 @@ public class SimulationEngine {
         this.toolService = toolService;
         this.safetyService = safetyService;
         this.stateCloner = stateCloner;
+        this.loopThreadFactory = loopThreadFactory;
+        this.timeoutScheduler = timeoutScheduler;
         reset();
     }
 
-    public void start(String provider, String apiKey, String modelName, String persona, int maxTurns, boolean verboseLogging, boolean humanHelpTimeout, boolean disableHumanHelp) {
+    public void start(SimulationStartRequest request) {
         if (running.get()) return;
+        prepare(request);
+        this.turnDelayMs = defaults.getSimulation().getTurnDelayMs();
+        startLoop();
+    }
+
+    /**
+     * Runs a whole simulation on the calling thread without the UI pacing delay between turns.
+     * Used by the batch runner, which has no human watching and no REST polling.
+     */
+    public void runToCompletion(SimulationStartRequest request) {
+        if (running.get()) {
+            throw new IllegalStateException("Session " + sessionId + " is already running.");
+        }
+        prepare(request);
+        this.turnDelayMs = 0;
+        runSimulationLoop();
+    }
+
+    private void prepare(SimulationStartRequest request) {
         reset();
         status = "Initializing...";
+        if (request.getSeed() != null) {
+            this.state = newState(request.getSeed());
+        }
+        logger.log("SIMULATION_SETUP", "SimulationEngine", "Using random seed " + state.getSeed() + ".");
 
-        this.verboseLoggingEnabled = verboseLogging;
-        this.humanHelpTimeoutEnabled = humanHelpTimeout;
+        this.verboseLoggingEnabled = request.isVerboseLogging();
+        this.humanHelpTimeoutEnabled = request.isHumanHelpTimeout();
 
-        llmServiceFactory.configureActiveService(provider, apiKey, modelName);
-        this.availableTools = toolService.getAvailableTools(disableHumanHelp);
+        llmServiceFactory.configureActiveService(request.getProvider(), request.getApiKey(), request.getModelName());
+        memoryManager.configureEmbeddings(embeddingApiKey(request));
+        this.availableTools = toolService.getAvailableTools(request.isDisableHumanHelp());
 
         this.mainAgent = new MainAgent("MainAgent", llmServiceFactory.getActiveService(), logger, tokenizerService, memoryManager);
-        mainAgent.setPersona(persona);
-        this.maxTurns = maxTurns > 0 ? maxTurns : defaults.getSimulation().getMaxTurns();
+        if (request.getPersona() != null && !request.getPersona().isBlank()) {
+            mainAgent.setPersona(request.getPersona());
+        }
+        mainAgent.setStreamingEnabled(request.isStreaming());
+        mainAgent.setStateEncoder(StateEncoder.forName(request.getStateEncoding() != null ? request.getStateEncoding() : defaults.getAgent().getStateEncoding()));
+        mainAgent.setMaxActionsPerTurn(defaults.getAgent().getMaxActionsPerTurn());
+        mainAgent.setDeltaPerception(request.isDeltaPerception(), defaults.getAgent().getFullStateEveryTurns());
+        SimulationDefaults.Agent.Summarizer summarizerConfig = defaults.getAgent().getSummarizer();
+        if (summarizerConfig.isActive()) {
+            String summarizerKey = summarizerConfig.getApiKeyEnvVar().isBlank() ? null : System.getenv(summarizerConfig.getApiKeyEnvVar());
+            LLMService summarizerService = llmServiceFactory.getAuxiliaryService(summarizerConfig.getProvider(), summarizerKey, summarizerConfig.getModelName());
+            mainAgent.setHistorySummarizer(new HistorySummarizer(summarizerService, summarizerConfig, logger, mainAgent.getName()));
+        }
+        this.maxTurns = request.getMaxTurns() > 0 ? request.getMaxTurns() : defaults.getSimulation().getMaxTurns();
         
         logger.log("SIMULATION_SETUP", "SimulationEngine", "Initializing item demand profiles...");
         customerSimulation.initializeItemDemand(state.getStorage().getItems().values());
         
         running.set(true);
-        paused.set(false);
-        executor.submit(this::runSimulationLoop);
     }
     
+    // The request's embedding key, else the agent's key when it is an OpenAI key, else the configured env var
+    private String embeddingApiKey(SimulationStartRequest request) {
+        if (request.getEmbeddingApiKey() != null && !request.getEmbeddingApiKey().isBlank()) {
+            return request.getEmbeddingApiKey();
+        }
+        if (LLMHttpClients.OPENAI.equalsIgnoreCase(request.getProvider()) && request.getApiKey() != null && !request.getApiKey().isBlank()) {
+            return request.getApiKey();
+        }
+        String envVar = defaults.getEmbeddings().getApiKeyEnvVar();
+        return envVar == null || envVar.isBlank() ? null : System.getenv(envVar);
+    }
+
     public void addTurns(int turnsToAdd) {
         if (!status.equals("Finished") || turnsToAdd <= 0) {
             return;
@@ -103,15 +176,20 @@ public class SimulationEngine {
         logger.log("SIMULATION_UPDATE", "Human", "Adding " + turnsToAdd + " more turns to the simulation.");
         this.maxTurns += turnsToAdd;
         running.set(true);
-        paused.set(false);
-        status = "Running";
-        executor.submit(this::runSimulationLoop);
+        resume();
+        startLoop();
+    }
+
+    private void startLoop() {
+        loopThread = loopThreadFactory.newThread(this::runSimulationLoop);
+        loopThread.start();
     }
 
     private void logVerbose(String type, String source, Map<String, Object> details) {
         if (!verboseLoggingEnabled) return;
         Map<String, Object> logMap = new HashMap<>();
         logMap.put("timestamp", Instant.now().toString());
+        logMap.put("session", sessionId);
         logMap.put("type", type);
         logMap.put("source", source);
         logMap.put("details", details);
@@ -123,13 +201,79 @@ public class SimulationEngine {
     }
 
     public void resumeWithHumanInput(String humanPrompt) {
-        if (status.equals("Awaiting Human Input") || status.equals("Paused")) {
-            logger.log("HUMAN_INTERVENTION", "Human", "Providing help: " + humanPrompt);
-            Action humanAction = mainAgent.getActionFromHumanInstruction(humanPrompt, state, availableTools);
-            mainAgent.setHumanOverrideAction(humanAction);
-            helpRequestTimestamp = 0; 
-            paused.set(false);
+        if (!isAwaitingHuman()) {
+            return;
+        }
+        logger.log("HUMAN_INTERVENTION", "Human", "Providing help: " + humanPrompt);
+        // Translating the instruction is an LLM call, so it runs without pauseLock; the help timeout
+        // may resume the loop meanwhile, in which case this answer arrives too late to be used
+        Action humanAction = mainAgent.getActionFromHumanInstruction(humanPrompt, state, availableTools);
+        pauseLock.lock();
+        try {
+            if (isAwaitingHuman()) {
+                mainAgent.setHumanOverrideAction(humanAction);
+                resume();
+            } else {
+                logger.log("HUMAN_INTERVENTION", "Human", "Help arrived after the simulation resumed; ignoring it.");
+            }
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    private boolean isAwaitingHuman() {
+        return status.equals("Awaiting Human Input") || status.equals("Paused");
+    }
+
+    private void requestHumanHelp() {
+        pauseLock.lock();
+        try {
+            paused = true;
+            status = "Awaiting Human Input";
+            if (humanHelpTimeoutEnabled) {
+                humanHelpTimeout = timeoutScheduler.schedule(this::onHumanHelpTimeout, HUMAN_HELP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    private void onHumanHelpTimeout() {
+        pauseLock.lock();
+        try {
+            if (paused && status.equals("Awaiting Human Input")) {
+                logger.log("HUMAN_INTERVENTION", "SimulationEngine", "Human help timeout reached. Resuming simulation automatically.");
+                mainAgent.setHumanOverrideAction(new Action(IDLE_TOOL, "{}"));
+                resume();
+            }
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    private void resume() {
+        pauseLock.lock();
+        try {
+            if (humanHelpTimeout != null) {
+                humanHelpTimeout.cancel(false);
+                humanHelpTimeout = null;
+            }
+            paused = false;
             status = "Running";
+            resumed.signalAll();
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    private void awaitResume() throws InterruptedException {
+        pauseLock.lock();
+        try {
+            while (paused && running.get()) {
+                resumed.await();
+            }
+        } finally {
+            pauseLock.unlock();
         }
     }
 
@@ -142,65 +286,40 @@ public class SimulationEngine {
             boolean isHumanHelpDisabled = !availableTools.containsKey(HUMAN_HELP_TOOL);
 
             while (running.get() && state.getTurn() <= maxTurns) {
-                while (paused.get()) {
-                    if (humanHelpTimeoutEnabled && helpRequestTimestamp > 0 &&
-                        (System.currentTimeMillis() - helpRequestTimestamp > HUMAN_HELP_TIMEOUT_MS)) {
-                        
-                        logger.log("HUMAN_INTERVENTION", "SimulationEngine", "Human help timeout reached. Resuming simulation automatically.");
-                        mainAgent.setHumanOverrideAction(new Action(IDLE_TOOL, "{}"));
-                        helpRequestTimestamp = 0;
-                        paused.set(false);
-                        status = "Running";
-                        break;
-                    }
-                    Thread.sleep(100);
-                }
+                awaitResume();
 
                 if (state.getDay() > lastDayProcessed) {
                     processDeliveries();
                     lastDayProcessed = state.getDay();
                 }
 
-                Action plannedAction = mainAgent.act(stateCloner.clone(state), availableTools);
-                logger.log("TOOL_CALL", mainAgent.getName(), "Planned action: " + plannedAction.toolName());
+                List<Action> plannedActions = mainAgent.plan(stateCloner.clone(state), availableTools);
+                logger.log("TOOL_CALL", mainAgent.getName(), (plannedActions.size() == 1 ? "Planned action: " : "Planned actions: ")
+                        + plannedActions.stream().map(Action::toolName).collect(Collectors.joining(", ")));
 
-                safetyService.recordAction(plannedAction);
-                if (safetyService.isMeltdownDetected()) {
-                    status = "Error: Meltdown detected. Agent is stuck in a loop. Halting simulation.";
-                    logger.log("ERROR", "SafetyService", status);
-                    running.set(false);
+                String result = executeActions(plannedActions, isHumanHelpDisabled);
+                if (result == null) {
                     continue;
                 }
 
-                if (HUMAN_HELP_TOOL.equals(plannedAction.toolName())) {
-                    if (isHumanHelpDisabled) {
-                        logger.log("ERROR", mainAgent.getName(), "Agent attempted to call 'ask_for_human_help' but it was disabled. Forcing idle action.");
-                        plannedAction = new Action(IDLE_TOOL, "{}");
-                    } else {
-                        status = "Awaiting Human Input";
-                        paused.set(true);
-                        helpRequestTimestamp = System.currentTimeMillis();
-                        logger.log("HUMAN_INTERVENTION", mainAgent.getName(), "Agent requested help. Pausing simulation.");
-                        continue;
-                    }
-                }
-                
-                String result = subAgent.execute(plannedAction, state, availableTools);
-                logger.log("TOOL_RESULT", subAgent.getName(), "Execution finished.", Map.of("result", result));
-
                 mainAgent.updateHistory(result);
 
                 Map<String, Object> turnDetails = new HashMap<>();
                 turnDetails.put("turn", state.getTurn());
                 turnDetails.put("day", state.getDay());
                 turnDetails.put("thought", mainAgent.getLastThought());
-                turnDetails.put("action", plannedAction);
+                turnDetails.put("action", plannedActions.get(0));
+                if (plannedActions.size() > 1) {
+                    turnDetails.put("actions", plannedActions);
+                }
                 turnDetails.put("result", result);
                 turnDetails.put("state", state);
                 logVerbose("TURN_DATA", "SimulationEngine", turnDetails);
 
                 state.incrementTurn();
-                Thread.sleep(defaults.getSimulation().getTurnDelayMs());
+                if (turnDelayMs > 0) {
+                    Thread.sleep(turnDelayMs);
+                }
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -218,6 +337,59 @@ public class SimulationEngine {
         }
     }
     
+    /**
+     * Runs one turn's actions in order, checking each with the safety monitor. The batch stops early when an
+     * action fails or ends the day, since later commands were planned against a state that no longer holds.
+     * @return the results folded into one history entry, or null if the turn ended without one
+     *         (a meltdown, or a request for human help).
+     */
+    private String executeActions(List<Action> plannedActions, boolean isHumanHelpDisabled) {
+        List<String> results = new ArrayList<>(plannedActions.size());
+        for (int i = 0; i < plannedActions.size(); i++) {
+            Action plannedAction = plannedActions.get(i);
+            safetyService.recordAction(plannedAction);
+            if (safetyService.isMeltdownDetected()) {
+                status = "Error: Meltdown detected. Agent is stuck in a loop. Halting simulation.";
+                logger.log("ERROR", "SafetyService", status);
+                running.set(false);
+                return null;
+            }
+
+            if (HUMAN_HELP_TOOL.equals(plannedAction.toolName())) {
+                if (isHumanHelpDisabled) {
+                    logger.log("ERROR", mainAgent.getName(), "Agent attempted to call 'ask_for_human_help' but it was disabled. Forcing idle action.");
+                    plannedAction = new Action(IDLE_TOOL, "{}");
+                } else if (i == 0) {
+                    requestHumanHelp();
+                    logger.log("HUMAN_INTERVENTION", mainAgent.getName(), "Agent requested help. Pausing simulation.");
+                    return null;
+                } else {
+                    results.add(batchResult(i, plannedAction, "Skipped: ask_for_human_help must be sent on its own."));
+                    break;
+                }
+            }
+
+            String result = subAgent.execute(plannedAction, state, availableTools);
+            logger.log("TOOL_RESULT", subAgent.getName(), "Execution finished.", Map.of("result", result));
+            if (plannedActions.size() == 1) {
+                return result;
+            }
+            results.add(batchResult(i, plannedAction, result));
+
+            int remaining = plannedActions.size() - i - 1;
+            boolean failed = result.startsWith("Error");
+            if (remaining > 0 && (failed || WAIT_TOOL.equals(plannedAction.toolName()))) {
+                results.add("Skipped the remaining " + remaining + " command(s) because " + (failed ? "this one failed." : "the day ended."));
+                break;
+            }
+        }
+        return String.join("\n", results);
+    }
+
+    private static String batchResult(int index, Action action, String result) {
+        return (index + 1) + ". " + action.toolName() + ": " + result;
+    }
+
     private void processDeliveries() {
         Map<String, Integer> todaysDeliveries = state.getPendingDeliveries().remove(state.getDay());
         if (todaysDeliveries != null && !todaysDeliveries.isEmpty()) {
@@ -243,37 +415,66 @@ public class SimulationEngine {
     }
 
     public void togglePause() { 
-        if(running.get() && !status.equals("Awaiting Human Input")){ 
-            paused.set(!paused.get()); 
-            status = paused.get() ? "Paused" : "Running"; 
-        } 
+        pauseLock.lock();
+        try {
+            if (!running.get() || status.equals("Awaiting Human Input")) {
+                return;
+            }
+            if (paused) {
+                resume();
+            } else {
+                paused = true;
+                status = "Paused";
+            }
+        } finally {
+            pauseLock.unlock();
+        }
     }
 
     public void reset() { 
-        running.set(false);
-        if (executor != null && !executor.isTerminated()) {
-            executor.shutdownNow();
-            try {
-                if (!executor.awaitTermination(2, TimeUnit.SECONDS)) {
-                    System.err.println("Executor did not terminate in the specified time.");
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
-        executor = Executors.newSingleThreadExecutor(); 
-        this.state = new SimulationState(defaults.getSimulation().getInitialCashBalance(), defaults.getSimulation().getDailyFee()); 
+        stopLoop();
+        this.state = newState(ThreadLocalRandom.current().nextLong());
         this.logger.clear(); 
         this.memoryManager.reset();
         this.safetyService.reset();
+        resume();
         this.status = "Idle"; 
-        this.paused.set(false); 
 
         if (mainAgent == null) {
             mainAgent = new MainAgent("MainAgent", null, logger, tokenizerService, memoryManager);
         }
     }
 
+    private SimulationState newState(long seed) {
+        return new SimulationState(defaults.getSimulation().getInitialCashBalance(), defaults.getSimulation().getDailyFee(), seed);
+    }
+
+    /**
+     * Stops the simulation loop for good. Called by the registry when the session is closed.
+     */
+    public void shutdown() {
+        stopLoop();
+        memoryManager.close();
+        status = "Closed";
+    }
+
+    private void stopLoop() {
+        running.set(false);
+        Thread thread = loopThread;
+        if (thread != null && thread.isAlive() && thread != Thread.currentThread()) {
+            thread.interrupt();
+            try {
+                thread.join(LOOP_STOP_TIMEOUT_MS);
+                if (thread.isAlive()) {
+                    System.err.println("Simulation loop for session " + sessionId + " did not stop in the specified time.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        loopThread = null;
+    }
+
     public double calculateNetWorth() { 
         if (state == null) return defaults.getSimulation().getInitialCashBalance();
         double inventoryValue = state.getStorage().getItems().values().stream()
@@ -284,9 +485,23 @@ public class SimulationEngine {
     }
 
     // --- Getters for Controller ---
+    public String getSessionId() { return sessionId; }
     public String getStatus() { return status; }
+    public int getMaxTurns() { return maxTurns; }
+    public boolean isRunningTurns() { return running.get() && "Running".equals(status); }
     public MainAgent getMainAgent() { return mainAgent; }
     public SubAgent getSubAgent() { return subAgent; }
     public SimulationState getCurrentState() { return state; }
     public List<String> getMainEventLog() { return logger.getMainLog(); }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("status", status);
+        if (mainAgent != null) {
+            metrics.put("streaming", mainAgent.getStreamingMetrics().toMap());
+            metrics.put("tokenUsage", mainAgent.getTokenUsage().toMap());
+        }
+        metrics.put("vectorMemory", memoryManager.getVectorMetrics());
+        return metrics;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package com.aiexpert.vendingbench.service;
+
+import com.aiexpert.vendingbench.agent.SubAgent;
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.environment.CustomerSimulation;
+import com.aiexpert.vendingbench.environment.EmailSimulation;
+import com.aiexpert.vendingbench.llm.LLMHttpClients;
+import com.aiexpert.vendingbench.llm.LLMResponseCache;
+import com.aiexpert.vendingbench.llm.LLMServiceFactory;
+import com.aiexpert.vendingbench.llm.resilience.ProviderResilienceRegistry;
+import com.aiexpert.vendingbench.logging.EventLogger;
+import com.aiexpert.vendingbench.util.StateCloner;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Owns every running simulation session in this JVM.
+ * Each session gets its own engine, state, memory, safety monitor and event log,
+ * while stateless services (tokenizer, embeddings, state cloning, HTTP clients, response cache) and the
+ * per-provider rate limits and circuit breakers are shared.
+ */
+@Service
+public class SimulationSessionRegistry {
+
+    private static final Pattern SESSION_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final SimulationDefaults defaults;
+    private final TokenizerService tokenizerService;
+    private final EmbeddingService embeddingService;
+    private final StateCloner stateCloner;
+    private final LLMHttpClients httpClients;
+    private final LLMResponseCache responseCache;
+    private final ProviderResilienceRegistry resilienceRegistry;
+    private final ThreadFactory loopThreadFactory = newLoopThreadFactory();
+    // One timer thread serves the human-help timeouts of every session.
+    private final ScheduledExecutorService timeoutScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "simulation-timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Closing a session can wait for its loop thread and queued memory writes, so reaping runs on its
+    // own thread rather than delaying the human-help timeouts of live sessions.
+    private final ScheduledExecutorService reaperScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, SimulationEngine> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastAccessMillis = new ConcurrentHashMap<>();
+
+    public SimulationSessionRegistry(SimulationDefaults defaults, TokenizerService tokenizerService, EmbeddingService embeddingService, StateCloner stateCloner,
+                                     LLMHttpClients httpClients, LLMResponseCache responseCache, ProviderResilienceRegistry resilienceRegistry) {
+        this.defaults = defaults;
+        this.tokenizerService = tokenizerService;
+        this.embeddingService = embeddingService;
+        this.stateCloner = stateCloner;
+        this.httpClients = httpClients;
+        this.responseCache = responseCache;
+        this.resilienceRegistry = resilienceRegistry;
+        // Browser tabs never close their sessions, so idle ones are reaped
+        SimulationDefaults.Sessions config = defaults.getSessions();
+        if (config.getIdleTimeoutMinutes() > 0) {
+            long interval = Math.max(1, config.getReapIntervalSeconds());
+            reaperScheduler.scheduleWithFixedDelay(this::reapIdleSessions, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    public SimulationEngine getOrCreate(String sessionId) {
+        validateSessionId(sessionId);
+        lastAccessMillis.put(sessionId, System.currentTimeMillis());
+        return sessions.computeIfAbsent(sessionId, this::createEngine);
+    }
+
+    public SimulationEngine get(String sessionId) {
+        SimulationEngine engine = sessions.get(sessionId);
+        if (engine == null) {
+            throw new IllegalArgumentException("Unknown simulation session: " + sessionId);
+        }
+        lastAccessMillis.put(sessionId, System.currentTimeMillis());
+        return engine;
+    }
+
+    public void remove(String sessionId) {
+        SimulationEngine engine = sessions.remove(sessionId);
+        lastAccessMillis.remove(sessionId);
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * Closes sessions that are not running turns and have not been used through the API for the idle
+     * timeout. Paused sessions and sessions waiting for human input count as idle.
+     */
+    void reapIdleSessions() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(defaults.getSessions().getIdleTimeoutMinutes());
+        sessions.forEach((sessionId, engine) -> {
+            if (engine.isRunningTurns() || lastAccessMillis.getOrDefault(sessionId, 0L) >= cutoff) {
+                return;
+            }
+            if (sessions.remove(sessionId, engine)) {
+                lastAccessMillis.remove(sessionId);
+                try {
+                    engine.shutdown();
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to close idle session " + sessionId + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    public Set<String> getSessionIds() {
+        return new TreeSet<>(sessions.keySet());
+    }
+
+    public Map<String, Object> getSessionMetrics() {
+        Map<String, Object> metrics = new TreeMap<>();
+        sessions.forEach((sessionId, engine) -> metrics.put(sessionId, engine.getMetrics()));
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdownAll() {
+        sessions.keySet().forEach(this::remove);
+        timeoutScheduler.shutdownNow();
+        reaperScheduler.shutdownNow();
+    }
+
+    private SimulationEngine createEngine(String sessionId) {
+        LLMServiceFactory llmServiceFactory = new LLMServiceFactory(httpClients, responseCache, resilienceRegistry);
+        EventLogger logger = new EventLogger();
+        MemoryManager memoryManager = new MemoryManager(embeddingService, defaults.getMemory(), sessionId, logger);
+        SafetyService safetyService = new SafetyService(defaults);
+        CustomerSimulation customerSimulation = new CustomerSimulation(llmServiceFactory, logger, defaults.getDemandProfiles());
+        EmailSimulation emailSimulation = new EmailSimulation(llmServiceFactory, logger);
+        ToolService toolService = new ToolService(defaults, memoryManager, customerSimulation, emailSimulation, llmServiceFactory);
+
+        return new SimulationEngine(sessionId, llmServiceFactory, defaults, customerSimulation, logger, tokenizerService,
+                new SubAgent(), memoryManager, toolService, safetyService, stateCloner, loopThreadFactory, timeoutScheduler);
+    }
+
+    private static void validateSessionId(String sessionId) {
+        if (sessionId == null || !SESSION_ID_PATTERN.matcher(sessionId).matches()) {
+            throw new IllegalArgumentException("Session id must be 1-64 characters of letters, digits, '-' or '_'.");
+        }
+    }
+
+    /**
+     * Simulation loops spend nearly all their time waiting on LLM I/O, so they run on
+     * virtual threads when the runtime supports them (Java 21+). The lookup is reflective
+     * because the project still targets Java 17, where we fall back to daemon platform threads.
+     */
+    private static ThreadFactory newLoopThreadFactory() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "simulation-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicLong counter = new AtomicLong();
+            return runnable -> {
+                Thread thread = new Thread(runnable, "simulation-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+}
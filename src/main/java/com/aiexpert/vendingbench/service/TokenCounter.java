@@ -0,0 +1,88 @@
+package com.aiexpert.vendingbench.service;
+
+import com.knuddels.jtokkit.api.Encoding;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Counts tokens for one model family. Exact counts come from a jtokkit encoding, scaled by a calibration
+ * factor for providers whose tokenizer is not public, and short texts are memoized since turn results and
+ * action JSON repeat a lot. The encoding is only loaded on the first exact count.
+ */
+public class TokenCounter {
+    // Long texts such as the state are rarely seen twice, so they are not worth keeping.
+    private static final int MAX_CACHED_LENGTH = 4096;
+
+    private final String encodingName;
+    private final Supplier<Encoding> encodingLoader;
+    private final double calibration;
+    private final double charsPerToken;
+    private final boolean approximate;
+    private final Map<String, Integer> cache;
+    private volatile Encoding encoding;
+
+    TokenCounter(String encodingName, Supplier<Encoding> encodingLoader, double calibration, double charsPerToken, boolean approximate, int cacheEntries) {
+        this.encodingName = encodingName;
+        this.encodingLoader = encodingLoader;
+        this.calibration = calibration;
+        this.charsPerToken = charsPerToken;
+        this.approximate = approximate;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > cacheEntries;
+            }
+        };
+    }
+
+    /**
+     * Tokens in {@code text} for this model, or the estimate when the service runs in approximate mode.
+     */
+    public int count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        if (approximate) {
+            return estimate(text);
+        }
+        if (text.length() > MAX_CACHED_LENGTH) {
+            return exactCount(text);
+        }
+        synchronized (cache) {
+            Integer cached = cache.get(text);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        int tokens = exactCount(text);
+        synchronized (cache) {
+            cache.put(text, tokens);
+        }
+        return tokens;
+    }
+
+    /**
+     * A length-based estimate that never tokenizes; for hot paths where a few percent do not matter.
+     */
+    public int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return (int) Math.ceil(text.length() / charsPerToken * calibration);
+    }
+
+    public String getEncodingName() { return encodingName; }
+    public double getCalibration() { return calibration; }
+
+    private int exactCount(String text) {
+        Encoding loaded = encoding;
+        if (loaded == null) {
+            loaded = encodingLoader.get();
+            encoding = loaded;
+        }
+        int tokens = loaded.countTokens(text);
+        return calibration == 1.0 ? tokens : (int) Math.round(tokens * calibration);
+    }
+}
@@ -1,20 +1,61 @@
 package com.aiexpert.vendingbench.service;
 
+import com.aiexpert.vendingbench.config.SimulationDefaults;
 import com.knuddels.jtokkit.Encodings;
-import com.knuddels.jtokkit.api.Encoding;
 import com.knuddels.jtokkit.api.EncodingRegistry;
 import com.knuddels.jtokkit.api.EncodingType;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out a {@link TokenCounter} per model family. OpenAI models use their own encoding (o200k_base for
+ * the 4o/4.1/o-series generation, cl100k_base before that); other providers are estimated from cl100k_base
+ * with a calibration factor. The encoding registry is loaded on first use.
+ */
 @Service
 public class TokenizerService {
-    private final EncodingRegistry registry = Encodings.newDefaultEncodingRegistry();
-    private final Encoding encoding = registry.getEncoding(EncodingType.CL100K_BASE); // For GPT-4, Gemini, etc.
+
+    private static final class Registry {
+        private static final EncodingRegistry INSTANCE = Encodings.newDefaultEncodingRegistry();
+    }
+
+    private final SimulationDefaults.Tokenizer config;
+    private final Map<String, TokenCounter> counters = new ConcurrentHashMap<>();
+    private final TokenCounter defaultCounter;
+
+    public TokenizerService(SimulationDefaults defaults) {
+        this.config = defaults.getTokenizer();
+        this.defaultCounter = counter(EncodingType.CL100K_BASE, 1.0);
+    }
+
+    public TokenCounter forModel(String provider, String modelName) {
+        if (provider == null || provider.isBlank()) {
+            return defaultCounter;
+        }
+        String providerKey = provider.toLowerCase();
+        if (providerKey.equals("openai")) {
+            return counter(usesO200k(modelName) ? EncodingType.O200K_BASE : EncodingType.CL100K_BASE, 1.0);
+        }
+        return counter(EncodingType.CL100K_BASE, config.getCalibration().getOrDefault(providerKey, 1.0));
+    }
 
     public int countTokens(String text) {
-        if (text == null || text.isEmpty()) {
-            return 0;
+        return defaultCounter.count(text);
+    }
+
+    private TokenCounter counter(EncodingType type, double calibration) {
+        return counters.computeIfAbsent(type.getName() + "@" + calibration, key -> new TokenCounter(type.getName(),
+                () -> Registry.INSTANCE.getEncoding(type), calibration, config.getCharsPerToken(), config.isApproximate(), config.getCacheEntries()));
+    }
+
+    private static boolean usesO200k(String modelName) {
+        if (modelName == null) {
+            return false;
         }
-        return encoding.countTokens(text);
+        String model = modelName.toLowerCase();
+        return model.startsWith("gpt-4o") || model.startsWith("chatgpt-4o") || model.startsWith("gpt-4.1") || model.startsWith("gpt-4.5")
+                || model.startsWith("gpt-5") || model.startsWith("o1") || model.startsWith("o3") || model.startsWith("o4");
     }
-}
\ No newline at end of file
+}
@@ -9,12 +9,10 @@ import com.aiexpert.vendingbench.tool.memory.ReadFromMemoryTool;
 import com.aiexpert.vendingbench.tool.memory.WriteToMemoryTool;
 import com.aiexpert.vendingbench.tool.remote.*;
 import com.aiexpert.vendingbench.tool.vending.*;
-import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
 import java.util.Map;
 
-@Service
 public class ToolService {
 
     private final SimulationDefaults defaults;
@@ -37,7 +37,7 @@ public class ComposeEmailToContactTool implements Tool {
             return "Error: Unknown contact_type '" + contactType + "'. Valid types are: " + String.join(", ", CONTACT_MAP.keySet());
         }
 
-        LLMService llmService = llmServiceFactory.getActiveService();
+        LLMService llmService = llmServiceFactory.getCachedService();
         String prompt = String.format(
             "You are a business professional writing an email. Your task is to write a concise, professional email body to a %s about the following topic: '%s'. " +
             "The email should be 2-3 sentences. IMPORTANT: Respond ONLY with the raw text of the email body, with no salutation (like 'Dear Sir'), sign-off, or any other surrounding text.",
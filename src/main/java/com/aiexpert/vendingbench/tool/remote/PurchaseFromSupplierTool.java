@@ -1,6 +1,7 @@
 package com.aiexpert.vendingbench.tool.remote;
 
 import com.aiexpert.vendingbench.model.Item;
+import com.aiexpert.vendingbench.model.SimulationRandom;
 import com.aiexpert.vendingbench.model.SimulationState;
 import com.aiexpert.vendingbench.tool.Tool;
 import com.aiexpert.vendingbench.util.ValidationUtils;
@@ -8,19 +9,18 @@ import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
 
 public class PurchaseFromSupplierTool implements Tool {
-    private final Random random = new Random();
 
     @Override
     public String execute(JsonNode params, SimulationState state) {
+        SimulationRandom random = state.getRandom();
         if (!params.has("items") || !params.get("items").isArray()) {
             return "Error: You must provide a list of 'items' with 'name' and 'quantity' to purchase.";
         }
 
         // --- NEW: Add a chance for the entire communication to fail ---
-        if (random.nextDouble() < 0.05) { // 5% chance of total failure
+        if (random.supplierFailures().nextDouble() < 0.05) { // 5% chance of total failure
             return "Error: Supplier communication failed. Could not reach the supplier. Please try again later.";
         }
 
@@ -47,11 +47,11 @@ public class PurchaseFromSupplierTool implements Tool {
             }
 
             // --- NEW: Add realism to quantity and pricing ---
-            double priceMultiplier = 1.0 + (random.nextDouble() - 0.5) * 0.1; // Price can fluctuate by +/- 5%
+            double priceMultiplier = 1.0 + (random.supplierPricing().nextDouble() - 0.5) * 0.1; // Price can fluctuate by +/- 5%
             double wholesaleCost = masterItem.getWholesaleCost() * priceMultiplier;
             
             // 15% chance of a partial shipment (delivering 60-90% of the order)
-            int finalQuantity = (random.nextDouble() < 0.15) ? (int) (quantity * (0.6 + random.nextDouble() * 0.3)) : quantity;
+            int finalQuantity = (random.partialShipments().nextDouble() < 0.15) ? (int) (quantity * (0.6 + random.partialShipments().nextDouble() * 0.3)) : quantity;
             
             totalCost += wholesaleCost * finalQuantity;
             itemsToOrder.put(name, finalQuantity);
@@ -71,7 +71,7 @@ public class PurchaseFromSupplierTool implements Tool {
 
         state.setCashBalance(state.getCashBalance() - totalCost);
         // --- NEW: Delivery delay is now more variable ---
-        int deliveryDays = 2 + random.nextInt(4); // Delivery can take 2 to 5 days
+        int deliveryDays = 2 + random.deliveryDelays().nextInt(4); // Delivery can take 2 to 5 days
         int arrivalDay = state.getDay() + deliveryDays;
 
         state.addPendingDelivery(arrivalDay, itemsToOrder);
@@ -1,7 +1,6 @@
 package com.aiexpert.vendingbench.tool.vending;
 
 import com.aiexpert.vendingbench.config.SimulationDefaults;
-import com.aiexpert.vendingbench.model.Item;
 import com.aiexpert.vendingbench.model.SimulationState;
 import com.aiexpert.vendingbench.tool.Tool;
 import com.aiexpert.vendingbench.util.ValidationUtils;
@@ -35,18 +34,12 @@ public class SetPricesTool implements Tool {
                 continue;
             }
 
-            Item vendingItem = state.getVendingMachine().getItem(itemName);
-            Item storageItem = state.getStorage().getItem(itemName);
+            boolean inVendingMachine = state.getVendingMachine().setItemPrice(itemName, price);
+            boolean inStorage = state.getStorage().setItemPrice(itemName, price);
 
-            if (vendingItem == null && storageItem == null) {
+            if (!inVendingMachine && !inStorage) {
                 resultBuilder.append("Failed to set price for ").append(itemName).append(": Item not found.\n");
             } else {
-                if (vendingItem != null) {
-                    vendingItem.setPrice(price);
-                }
-                if (storageItem != null) {
-                    storageItem.setPrice(price);
-                }
                 pricesSet++;
                 resultBuilder.append("Price for ").append(itemName).append(" set to $").append(String.format("%.2f", price)).append(".\n");
             }
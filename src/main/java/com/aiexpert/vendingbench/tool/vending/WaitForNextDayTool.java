@@ -18,13 +18,13 @@ public class WaitForNextDayTool implements Tool {
     public String execute(JsonNode params, SimulationState state) {
         // Step 1: Simulate the sales for the current day based on the machine's inventory.
         Inventory machine = state.getVendingMachine();
-        SalesReport report = customerSimulation.simulateDailySales(machine, state.getDay());
+        SalesReport report = customerSimulation.simulateDailySales(machine, state.getDay(), state.getRandom().demand());
 
         // Step 2: Apply the sales results by removing sold items from the vending machine.
         // We iterate over a clone of the items to safely modify the original map while looping.
         machine.getClonedItems().forEach((itemName, item) -> {
             if (item.getQuantity() > 0 && item.getPrice() > 0) {
-                int potentialSales = customerSimulation.calculateSales(item, state.getDay());
+                int potentialSales = customerSimulation.calculateSales(item, state.getDay(), state.getRandom().demand());
                 int actualSales = Math.min(potentialSales, item.getQuantity());
                 if (actualSales > 0) {
                     machine.removeItem(itemName, actualSales);
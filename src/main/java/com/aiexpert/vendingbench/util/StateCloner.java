@@ -16,7 +16,7 @@ public class StateCloner {
         }
 
         // Create a new state with the same initial parameters (they don't change)
-        SimulationState clone = new SimulationState(0, original.getDailyFee());
+        SimulationState clone = new SimulationState(0, original.getDailyFee(), original.getSeed());
 
         // Copy primitive and immutable fields
         clone.setTurn(original.getTurn());
@@ -37,6 +37,10 @@ public class StateCloner {
             clone.getPendingDeliveries().put(day, new HashMap<>(items))
         );
 
+        // Copy the change counters last, since the setters above bump them
+        clone.setEmailsReceived(original.getEmailsReceived());
+        clone.setVersion(original.getVersion());
+
         return clone;
     }
 
@@ -45,6 +49,7 @@ public class StateCloner {
         clone.setCashHeld(original.getCashHeld());
         // getClonedItems() already performs a deep copy of the items map
         clone.setItems(original.getClonedItems());
+        clone.setVersion(original.getVersion());
         return clone;
     }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.aiexpert.vendingbench.util;
+
+/**
+ * Small float-vector helpers for embedding search. Embeddings are normalized once when stored, so
+ * similarity at query time is a plain dot product.
+ */
+public final class VectorMath {
+
+    private VectorMath() {}
+
+    /**
+     * A unit-length copy of {@code vector}; an all-zero vector is returned unchanged (as a copy).
+     */
+    public static float[] normalize(float[] vector) {
+        double sumOfSquares = 0.0;
+        for (float value : vector) {
+            sumOfSquares += value * value;
+        }
+        float[] unit = vector.clone();
+        if (sumOfSquares == 0.0) {
+            return unit;
+        }
+        float scale = (float) (1.0 / Math.sqrt(sumOfSquares));
+        for (int i = 0; i < unit.length; i++) {
+            unit[i] *= scale;
+        }
+        return unit;
+    }
+
+    /**
+     * Dot product over the common length. Four independent accumulators break the dependency chain
+     * so the JIT can pipeline (and on most CPUs vectorize) the loop.
+     */
+    public static float dot(float[] a, float[] b) {
+        int length = Math.min(a.length, b.length);
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        for (int bound = length - 3; i < bound; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * The per-vector scale for symmetric int8 quantization: the largest magnitude maps to 127.
+     */
+    public static float int8Scale(float[] vector) {
+        float maxAbs = 0f;
+        for (float value : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        return maxAbs == 0f ? 1f : maxAbs / 127f;
+    }
+
+    public static byte[] quantizeInt8(float[] vector, float scale) {
+        byte[] codes = new byte[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            codes[i] = (byte) Math.round(vector[i] / scale);
+        }
+        return codes;
+    }
+
+    /**
+     * Dot product of a float query with int8 codes; multiply by the codes' scale for the approximate similarity.
+     */
+    public static float dot(float[] query, byte[] codes) {
+        int length = Math.min(query.length, codes.length);
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        for (int bound = length - 3; i < bound; i += 4) {
+            s0 += query[i] * codes[i];
+            s1 += query[i + 1] * codes[i + 1];
+            s2 += query[i + 2] * codes[i + 2];
+            s3 += query[i + 3] * codes[i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += query[i] * codes[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * One bit per dimension, set where the value is positive.
+     */
+    public static long[] signBits(float[] vector) {
+        long[] bits = new long[(vector.length + 63) / 64];
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0f) {
+                bits[i >>> 6] |= 1L << (i & 63);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Differing bits; for sign bits of unit vectors, fewer means a smaller angle.
+     */
+    public static int hammingDistance(long[] a, long[] b) {
+        int distance = 0;
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            distance += Long.bitCount(a[i] ^ b[i]);
+        }
+        return distance;
+    }
+}
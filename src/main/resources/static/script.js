@@ -21,7 +21,10 @@
         }]
     };
 
-    const API_BASE_URL = 'http://localhost:8080/api/simulation';
+    // Each browser tab drives its own simulation session on the backend.
+    const SESSION_ID = sessionStorage.getItem('vendingBenchSessionId') || crypto.randomUUID();
+    sessionStorage.setItem('vendingBenchSessionId', SESSION_ID);
+    const API_BASE_URL = `http://localhost:8080/api/simulation/${SESSION_ID}`;
 
     startButton.addEventListener('click', startSimulation);
     pauseButton.addEventListener('click', pauseSimulation);
@@ -74,11 +77,14 @@
         const verboseLogging = document.getElementById('verboseLogging').checked;
         const humanHelpTimeout = document.getElementById('humanHelpTimeout').checked;
         const disableHumanHelp = document.getElementById('disableHumanHelp').checked;
+        const streaming = document.getElementById('streaming').checked;
+        const deltaPerception = document.getElementById('deltaPerception').checked;
+        const stateEncoding = document.getElementById('stateEncoding').value;
 
         fetch(`${API_BASE_URL}/start`, {
             method: 'POST',
             headers: { 'Content-Type': 'application/json' },
-            body: JSON.stringify({ provider, apiKey, modelName, persona, maxTurns, verboseLogging, humanHelpTimeout, disableHumanHelp }),
+            body: JSON.stringify({ provider, apiKey, modelName, persona, maxTurns, verboseLogging, humanHelpTimeout, disableHumanHelp, streaming, deltaPerception, stateEncoding }),
         })
         .then(response => {
             if (response.ok) {
@@ -0,0 +1,78 @@
+package com.aiexpert.vendingbench.agent;
+
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.llm.LLMService;
+import com.aiexpert.vendingbench.logging.EventLogger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class HistorySummarizerTest {
+
+    private final Sinks.One<String> reply = Sinks.one();
+    private final LLMService summaryModel = new LLMService() {
+        @Override public void configure(String apiKey, String modelName) {}
+        @Override public String getProviderName() { return "fake"; }
+        @Override public String getModelName() { return "model"; }
+        @Override public Mono<String> generateMono(String prompt) { return reply.asMono(); }
+    };
+
+    @Test
+    void testTakeReady_AfterReplyArrives_ShouldCoverOldestTurns() {
+        // Arrange
+        HistorySummarizer summarizer = new HistorySummarizer(summaryModel, new SimulationDefaults.Agent.Summarizer(), new EventLogger(), "MainAgent");
+        PromptHistory history = historyOf(10, 10);
+        summarizer.maybeStart(history, 100);
+
+        // Act
+        HistorySummarizer.Summary pending = summarizer.takeReady(history);
+        reply.tryEmitValue(" Ordered chips twice. ");
+        HistorySummarizer.Summary ready = summarizer.takeReady(history);
+
+        // Assert
+        assertNull(pending);
+        assertEquals("Ordered chips twice.", ready.text());
+        assertEquals(3, ready.turns().size());
+        assertEquals("t0", ready.turns().get(0).thought());
+    }
+
+    @Test
+    void testTakeReady_WhenHistoryMovedOn_ShouldDiscardSummary() {
+        // Arrange
+        HistorySummarizer summarizer = new HistorySummarizer(summaryModel, new SimulationDefaults.Agent.Summarizer(), new EventLogger(), "MainAgent");
+        PromptHistory history = historyOf(10, 10);
+        summarizer.maybeStart(history, 100);
+
+        // Act
+        history.removeOldest();
+        reply.tryEmitValue("Too late.");
+
+        // Assert
+        assertNull(summarizer.takeReady(history));
+    }
+
+    @Test
+    void testMaybeStart_BelowThreshold_ShouldNotStart() {
+        // Arrange
+        HistorySummarizer summarizer = new HistorySummarizer(summaryModel, new SimulationDefaults.Agent.Summarizer(), new EventLogger(), "MainAgent");
+        PromptHistory history = historyOf(5, 10);
+
+        // Act
+        summarizer.maybeStart(history, 100);
+        reply.tryEmitValue("Unused.");
+
+        // Assert
+        assertNull(summarizer.takeReady(history));
+    }
+
+    private static PromptHistory historyOf(int turns, int tokensPerTurn) {
+        PromptHistory history = new PromptHistory();
+        for (int i = 0; i < turns; i++) {
+            history.add(new PromptHistory.Turn("t" + i, "{}", "r" + i, tokensPerTurn));
+        }
+        return history;
+    }
+}
@@ -0,0 +1,72 @@
+package com.aiexpert.vendingbench.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PromptHistoryTest {
+
+    @Test
+    void testRender_AfterEvictions_ShouldMatchRemainingTurnsInOrder() {
+        // Arrange
+        PromptHistory history = new PromptHistory();
+        for (int i = 0; i < 10; i++) {
+            history.add(new PromptHistory.Turn("t" + i, "{}", "r" + i, 5));
+        }
+
+        // Act
+        for (int i = 0; i < 7; i++) {
+            history.removeOldest();
+        }
+        history.add(new PromptHistory.Turn("t10", "{}", "r10", 5));
+
+        // Assert
+        String expected = "\n# EXECUTION HISTORY:\n"
+                + "Thought: t7\nCommand: {}\nResult: 'r7'\n---\n"
+                + "Thought: t8\nCommand: {}\nResult: 'r8'\n---\n"
+                + "Thought: t9\nCommand: {}\nResult: 'r9'\n---\n"
+                + "Thought: t10\nCommand: {}\nResult: 'r10'\n---\n";
+        assertEquals(expected, history.render());
+        assertEquals(20, history.getTotalTokens());
+        assertEquals("t10", history.getLatest().thought());
+    }
+
+    @Test
+    void testReplaceSummary_ShouldRenderFirstAndAdjustTokenTotal() {
+        // Arrange
+        PromptHistory history = new PromptHistory();
+        history.add(new PromptHistory.Turn("t0", "{}", "r0", 5));
+
+        // Act
+        PromptHistory.Turn previous = history.replaceSummary(new PromptHistory.Turn("Summary", "{}", "s", 3));
+        history.replaceSummary(new PromptHistory.Turn("Summary", "{}", "s2", 2));
+
+        // Assert
+        assertNull(previous);
+        assertEquals(7, history.getTotalTokens());
+        assertTrue(history.render().startsWith("\n# EXECUTION HISTORY:\nThought: Summary\nCommand: {}\nResult: 's2'"));
+        assertTrue(history.render().endsWith("Result: 'r0'\n---\n"));
+    }
+
+    @Test
+    void testRenderBlocks_AfterAdd_ShouldKeepEarlierBlocksAsPrefix() {
+        // Arrange
+        PromptHistory history = new PromptHistory();
+        history.add(new PromptHistory.Turn("t0", "{}", "r0", 5));
+        history.add(new PromptHistory.Turn("t1", "{}", "r1", 5));
+        List<String> before = history.renderBlocks();
+
+        // Act
+        history.add(new PromptHistory.Turn("t2", "{}", "r2", 5));
+        List<String> after = history.renderBlocks();
+
+        // Assert
+        assertEquals(before, after.subList(0, before.size()));
+        assertEquals("Thought: t2\nCommand: {}\nResult: 'r2'\n---\n", after.get(after.size() - 1));
+        assertEquals(String.join("", after), history.render());
+    }
+}
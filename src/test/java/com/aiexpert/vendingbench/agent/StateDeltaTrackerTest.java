@@ -0,0 +1,72 @@
+package com.aiexpert.vendingbench.agent;
+
+import com.aiexpert.vendingbench.model.SimulationState;
+import com.aiexpert.vendingbench.util.StateCloner;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StateDeltaTrackerTest {
+
+    private final StateCloner stateCloner = new StateCloner();
+
+    @Test
+    void testDelta_AfterSaleAndEmail_ShouldListOnlyChangedFields() {
+        // Arrange
+        StateDeltaTracker tracker = new StateDeltaTracker(10);
+        SimulationState state = new SimulationState(500.0, 2.0, 1L);
+        tracker.recordSnapshot(stateCloner.clone(state));
+
+        state.getStorage().removeItem("Chips", 5);
+        state.setCashBalance(state.getCashBalance() + 12.5);
+        state.addEmail(Map.of("from", "supplier", "body", "Shipped"));
+
+        // Act
+        Map<String, Object> delta = tracker.delta(stateCloner.clone(state));
+
+        // Assert
+        assertEquals(512.5, delta.get("cashBalance"));
+        assertEquals(12.5, delta.get("cashChange"));
+        assertEquals(Map.of("Chips", Map.of("quantity", 45, "change", -5)), delta.get("storage"));
+        assertEquals(List.of(Map.of("from", "supplier", "body", "Shipped")), delta.get("newEmails"));
+        assertFalse(delta.containsKey("vendingMachine"));
+    }
+
+    @Test
+    void testDelta_WithoutChanges_ShouldReportNone() {
+        // Arrange
+        StateDeltaTracker tracker = new StateDeltaTracker(10);
+        SimulationState state = new SimulationState(500.0, 2.0, 1L);
+        tracker.recordSnapshot(stateCloner.clone(state));
+
+        // Act
+        Map<String, Object> delta = tracker.delta(stateCloner.clone(state));
+
+        // Assert
+        assertEquals("none", delta.get("changes"));
+    }
+
+    @Test
+    void testShouldSendSnapshot_AfterIntervalOrRequest_ShouldBeTrue() {
+        // Arrange
+        StateDeltaTracker tracker = new StateDeltaTracker(3);
+        SimulationState state = new SimulationState(500.0, 2.0, 1L);
+
+        // Act / Assert
+        assertTrue(tracker.shouldSendSnapshot());
+        tracker.recordSnapshot(state);
+        tracker.delta(state);
+        assertFalse(tracker.shouldSendSnapshot());
+        tracker.delta(state);
+        assertTrue(tracker.shouldSendSnapshot());
+
+        tracker.recordSnapshot(state);
+        tracker.requestSnapshot();
+        assertTrue(tracker.shouldSendSnapshot());
+    }
+}
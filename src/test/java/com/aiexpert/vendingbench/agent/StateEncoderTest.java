@@ -0,0 +1,64 @@
+package com.aiexpert.vendingbench.agent;
+
+import com.aiexpert.vendingbench.model.SimulationState;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StateEncoderTest {
+
+    @Test
+    void testTabularEncode_ShouldWriteOneSortedRowPerItem() {
+        // Arrange
+        SimulationState state = new SimulationState(500.0, 2.0, 1L);
+        state.addEmail(Map.of("from", "supplier", "body", "Price list | attached\nThanks"));
+
+        // Act
+        String encoded = new TabularStateEncoder().encode(state);
+
+        // Assert
+        assertTrue(encoded.startsWith("turn=1 day=1 cashBalance=500.00 dailyFee=2.00 totalUnitsSold=0\n"));
+        assertTrue(encoded.contains("storage cashHeld=0.00\nname|quantity|price|wholesaleCost\n"
+                + "Candy|50|1.25|0.25\nChips|50|1.75|0.30\nSoda|50|2.00|0.50\n"));
+        assertTrue(encoded.contains("emailInbox count=1\nbody|from\nPrice list \\| attached\\nThanks|supplier\n"));
+    }
+
+    @Test
+    void testEncode_EveryEncoding_ShouldIncludePendingDeliveries() throws Exception {
+        // Arrange
+        SimulationState state = new SimulationState(500.0, 2.0, 1L);
+        state.addPendingDelivery(4, Map.of("Soda", 30, "Chips", 10));
+
+        // Act
+        String tabular = StateEncoder.forName("tabular").encode(state);
+        String json = StateEncoder.forName("json").encode(state);
+
+        // Assert
+        assertTrue(tabular.contains("pendingDeliveries count=1\narrivalDay|name|quantity\n4|Chips|10\n4|Soda|30\n"));
+        assertTrue(json.contains("\"pendingDeliveries\":{\"4\":{\"Chips\":10,\"Soda\":30}}"));
+    }
+
+    @Test
+    void testEncode_ShouldOrderEncodingsBySize() throws Exception {
+        // Arrange
+        SimulationState state = new SimulationState(500.0, 2.0, 1L);
+
+        // Act
+        int pretty = StateEncoder.forName("pretty").encode(state).length();
+        int json = StateEncoder.forName("json").encode(state).length();
+        int tabular = StateEncoder.forName("tabular").encode(state).length();
+
+        // Assert
+        assertTrue(tabular < json && json < pretty);
+    }
+
+    @Test
+    void testForName_WithUnknownEncoding_ShouldThrow() {
+        assertEquals("json", StateEncoder.forName(null).getName());
+        assertThrows(IllegalArgumentException.class, () -> StateEncoder.forName("yaml"));
+    }
+}
@@ -0,0 +1,73 @@
+package com.aiexpert.vendingbench.agent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamingActionParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testFeed_WithActionSplitAcrossChunks_ShouldCompleteWhenActionCloses() throws Exception {
+        // Arrange
+        StreamingActionParser parser = new StreamingActionParser();
+        String[] chunks = { "```json\n{\"thought\": \"Restock {chips}", " and say \\\"hi\\\"\", \"act", "ion\": {\"tool\": \"purchase_from_supplier\", \"parameters\": {\"items\": [{\"name\": \"Chips\"",
+                ", \"quantity\": 5}]}}", ", \"extra\": \"never needed\"}\n```" };
+
+        // Act
+        boolean completedEarly = false;
+        int chunksFed = 0;
+        for (String chunk : chunks) {
+            chunksFed++;
+            if (parser.feed(chunk)) {
+                completedEarly = true;
+                break;
+            }
+        }
+
+        // Assert
+        assertTrue(completedEarly);
+        assertEquals(4, chunksFed);
+        JsonNode response = objectMapper.readTree(parser.getResponse());
+        assertEquals("Restock {chips} and say \"hi\"", response.get("thought").asText());
+        assertEquals("purchase_from_supplier", response.at("/action/tool").asText());
+        assertEquals(5, response.at("/action/parameters/items/0/quantity").asInt());
+    }
+
+    @Test
+    void testFeed_WithActionsArray_ShouldCompleteWhenArrayCloses() throws Exception {
+        // Arrange
+        StreamingActionParser parser = new StreamingActionParser();
+
+        // Act
+        boolean afterFirst = parser.feed("{\"thought\": \"Routine day\", \"actions\": [{\"tool\": \"collect_cash\", \"parameters\": {}}, ");
+        boolean afterSecond = parser.feed("{\"tool\": \"wait_for_next_day\"}], \"note\": \"ignored\"}");
+
+        // Assert
+        assertFalse(afterFirst);
+        assertTrue(afterSecond);
+        JsonNode response = objectMapper.readTree(parser.getResponse());
+        assertEquals(2, response.get("actions").size());
+        assertEquals("wait_for_next_day", response.at("/actions/1/tool").asText());
+    }
+
+    @Test
+    void testFeed_WithoutActionKey_ShouldCompleteOnlyWhenObjectCloses() {
+        // Arrange
+        StreamingActionParser parser = new StreamingActionParser();
+
+        // Act
+        boolean afterNestedObject = parser.feed("{\"thought\": \"hmm\", \"plan\": {\"step\": 1}");
+        boolean afterClose = parser.feed("}");
+
+        // Assert
+        assertFalse(afterNestedObject);
+        assertTrue(afterClose);
+        assertEquals("{\"thought\": \"hmm\", \"plan\": {\"step\": 1}}", parser.getResponse());
+    }
+}
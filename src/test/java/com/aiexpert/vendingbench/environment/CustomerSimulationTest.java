@@ -0,0 +1,71 @@
+package com.aiexpert.vendingbench.environment;
+
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.llm.LLMService;
+import com.aiexpert.vendingbench.llm.LLMServiceFactory;
+import com.aiexpert.vendingbench.logging.EventLogger;
+import com.aiexpert.vendingbench.model.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CustomerSimulationTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private SimulationDefaults.DemandProfiles config;
+    private CustomerSimulation customerSimulation;
+
+    @BeforeEach
+    void setUp() {
+        config = new SimulationDefaults.DemandProfiles();
+        LLMService llmService = new LLMService() {
+            @Override public void configure(String apiKey, String modelName) {}
+            @Override public String getProviderName() { return "Test"; }
+            @Override public String getModelName() { return "test"; }
+
+            @Override
+            public Mono<String> generateMono(String prompt) {
+                calls.incrementAndGet();
+                if (prompt.contains("'Gum'")) {
+                    return Mono.just("not json at all");
+                }
+                // Answers out of order and leaves out Soda.
+                return Mono.just("{\"profiles\": [{\"name\": \"Candy\", \"elasticity\": -2.0, \"reference_price\": 1.25, \"base_sales\": 12},"
+                        + " {\"name\": \"chips\", \"elasticity\": -0.8, \"reference_price\": 2.00, \"base_sales\": 40}]}");
+            }
+        };
+        LLMServiceFactory factory = new LLMServiceFactory(null, null, null) {
+            @Override
+            public LLMService getCachedService() { return llmService; }
+        };
+        customerSimulation = new CustomerSimulation(factory, new EventLogger(), config);
+    }
+
+    @Test
+    void testInitializeItemDemand_WithBatchedPrompt_ShouldMatchByNameAndDefaultMissingItems() {
+        // Arrange
+        config.setBatchSize(3);
+        Item chips = new Item("Chips", 10, 1.50, 0.50);
+        Item candy = new Item("Candy", 10, 1.00, 0.40);
+        Item soda = new Item("Soda", 10, 1.75, 0.60);
+        Item gum = new Item("Gum", 10, 0.75, 0.20);
+
+        // Act
+        customerSimulation.initializeItemDemand(List.of(chips, candy, soda, gum));
+
+        // Assert
+        assertEquals(2, calls.get());
+        assertEquals(-0.8, chips.getElasticity(), 1e-9);
+        assertEquals(40, chips.getBaseSales());
+        assertEquals(-2.0, candy.getElasticity(), 1e-9);
+        assertEquals(1.25, candy.getReferencePrice(), 1e-9);
+        assertEquals(-1.0, soda.getElasticity(), 1e-9);
+        assertEquals(20, soda.getBaseSales());
+        assertEquals(1.50, gum.getReferencePrice(), 1e-9);
+    }
+}
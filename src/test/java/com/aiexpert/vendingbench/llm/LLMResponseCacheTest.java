@@ -0,0 +1,78 @@
+package com.aiexpert.vendingbench.llm;
+
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LLMResponseCacheTest {
+
+    private SimulationDefaults.LlmCache config;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        config = new SimulationDefaults.LlmCache();
+        now = 1_000_000L;
+    }
+
+    @Test
+    void testGet_WhenCapacityExceeded_ShouldEvictLeastRecentlyUsed() {
+        // Arrange
+        config.setMaxEntries(2);
+        LLMResponseCache cache = new LLMResponseCache(config, () -> now);
+        cache.put("a", "first");
+        cache.put("b", "second");
+        cache.get("a");
+
+        // Act
+        cache.put("c", "third");
+
+        // Assert
+        assertEquals("first", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("third", cache.get("c"));
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void testGet_AfterTtl_ShouldMiss() {
+        // Arrange
+        config.setTtlSeconds(60);
+        LLMResponseCache cache = new LLMResponseCache(config, () -> now);
+        cache.put("key", "response");
+
+        // Act
+        String beforeExpiry = cache.get("key");
+        now += 61_000;
+        String afterExpiry = cache.get("key");
+
+        // Assert
+        assertEquals("response", beforeExpiry);
+        assertNull(afterExpiry);
+        assertEquals(1L, cache.getStats().get("expirations"));
+    }
+
+    @Test
+    void testGet_WithDiskDirectory_ShouldSurviveNewInstance() throws Exception {
+        // Arrange
+        Path directory = Files.createTempDirectory("llm-cache-test");
+        config.setDiskDirectory(directory.toString());
+        String key = LLMResponseCache.key("Gemini", "gemini-1.5-flash", "profile for Chips");
+        new LLMResponseCache(config, () -> now).put(key, "{\"elasticity\": -1.2}");
+
+        // Act
+        LLMResponseCache restarted = new LLMResponseCache(config, () -> now);
+
+        // Assert
+        assertEquals("{\"elasticity\": -1.2}", restarted.get(key));
+        assertEquals(1L, restarted.getStats().get("diskHits"));
+        assertNotEquals(key, LLMResponseCache.key("Gemini", "gemini-1.5-pro", "profile for Chips"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.aiexpert.vendingbench.llm;
+
+import com.aiexpert.vendingbench.agent.TabularStateEncoder;
+import com.aiexpert.vendingbench.model.SimulationState;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScriptedLLMServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ScriptedLLMService scriptedService;
+
+    @BeforeEach
+    void setUp() {
+        scriptedService = new ScriptedLLMService();
+    }
+
+    @Test
+    void testGenerate_WithEmptyMachine_ShouldRestockThenWaitForNextDay() throws Exception {
+        // Arrange
+        SimulationState state = new SimulationState(500.0, 2.0, 1L);
+        String prompt = "# RESPONSE FORMAT: ...\n# CURRENT STATE:\n" + objectMapper.writeValueAsString(state) + "\nRespond with your next command.";
+
+        // Act
+        JsonNode first = objectMapper.readTree(scriptedService.generate(prompt));
+        JsonNode second = objectMapper.readTree(scriptedService.generate(prompt));
+
+        // Assert
+        assertEquals("restock_machine", first.at("/action/tool").asText());
+        assertEquals(3, first.at("/action/parameters/items").size());
+        assertEquals(10, first.at("/action/parameters/items/0/quantity").asInt());
+        assertEquals("wait_for_next_day", second.at("/action/tool").asText());
+    }
+
+    @Test
+    void testGenerate_WithBatchedDemandPrompt_ShouldReturnStableProfilePerItem() throws Exception {
+        // Arrange
+        String prompt = "You are a market analyst. For each of these vending machine items: 'Chips', 'Soda', provide ... {\"profiles\": []}";
+
+        // Act
+        JsonNode first = objectMapper.readTree(scriptedService.generate(prompt));
+        JsonNode again = objectMapper.readTree(new ScriptedLLMService().generate(prompt));
+
+        // Assert
+        assertEquals(2, first.path("profiles").size());
+        assertEquals("Soda", first.at("/profiles/1/name").asText());
+        double elasticity = first.at("/profiles/0/elasticity").asDouble();
+        assertTrue(elasticity <= -0.5 && elasticity >= -2.5);
+        assertEquals(first, again);
+    }
+
+    @Test
+    void testGenerate_WithStateChanges_ShouldApplyThemToLastSnapshot() throws Exception {
+        // Arrange
+        SimulationState state = new SimulationState(500.0, 2.0, 1L);
+        String tools = "# TOOLS: read_email, collect_cash, restock_machine, wait_for_next_day\n";
+        String snapshot = tools + "# CURRENT STATE:\n" + objectMapper.writeValueAsString(state) + "\nRespond with your next command.";
+        String delta = tools + "# STATE CHANGES SINCE YOUR LAST TURN (unlisted fields are unchanged):\n"
+                + "{\"turn\":3,\"day\":2,\"vendingMachine\":{\"cashHeld\":12.5}}\nRespond with your next command.";
+        scriptedService.generate(snapshot);
+        scriptedService.generate(snapshot);
+
+        // Act
+        JsonNode afterDelta = objectMapper.readTree(scriptedService.generate(delta));
+
+        // Assert
+        assertEquals("collect_cash", afterDelta.at("/action/tool").asText());
+    }
+
+    @Test
+    void testGenerate_WithTabularState_ShouldRestockAndOrder() throws Exception {
+        // Arrange
+        SimulationState state = new SimulationState(500.0, 2.0, 1L);
+        state.getStorage().getItems().get("Soda").setQuantity(5);
+        String prompt = "# RESPONSE FORMAT: ...\n# CURRENT STATE:\n" + new TabularStateEncoder().encode(state)
+                + "\nRespond with your next command.";
+
+        // Act
+        JsonNode first = objectMapper.readTree(scriptedService.generate(prompt));
+        JsonNode second = objectMapper.readTree(scriptedService.generate(prompt));
+
+        // Assert
+        assertEquals("restock_machine", first.at("/action/tool").asText());
+        assertEquals(3, first.at("/action/parameters/items").size());
+        assertEquals("purchase_from_supplier", second.at("/action/tool").asText());
+        assertEquals("Soda", second.at("/action/parameters/items/0/name").asText());
+    }
+}
@@ -0,0 +1,185 @@
+package com.aiexpert.vendingbench.llm.resilience;
+
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.llm.CachingLLMService;
+import com.aiexpert.vendingbench.llm.LLMResponseCache;
+import com.aiexpert.vendingbench.llm.LLMService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResilientLLMServiceTest {
+
+    private SimulationDefaults.Resilience config;
+
+    @BeforeEach
+    void setUp() {
+        config = new SimulationDefaults.Resilience();
+        config.setRequestsPerMinute(60000);
+        config.setBurst(100);
+        config.setInitialBackoffMs(1);
+        config.setMaxBackoffMs(5);
+        config.setCircuitFailureThreshold(2);
+    }
+
+    @Test
+    void testGenerate_WithTransientErrors_ShouldRetryAndSucceed() {
+        // Arrange
+        FakeService primary = new FakeService("Primary", 503, 2);
+        LLMService service = new ResilientLLMService(List.of(route(primary)), config);
+
+        // Act
+        String response = service.generate("prompt");
+
+        // Assert
+        assertEquals("Primary answer", response);
+        assertEquals(3, primary.calls.get());
+    }
+
+    @Test
+    void testGenerate_WithAuthFailure_ShouldFailOverWithoutRetrying() {
+        // Arrange
+        FakeService primary = new FakeService("Primary", 401, Integer.MAX_VALUE);
+        FakeService secondary = new FakeService("Secondary", 0, 0);
+        LLMService service = new ResilientLLMService(List.of(route(primary), route(secondary)), config);
+
+        // Act
+        String response = service.generate("prompt");
+
+        // Assert
+        assertEquals("Secondary answer", response);
+        assertEquals(1, primary.calls.get());
+    }
+
+    @Test
+    void testGenerate_WhenCircuitOpens_ShouldSkipPrimary() {
+        // Arrange
+        config.setMaxRetries(0);
+        FakeService primary = new FakeService("Primary", 500, Integer.MAX_VALUE);
+        FakeService secondary = new FakeService("Secondary", 0, 0);
+        ResilientLLMService.Route primaryRoute = route(primary);
+        LLMService service = new ResilientLLMService(List.of(primaryRoute, route(secondary)), config);
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            service.generate("prompt");
+        }
+
+        // Assert
+        assertEquals(2, primary.calls.get());
+        assertEquals(4, secondary.calls.get());
+        assertEquals(CircuitBreaker.State.OPEN, primaryRoute.breaker().getState());
+    }
+
+    @Test
+    void testGenerate_WithCachePerRoute_ShouldCacheUnderTheAnsweringModel() {
+        // Arrange
+        LLMResponseCache cache = new LLMResponseCache(new SimulationDefaults());
+        FakeService primary = new FakeService("Primary", 401, Integer.MAX_VALUE);
+        FakeService secondary = new FakeService("Secondary", 0, 0);
+        LLMService service = new ResilientLLMService(List.of(
+                route(new CachingLLMService(primary, cache)), route(new CachingLLMService(secondary, cache))), config);
+
+        // Act
+        String response = service.generate("prompt");
+
+        // Assert
+        assertEquals("Secondary answer", response);
+        assertEquals("Secondary answer", cache.get(LLMResponseCache.key("Secondary", "model", "prompt")));
+        assertNull(cache.get(LLMResponseCache.key("Primary", "model", "prompt")));
+    }
+
+    @Test
+    void testGenerateStream_WhenHalfOpenTrialIsCancelled_ShouldReleaseTheTrial() {
+        // Arrange
+        AtomicLong clock = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000, clock::get);
+        breaker.recordFailure();
+        clock.addAndGet(2_000_000_000L); // Past the open period, so the next call is the half-open trial
+        LLMService silent = new FakeService("Primary", 0, 0) {
+            @Override
+            public Flux<String> generateStream(String prompt) {
+                return Flux.never();
+            }
+        };
+        LLMService service = new ResilientLLMService(List.of(new ResilientLLMService.Route(silent,
+                new TokenBucket(config.getRequestsPerMinute(), config.getBurst(), System::nanoTime), breaker)), config);
+
+        // Act
+        Disposable subscription = service.generateStream("prompt").subscribe();
+        boolean acquiredDuringTrial = breaker.tryAcquire();
+        subscription.dispose();
+
+        // Assert
+        assertFalse(acquiredDuringTrial);
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void testGenerateStream_WhenCallerStopsAfterFirstChunk_ShouldRecordSuccess() {
+        // Arrange
+        config.setCircuitFailureThreshold(5);
+        LLMService endless = new FakeService("Primary", 0, 0) {
+            @Override
+            public Flux<String> generateStream(String prompt) {
+                return Flux.just("chunk").concatWith(Flux.never());
+            }
+        };
+        ResilientLLMService.Route route = route(endless);
+        route.breaker().recordFailure(); // An earlier, unrelated failure
+        LLMService service = new ResilientLLMService(List.of(route), config);
+
+        // Act
+        String first = service.generateStream("prompt").take(1).blockLast();
+
+        // Assert
+        assertEquals("chunk", first);
+        assertEquals(0, route.breaker().getStats().get("consecutiveFailures"));
+        assertEquals(CircuitBreaker.State.CLOSED, route.breaker().getState());
+    }
+
+    private ResilientLLMService.Route route(LLMService service) {
+        return new ResilientLLMService.Route(service,
+                new TokenBucket(config.getRequestsPerMinute(), config.getBurst(), System::nanoTime),
+                new CircuitBreaker(config.getCircuitFailureThreshold(), 60_000, System::nanoTime));
+    }
+
+    private static class FakeService implements LLMService {
+        private final String name;
+        private final int failureStatus;
+        private final int failuresBeforeSuccess;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        FakeService(String name, int failureStatus, int failuresBeforeSuccess) {
+            this.name = name;
+            this.failureStatus = failureStatus;
+            this.failuresBeforeSuccess = failuresBeforeSuccess;
+        }
+
+        @Override public void configure(String apiKey, String modelName) {}
+        @Override public String getProviderName() { return name; }
+        @Override public String getModelName() { return "model"; }
+
+        @Override
+        public Mono<String> generateMono(String prompt) {
+            return Mono.defer(() -> {
+                if (calls.incrementAndGet() <= failuresBeforeSuccess) {
+                    return Mono.error(WebClientResponseException.create(failureStatus, "Failure", null, null, null));
+                }
+                return Mono.just(name + " answer");
+            });
+        }
+    }
+}
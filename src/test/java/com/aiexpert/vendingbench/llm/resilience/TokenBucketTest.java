@@ -0,0 +1,42 @@
+package com.aiexpert.vendingbench.llm.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenBucketTest {
+
+    @Test
+    void testReserveNanos_BeyondBurst_ShouldWaitForRefill() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(60, 2, () -> 0L);
+
+        // Act
+        long first = bucket.reserveNanos();
+        long second = bucket.reserveNanos();
+        long third = bucket.reserveNanos();
+
+        // Assert
+        assertEquals(0, first);
+        assertEquals(0, second);
+        assertTrue(third >= 999_000_000L && third <= 1_001_000_000L, "waited " + third);
+    }
+
+    @Test
+    void testReserveNanos_WithoutRate_ShouldNeverWait() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(0, 10, () -> 0L);
+
+        // Act
+        bucket.onThrottled();
+        long waited = 0;
+        for (int i = 0; i < 1000; i++) {
+            waited += bucket.reserveNanos();
+        }
+
+        // Assert
+        assertEquals(0, waited);
+        assertEquals(1L, bucket.getStats().get("throttled"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.aiexpert.vendingbench.memory;
+
+import com.aiexpert.vendingbench.model.VectorMemoryEntry;
+import com.aiexpert.vendingbench.service.EmbeddingService;
+import com.aiexpert.vendingbench.util.VectorMath;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static com.aiexpert.vendingbench.memory.VectorFixtures.randomVector;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BruteForceVectorIndexTest {
+
+    @Test
+    void testNearest_ShouldMatchFullSortByCosineSimilarity() {
+        // Arrange
+        SplittableRandom random = new SplittableRandom(3);
+        List<VectorMemoryEntry> raw = new ArrayList<>();
+        List<VectorMemoryEntry> normalized = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            float[] embedding = randomVector(random, 64, 1.0);
+            raw.add(new VectorMemoryEntry(String.valueOf(i), "memory " + i, embedding));
+            normalized.add(new VectorMemoryEntry(String.valueOf(i), "memory " + i, VectorMath.normalize(embedding)));
+        }
+        float[] query = randomVector(random, 64, 1.0);
+
+        // Act
+        List<String> fromHeap = BruteForceVectorIndex.nearest(normalized, VectorMath.normalize(query), 5).stream().map(VectorMemoryEntry::id).toList();
+        List<String> fromSort = raw.stream()
+                .sorted(Comparator.comparingDouble((VectorMemoryEntry entry) -> EmbeddingService.cosineSimilarity(entry.embedding(), query)).reversed())
+                .limit(5)
+                .map(VectorMemoryEntry::id)
+                .toList();
+
+        // Assert
+        assertEquals(fromSort, fromHeap);
+    }
+
+    @Test
+    void testNormalize_ShouldProduceUnitVector() {
+        // Arrange
+        float[] vector = { 3f, 4f, 0f, 0f, 12f };
+
+        // Act
+        float[] unit = VectorMath.normalize(vector);
+
+        // Assert
+        assertEquals(1.0, VectorMath.dot(unit, unit), 1e-6);
+        assertEquals(3f, vector[0]);
+        assertTrue(BruteForceVectorIndex.nearest(List.of(), unit, 3).isEmpty());
+    }
+}
@@ -0,0 +1,82 @@
+package com.aiexpert.vendingbench.memory;
+
+import com.aiexpert.vendingbench.model.VectorMemoryEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static com.aiexpert.vendingbench.memory.VectorFixtures.clusteredEntries;
+import static com.aiexpert.vendingbench.memory.VectorFixtures.clusteredQueries;
+import static com.aiexpert.vendingbench.memory.VectorFixtures.randomCentres;
+import static com.aiexpert.vendingbench.memory.VectorFixtures.recall;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HnswVectorIndexTest {
+    private static final int DIMENSIONS = 64;
+
+    @Test
+    void testSearch_ShouldRecallNearlyAllExactNeighbours() {
+        // Arrange
+        SplittableRandom random = new SplittableRandom(11);
+        List<float[]> centres = randomCentres(random, DIMENSIONS);
+        List<VectorMemoryEntry> entries = clusteredEntries(random, centres, 4000);
+        HnswVectorIndex hnsw = new HnswVectorIndex(16, 200, 64, 0, 42L);
+        entries.forEach(hnsw::add);
+
+        // Act
+        double recall = recall(hnsw, entries, clusteredQueries(random, centres, 200), 10);
+
+        // Assert
+        assertTrue(recall >= 0.95, "recall@10 was " + recall);
+    }
+
+    @Test
+    void testRemove_ShouldDropEntryFromResultsAndKeepRecallAfterRebuild() {
+        // Arrange
+        SplittableRandom random = new SplittableRandom(5);
+        List<float[]> centres = randomCentres(random, DIMENSIONS);
+        List<VectorMemoryEntry> entries = clusteredEntries(random, centres, 3000);
+        HnswVectorIndex hnsw = new HnswVectorIndex(16, 200, 64, 0, 42L);
+        entries.forEach(hnsw::add);
+        VectorMemoryEntry target = entries.get(0);
+
+        // Act
+        boolean removed = hnsw.remove(target.id());
+        for (int i = 1; i < 2000; i++) { // Enough deletions to trigger a rebuild
+            hnsw.remove(entries.get(i).id());
+        }
+        VectorMemoryEntry late = clusteredEntries(random, centres, 1).get(0);
+        VectorMemoryEntry added = new VectorMemoryEntry("3001", late.text(), late.embedding());
+        hnsw.add(added); // While the new graph is being built
+        hnsw.remove(entries.get(2000).id());
+        hnsw.swapInRebuiltGraph(true);
+
+        // Assert
+        assertTrue(removed);
+        assertFalse(hnsw.remove(target.id()));
+        assertEquals(1000, hnsw.size());
+        assertEquals(added, hnsw.search(added.embedding(), 1).get(0));
+        assertFalse(hnsw.search(target.embedding(), 10).contains(target));
+        assertTrue(recall(hnsw, entries.subList(2001, entries.size()), clusteredQueries(random, centres, 100), 10) >= 0.95);
+    }
+
+    @Test
+    void testSearch_BelowExactThreshold_ShouldMatchBruteForce() {
+        // Arrange
+        SplittableRandom random = new SplittableRandom(8);
+        List<float[]> centres = randomCentres(random, DIMENSIONS);
+        List<VectorMemoryEntry> entries = clusteredEntries(random, centres, 300);
+        HnswVectorIndex hnsw = new HnswVectorIndex(4, 8, 1, 1000, 42L);
+        entries.forEach(hnsw::add);
+        float[] query = clusteredQueries(random, centres, 1).get(0);
+
+        // Act
+        List<VectorMemoryEntry> results = hnsw.search(query, 7);
+
+        // Assert
+        assertEquals(BruteForceVectorIndex.nearest(entries, query, 7), results);
+    }
+}
@@ -0,0 +1,97 @@
+package com.aiexpert.vendingbench.memory;
+
+import com.aiexpert.vendingbench.model.VectorMemoryEntry;
+import com.aiexpert.vendingbench.util.VectorMath;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedVectorStoreTest {
+    private static final int DIMENSIONS = 32;
+
+    @Test
+    void testReopen_ShouldReturnSameResultsAsBeforeRestart() throws Exception {
+        // Arrange
+        Path directory = Files.createTempDirectory("vector-store-test");
+        List<VectorMemoryEntry> entries = randomEntries(new SplittableRandom(1), 500);
+        float[] query = entries.get(42).embedding();
+        MappedVectorStore store = new MappedVectorStore(directory);
+        entries.forEach(store::add);
+        List<VectorMemoryEntry> before = store.search(query, 5);
+        store.close();
+
+        // Act
+        MappedVectorStore reopened = new MappedVectorStore(directory);
+        List<VectorMemoryEntry> after = reopened.search(query, 5);
+
+        // Assert
+        assertEquals(500, reopened.size());
+        assertEquals(BruteForceVectorIndex.nearest(entries, query, 5).stream().map(VectorMemoryEntry::id).toList(),
+                after.stream().map(VectorMemoryEntry::id).toList());
+        assertEquals("memory 42 \u00fcn\u00efcode", after.get(0).text());
+        assertEquals(before.get(0).timestamp(), after.get(0).timestamp());
+        assertArrayEquals(query, after.get(0).embedding());
+        reopened.close();
+    }
+
+    @Test
+    void testRemove_ShouldCompactAndKeepLiveEntriesAcrossRestart() throws Exception {
+        // Arrange
+        Path directory = Files.createTempDirectory("vector-store-test");
+        List<VectorMemoryEntry> entries = randomEntries(new SplittableRandom(2), 3000);
+        MappedVectorStore store = new MappedVectorStore(directory);
+        store.setEmbedder("text-embedding-3-small");
+        entries.forEach(store::add);
+
+        // Act
+        for (int i = 0; i < 2000; i++) { // Deleted entries outnumber live ones, so the files are rewritten
+            assertTrue(store.remove(entries.get(i).id()));
+        }
+        store.close();
+        MappedVectorStore reopened = new MappedVectorStore(directory);
+
+        // Assert
+        assertEquals(1000, reopened.size());
+        assertEquals(entries.get(2000).id(), reopened.ids().get(0));
+        assertFalse(reopened.remove(entries.get(0).id()));
+        assertEquals(entries.get(2500).id(), reopened.search(entries.get(2500).embedding(), 1).get(0).id());
+        assertTrue(Files.exists(directory.resolve("vectors-1.f32")));
+        assertFalse(Files.exists(directory.resolve("vectors-0.f32")));
+        assertEquals("text-embedding-3-small", reopened.getEmbedder());
+        reopened.close();
+    }
+
+    @Test
+    void testAdd_WithDifferentDimensions_ShouldThrow() throws Exception {
+        // Arrange
+        MappedVectorStore store = new MappedVectorStore(Files.createTempDirectory("vector-store-test"));
+        store.add(new VectorMemoryEntry("1", "first", VectorMath.normalize(new float[] { 1f, 2f, 3f })));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> store.add(new VectorMemoryEntry("2", "second", new float[] { 1f, 0f })));
+        assertThrows(IllegalArgumentException.class, () -> store.add(new VectorMemoryEntry("1", "again", new float[] { 1f, 0f, 0f })));
+        store.close();
+    }
+
+    private static List<VectorMemoryEntry> randomEntries(SplittableRandom random, int count) {
+        List<VectorMemoryEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] vector = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = (float) random.nextGaussian();
+            }
+            entries.add(new VectorMemoryEntry(String.valueOf(i + 1), "memory " + i + " \u00fcn\u00efcode", VectorMath.normalize(vector)));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,88 @@
+package com.aiexpert.vendingbench.memory;
+
+import com.aiexpert.vendingbench.model.VectorMemoryEntry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static com.aiexpert.vendingbench.memory.VectorFixtures.clusteredEntries;
+import static com.aiexpert.vendingbench.memory.VectorFixtures.clusteredQueries;
+import static com.aiexpert.vendingbench.memory.VectorFixtures.randomCentres;
+import static com.aiexpert.vendingbench.memory.VectorFixtures.recall;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuantizedVectorIndexTest {
+    private static final int DIMENSIONS = 256;
+
+    @Test
+    void testSearch_Int8_ShouldKeepRecallAtQuarterOfTheMemory() {
+        // Arrange
+        SplittableRandom random = new SplittableRandom(1);
+        List<float[]> centres = randomCentres(random, DIMENSIONS);
+        List<VectorMemoryEntry> entries = clusteredEntries(random, centres, 2000);
+        QuantizedVectorIndex int8 = new QuantizedVectorIndex(QuantizedVectorIndex.Mode.INT8, 4, null);
+        BruteForceVectorIndex exact = new BruteForceVectorIndex();
+        entries.forEach(int8::add);
+        entries.forEach(exact::add);
+
+        // Act
+        double recall = recall(int8, entries, clusteredQueries(random, centres, 100), 10);
+
+        // Assert
+        assertTrue(recall >= 0.95, "int8 recall@10 was " + recall);
+        assertEquals(exact.getEmbeddingBytes() / 4 + 2000L * Float.BYTES, int8.getEmbeddingBytes());
+    }
+
+    @Test
+    void testSearch_BinaryWithStore_ShouldRescoreAtFullPrecision() throws Exception {
+        // Arrange
+        SplittableRandom random = new SplittableRandom(2);
+        List<float[]> centres = randomCentres(random, DIMENSIONS);
+        List<VectorMemoryEntry> entries = clusteredEntries(random, centres, 2000);
+        MappedVectorStore store = new MappedVectorStore(Files.createTempDirectory("quantized-test"));
+        QuantizedVectorIndex binary = new QuantizedVectorIndex(QuantizedVectorIndex.Mode.BINARY, 10, store);
+        entries.forEach(binary::add);
+
+        // Act
+        double recall = recall(binary, entries, clusteredQueries(random, centres, 100), 10);
+        VectorMemoryEntry top = binary.search(entries.get(7).embedding(), 1).get(0);
+
+        // Assert
+        assertTrue(recall >= 0.9, "binary recall@10 was " + recall);
+        assertEquals(entries.get(7).id(), top.id());
+        assertEquals(entries.get(7).text(), top.text());
+        assertEquals(2000L * DIMENSIONS / 8, binary.getEmbeddingBytes());
+        store.close();
+    }
+
+    @Test
+    void testRemove_ShouldDropEntryAndSurviveRestartWithStore() throws Exception {
+        // Arrange
+        SplittableRandom random = new SplittableRandom(3);
+        List<VectorMemoryEntry> entries = clusteredEntries(random, randomCentres(random, DIMENSIONS), 50);
+        Path directory = Files.createTempDirectory("quantized-test");
+        MappedVectorStore store = new MappedVectorStore(directory);
+        QuantizedVectorIndex index = new QuantizedVectorIndex(QuantizedVectorIndex.Mode.INT8, 4, store);
+        entries.forEach(index::add);
+
+        // Act
+        boolean removed = index.remove(entries.get(0).id());
+        store.close();
+        MappedVectorStore reopenedStore = new MappedVectorStore(directory);
+        QuantizedVectorIndex reopened = new QuantizedVectorIndex(QuantizedVectorIndex.Mode.INT8, 4, reopenedStore);
+
+        // Assert
+        assertTrue(removed);
+        assertFalse(reopened.remove(entries.get(0).id()));
+        assertNull(reopenedStore.get(entries.get(0).id()));
+        assertEquals(49, reopened.size());
+        assertEquals(entries.get(9).id(), reopened.search(entries.get(9).embedding(), 1).get(0).id());
+        reopenedStore.close();
+    }
+}
@@ -0,0 +1,74 @@
+package com.aiexpert.vendingbench.memory;
+
+import com.aiexpert.vendingbench.model.VectorMemoryEntry;
+import com.aiexpert.vendingbench.util.VectorMath;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Test vectors for the vector indexes and the search benchmark, and recall against an exact scan.
+ * Embeddings of real text cluster by topic, so the clustered entries and queries do too.
+ */
+final class VectorFixtures {
+    private static final int CENTRES = 20;
+
+    private VectorFixtures() {}
+
+    static float[] randomVector(SplittableRandom random, int dimensions, double scale) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) (random.nextGaussian() * scale);
+        }
+        return vector;
+    }
+
+    static List<float[]> randomCentres(SplittableRandom random, int dimensions) {
+        List<float[]> centres = new ArrayList<>(CENTRES);
+        for (int i = 0; i < CENTRES; i++) {
+            centres.add(randomVector(random, dimensions, 1.0));
+        }
+        return centres;
+    }
+
+    /**
+     * Unit-length entries spread over the centres, with ids counting up from 1.
+     */
+    static List<VectorMemoryEntry> clusteredEntries(SplittableRandom random, List<float[]> centres, int count) {
+        List<VectorMemoryEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new VectorMemoryEntry(String.valueOf(i + 1), "memory " + i, clusteredVector(random, centres, i)));
+        }
+        return entries;
+    }
+
+    static List<float[]> clusteredQueries(SplittableRandom random, List<float[]> centres, int count) {
+        List<float[]> queries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            queries.add(clusteredVector(random, centres, i));
+        }
+        return queries;
+    }
+
+    /**
+     * The share of the exact top-K neighbours among {@code entries} that {@code index} returns.
+     */
+    static double recall(VectorIndex index, List<VectorMemoryEntry> entries, List<float[]> queries, int topK) {
+        int hits = 0;
+        for (float[] query : queries) {
+            List<String> truth = BruteForceVectorIndex.nearest(entries, query, topK).stream().map(VectorMemoryEntry::id).toList();
+            hits += (int) index.search(query, topK).stream().map(VectorMemoryEntry::id).filter(truth::contains).count();
+        }
+        return hits / (double) (queries.size() * topK);
+    }
+
+    private static float[] clusteredVector(SplittableRandom random, List<float[]> centres, int i) {
+        float[] centre = centres.get(i % centres.size());
+        float[] vector = randomVector(random, centre.length, 0.5);
+        for (int d = 0; d < centre.length; d++) {
+            vector[d] += centre[d];
+        }
+        return VectorMath.normalize(vector);
+    }
+}
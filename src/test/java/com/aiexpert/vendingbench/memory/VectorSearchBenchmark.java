@@ -0,0 +1,116 @@
+package com.aiexpert.vendingbench.memory;
+
+import com.aiexpert.vendingbench.model.VectorMemoryEntry;
+import com.aiexpert.vendingbench.service.EmbeddingService;
+import com.aiexpert.vendingbench.util.VectorMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares vector memory searches on 1536-dimension vectors: sorting everything by cosine similarity, the
+ * exact scan (normalized embeddings, one dot product per entry, bounded heap), the HNSW index and the int8
+ * and binary quantized scans. Recall against the exact scan and embedding memory per mode are printed
+ * during setup. Random vectors have none of the cluster structure of real embeddings, so the approximate
+ * modes' recall here is a pessimistic bound.
+ * Run from the IDE or with {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main VectorSearchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VectorSearchBenchmark {
+    private static final int DIMENSIONS = 1536;
+    private static final int TOP_K = 5;
+
+    @Param({"1000", "10000", "100000"})
+    private int entries;
+
+    private List<VectorMemoryEntry> rawEntries;
+    private List<VectorMemoryEntry> unitEntries;
+    private HnswVectorIndex hnswIndex;
+    private QuantizedVectorIndex int8Index;
+    private QuantizedVectorIndex binaryIndex;
+    private float[] query;
+    private float[] unitQuery;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        rawEntries = new ArrayList<>(entries);
+        unitEntries = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            float[] embedding = VectorFixtures.randomVector(random, DIMENSIONS, 1.0);
+            rawEntries.add(new VectorMemoryEntry(String.valueOf(i), "memory " + i, embedding));
+            unitEntries.add(new VectorMemoryEntry(String.valueOf(i), "memory " + i, VectorMath.normalize(embedding)));
+        }
+        query = VectorFixtures.randomVector(random, DIMENSIONS, 1.0);
+        unitQuery = VectorMath.normalize(query);
+
+        BruteForceVectorIndex exactIndex = new BruteForceVectorIndex();
+        hnswIndex = new HnswVectorIndex(16, 200, 64, 0, 42L);
+        int8Index = new QuantizedVectorIndex(QuantizedVectorIndex.Mode.INT8, 4, null);
+        binaryIndex = new QuantizedVectorIndex(QuantizedVectorIndex.Mode.BINARY, 4, null);
+        for (VectorMemoryEntry entry : unitEntries) {
+            exactIndex.add(entry);
+            hnswIndex.add(entry);
+            int8Index.add(entry);
+            binaryIndex.add(entry);
+        }
+        List<float[]> probes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            probes.add(VectorMath.normalize(VectorFixtures.randomVector(random, DIMENSIONS, 1.0)));
+        }
+        for (VectorIndex index : List.of(exactIndex, hnswIndex, int8Index, binaryIndex)) {
+            System.out.printf("%n%s over %d entries: recall@%d %.3f, embedding memory %d KB", index.getName(), entries, TOP_K,
+                    VectorFixtures.recall(index, unitEntries, probes, TOP_K), index.getEmbeddingBytes() / 1024);
+        }
+        System.out.println();
+    }
+
+    @Benchmark
+    public List<String> sortByCosine() {
+        return rawEntries.stream()
+                .sorted((a, b) -> Double.compare(
+                        EmbeddingService.cosineSimilarity(b.embedding(), query),
+                        EmbeddingService.cosineSimilarity(a.embedding(), query)))
+                .limit(TOP_K)
+                .map(VectorMemoryEntry::text)
+                .toList();
+    }
+
+    @Benchmark
+    public List<VectorMemoryEntry> heapOverDotProducts() {
+        return BruteForceVectorIndex.nearest(unitEntries, unitQuery, TOP_K);
+    }
+
+    @Benchmark
+    public List<VectorMemoryEntry> hnsw() {
+        return hnswIndex.search(unitQuery, TOP_K);
+    }
+
+    @Benchmark
+    public List<VectorMemoryEntry> int8() {
+        return int8Index.search(unitQuery, TOP_K);
+    }
+
+    @Benchmark
+    public List<VectorMemoryEntry> binary() {
+        return binaryIndex.search(unitQuery, TOP_K);
+    }
+}
@@ -0,0 +1,79 @@
+package com.aiexpert.vendingbench.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class EmbeddingBatcherTest {
+
+    @Test
+    void testEmbed_RequestsWithinWindow_ShouldShareOneCall() {
+        // Arrange
+        List<List<String>> calls = new CopyOnWriteArrayList<>();
+        EmbeddingBatcher batcher = new EmbeddingBatcher(texts -> {
+            calls.add(texts);
+            return Mono.just(texts.stream().map(text -> new float[] { text.length() }).toList());
+        }, 64, Duration.ofMillis(50), 4);
+
+        // Act
+        List<Mono<float[]>> results = new ArrayList<>();
+        for (String text : List.of("a", "bb", "ccc", "bb")) {
+            results.add(batcher.embed(text));
+        }
+        List<Float> lengths = results.stream().map(result -> result.block(Duration.ofSeconds(5))[0]).toList();
+
+        // Assert
+        assertEquals(List.of(1f, 2f, 3f, 2f), lengths);
+        assertEquals(List.of(List.of("a", "bb", "ccc")), calls);
+        assertEquals(1L, batcher.getStats().get("sharedRequests"));
+        batcher.close();
+    }
+
+    @Test
+    void testEmbed_FullBatch_ShouldNotWaitForWindow() {
+        // Arrange
+        List<List<String>> calls = new CopyOnWriteArrayList<>();
+        EmbeddingBatcher batcher = new EmbeddingBatcher(texts -> {
+            calls.add(texts);
+            return Mono.just(texts.stream().map(text -> new float[] { 1f }).toList());
+        }, 2, Duration.ofSeconds(30), 4);
+
+        // Act
+        Mono<float[]> first = batcher.embed("one");
+        Mono<float[]> second = batcher.embed("two");
+        first.block(Duration.ofSeconds(5));
+        second.block(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals(List.of(List.of("one", "two")), calls);
+        batcher.close();
+    }
+
+    @Test
+    void testEmbed_WhenCallFails_ShouldFailEveryRequestInBatchAndRecover() {
+        // Arrange
+        List<List<String>> calls = new CopyOnWriteArrayList<>();
+        EmbeddingBatcher batcher = new EmbeddingBatcher(texts -> {
+            calls.add(texts);
+            return calls.size() == 1
+                    ? Mono.error(new IllegalStateException("429 Too Many Requests"))
+                    : Mono.just(texts.stream().map(text -> new float[] { 7f }).toList());
+        }, 64, Duration.ofMillis(20), 4);
+
+        // Act
+        Mono<float[]> failed = batcher.embed("x");
+
+        // Assert
+        assertThrows(IllegalStateException.class, () -> failed.block(Duration.ofSeconds(5)));
+        assertEquals(7f, batcher.embed("x").block(Duration.ofSeconds(5))[0]);
+        assertEquals(1L, batcher.getStats().get("failedBatches"));
+        batcher.close();
+    }
+}
@@ -0,0 +1,55 @@
+package com.aiexpert.vendingbench.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LocalTextEmbedderTest {
+
+    private final LocalTextEmbedder embedder = new LocalTextEmbedder(1536);
+
+    @Test
+    void testEmbed_RelatedMemories_ShouldBeCloserThanUnrelated() {
+        // Arrange
+        String query = "which supplier sells soda cheapest";
+        String related = "Ordered 40 sodas from the supplier BevCo at $0.55 each, cheaper than SnackHub.";
+        String unrelated = "Collected $120 cash from the vending machine and restocked chips.";
+
+        // Act
+        float[] queryVector = embedder.embed(query);
+        double relatedSimilarity = EmbeddingService.cosineSimilarity(queryVector, embedder.embed(related));
+        double unrelatedSimilarity = EmbeddingService.cosineSimilarity(queryVector, embedder.embed(unrelated));
+
+        // Assert
+        assertTrue(relatedSimilarity > 0.2, "related similarity was " + relatedSimilarity);
+        assertTrue(relatedSimilarity > unrelatedSimilarity + 0.15, relatedSimilarity + " vs " + unrelatedSimilarity);
+    }
+
+    @Test
+    void testEmbed_ShouldBeDeterministicAndSized() {
+        // Arrange
+        String text = "Raised the price of Chips to $1.75 on day 12.";
+
+        // Act
+        float[] first = embedder.embed(text);
+        float[] second = new LocalTextEmbedder(1536).embed(text);
+
+        // Assert
+        assertEquals(1536, first.length);
+        assertArrayEquals(first, second);
+        assertEquals(1.0, EmbeddingService.cosineSimilarity(first, second), 1e-6);
+    }
+
+    @Test
+    void testTokenize_ShouldKeepDecimalNumbers() {
+        // Act
+        List<String> words = LocalTextEmbedder.tokenize("Price: $1.75, then 2. Done");
+
+        // Assert
+        assertEquals(List.of("price", "1.75", "then", "2", "done"), words);
+    }
+}
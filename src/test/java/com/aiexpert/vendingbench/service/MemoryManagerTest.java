@@ -0,0 +1,270 @@
+package com.aiexpert.vendingbench.service;
+
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import com.aiexpert.vendingbench.llm.LLMHttpClients;
+import com.aiexpert.vendingbench.logging.EventLogger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemoryManagerTest {
+
+    /**
+     * Embeds offline, but holds every batch of writes until released.
+     */
+    private static class GatedEmbeddingService extends EmbeddingService {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        GatedEmbeddingService(SimulationDefaults defaults) {
+            super(new LLMHttpClients(defaults), defaults);
+        }
+
+        @Override
+        public List<float[]> createEmbeddings(String apiKey, List<String> texts) {
+            if (texts.size() > 1 || !texts.get(0).startsWith("query:")) {
+                entered.countDown();
+                try {
+                    released.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.createEmbeddings(apiKey, texts);
+        }
+    }
+
+    /**
+     * Answers embedding API calls locally and records which key each call used.
+     */
+    private static class RecordingEmbeddingService extends EmbeddingService {
+        private final List<String> callKeys = new CopyOnWriteArrayList<>();
+        private final LocalTextEmbedder embedder = new LocalTextEmbedder(64);
+
+        RecordingEmbeddingService(SimulationDefaults defaults) {
+            super(new LLMHttpClients(defaults), defaults);
+        }
+
+        @Override
+        Mono<List<float[]>> requestEmbeddings(String key, List<String> texts) {
+            callKeys.add(key);
+            return Mono.just(texts.stream().map(embedder::embed).toList());
+        }
+    }
+
+    /**
+     * Every embedding API call fails with an error that is not retried.
+     */
+    private static class FailingEmbeddingService extends EmbeddingService {
+        FailingEmbeddingService(SimulationDefaults defaults) {
+            super(new LLMHttpClients(defaults), defaults);
+        }
+
+        @Override
+        Mono<List<float[]>> requestEmbeddings(String key, List<String> texts) {
+            return Mono.error(new IllegalArgumentException("invalid input"));
+        }
+    }
+
+    private static SimulationDefaults defaults(int queueCapacity) {
+        SimulationDefaults defaults = new SimulationDefaults();
+        defaults.getMemory().setVectorIndex("exact");
+        defaults.getMemory().setIngestQueueCapacity(queueCapacity);
+        return defaults;
+    }
+
+    @Test
+    void testStoreInVectorDB_ShouldNotWaitForEmbeddingAndSearchShouldSeeIt() throws Exception {
+        // Arrange
+        SimulationDefaults defaults = defaults(16);
+        GatedEmbeddingService embeddings = new GatedEmbeddingService(defaults);
+        MemoryManager memory = new MemoryManager(embeddings, defaults.getMemory(), "test", new EventLogger());
+
+        // Act
+        String id = memory.storeInVectorDB("BevCo sells soda at $0.55 per can");
+        assertTrue(embeddings.entered.await(5, TimeUnit.SECONDS));
+        long pendingBeforeRelease = (long) memory.getVectorMetrics().get("pendingWrites");
+        Thread releaser = new Thread(() -> {
+            // Release the write only once the search is waiting for it
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            try {
+                while (!Long.valueOf(1L).equals(memory.getVectorMetrics().get("searchesAwaitingWrites"))
+                        && System.nanoTime() < deadline) {
+                    Thread.sleep(5);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            embeddings.released.countDown();
+        });
+        releaser.start();
+        List<String> results = memory.searchVectorDB("query: soda supplier", 1);
+
+        // Assert
+        assertEquals("1", id);
+        assertEquals(1L, pendingBeforeRelease);
+        assertEquals(1, memory.getVectorDBSize());
+        assertEquals(List.of("BevCo sells soda at $0.55 per can"), results);
+        assertEquals(1L, memory.getVectorMetrics().get("searchesAwaitingWrites"));
+        assertEquals(0L, memory.getVectorMetrics().get("pendingWrites"));
+        memory.close();
+    }
+
+    @Test
+    void testStoreInVectorDB_WhenQueueIsFull_ShouldMakeWriterWait() throws Exception {
+        // Arrange
+        SimulationDefaults defaults = defaults(1);
+        GatedEmbeddingService embeddings = new GatedEmbeddingService(defaults);
+        MemoryManager memory = new MemoryManager(embeddings, defaults.getMemory(), "test", new EventLogger());
+        memory.storeInVectorDB("first");
+        assertTrue(embeddings.entered.await(5, TimeUnit.SECONDS));
+        memory.storeInVectorDB("second"); // Fills the queue while "first" is being embedded
+
+        // Act
+        Thread writer = new Thread(() -> memory.storeInVectorDB("third"));
+        writer.start();
+        writer.join(200);
+        boolean writerWaited = writer.isAlive();
+        embeddings.released.countDown();
+        writer.join(5000);
+
+        // Assert
+        assertTrue(writerWaited);
+        assertEquals(1L, memory.getVectorMetrics().get("blockedWrites"));
+        assertEquals(3, memory.searchVectorDB("query: anything", 5).size());
+        assertEquals(3, memory.getVectorMetrics().get("entries"));
+        memory.close();
+    }
+
+    @Test
+    void testStoreInVectorDB_WithoutQueue_ShouldIndexBeforeReturning() {
+        // Arrange
+        SimulationDefaults defaults = defaults(0);
+        MemoryManager memory = new MemoryManager(new EmbeddingService(new LLMHttpClients(defaults), defaults), defaults.getMemory(), "test", new EventLogger());
+
+        // Act
+        memory.storeInVectorDB("Restocked chips on day 3");
+
+        // Assert
+        assertEquals(1, memory.getVectorMetrics().get("entries"));
+        assertEquals(0L, memory.getVectorMetrics().get("pendingWrites"));
+        memory.close();
+    }
+
+    @Test
+    void testVectorMemory_WithSessionKeys_ShouldUseCacheAndBatcherPerKey() {
+        // Arrange
+        SimulationDefaults defaults = defaults(0); // Writes embed in order, so cache hits are deterministic
+        RecordingEmbeddingService embeddings = new RecordingEmbeddingService(defaults);
+        MemoryManager first = new MemoryManager(embeddings, defaults.getMemory(), "first", new EventLogger());
+        MemoryManager second = new MemoryManager(embeddings, defaults.getMemory(), "second", new EventLogger());
+        first.configureEmbeddings("sk-first");
+        second.configureEmbeddings("sk-second");
+
+        // Act
+        first.storeInVectorDB("BevCo sells soda at $0.55 per can");
+        first.storeInVectorDB("Chips sell best on Fridays");
+        List<String> results = first.searchVectorDB("BevCo sells soda at $0.55 per can", 1);
+        second.storeInVectorDB("Chips sell best on Fridays");
+        second.searchVectorDB("chips", 1);
+        Map<String, Object> stats = embeddings.getStats();
+
+        // Assert
+        assertEquals(List.of("BevCo sells soda at $0.55 per can"), results);
+        assertTrue(embeddings.callKeys.contains("sk-first") && embeddings.callKeys.contains("sk-second"));
+        assertEquals(2L, stats.get("hits")); // The repeated texts, across sessions too
+        assertEquals(3L, stats.get("misses"));
+        assertEquals((long) embeddings.callKeys.size(), stats.get("apiCalls"));
+        first.close();
+        second.close();
+        embeddings.shutdown();
+    }
+
+    @Test
+    void testStoreInVectorDB_WhenEmbeddingApiFails_ShouldFailWriteWithoutLocalFallback() {
+        // Arrange
+        SimulationDefaults queued = defaults(16);
+        SimulationDefaults direct = defaults(0);
+        EventLogger logger = new EventLogger();
+        MemoryManager background = new MemoryManager(new FailingEmbeddingService(queued), queued.getMemory(), "background", logger);
+        MemoryManager inline = new MemoryManager(new FailingEmbeddingService(direct), direct.getMemory(), "inline", new EventLogger());
+        background.configureEmbeddings("sk-test");
+        inline.configureEmbeddings("sk-test");
+
+        // Act
+        background.storeInVectorDB("BevCo sells soda at $0.55 per can");
+        background.close(); // Waits for the queued write
+        assertThrows(IllegalStateException.class, () -> inline.storeInVectorDB("Chips sell best on Fridays"));
+
+        // Assert
+        assertEquals(0, background.getVectorMetrics().get("entries"));
+        assertEquals(1L, background.getVectorMetrics().get("failedWrites"));
+        assertTrue(logger.getMainLog().get(0).contains("Failed to store 1 vector memory writes"));
+        assertEquals(0, inline.getVectorMetrics().get("entries"));
+        assertEquals(1L, inline.getVectorMetrics().get("failedWrites"));
+        inline.close();
+    }
+
+    @Test
+    void testIngestThread_WhenIdle_ShouldExitAndRestartOnNextWrite() throws Exception {
+        // Arrange
+        SimulationDefaults defaults = defaults(16);
+        defaults.getMemory().setIngestIdleMs(50);
+        MemoryManager memory = new MemoryManager(new EmbeddingService(new LLMHttpClients(defaults), defaults), defaults.getMemory(), "idle", new EventLogger());
+        memory.storeInVectorDB("Restocked chips on day 3");
+        memory.searchVectorDB("chips", 1); // Waits for the write
+
+        // Act
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((boolean) memory.getVectorMetrics().get("ingestThreadRunning") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        boolean runningWhenIdle = (boolean) memory.getVectorMetrics().get("ingestThreadRunning");
+        memory.storeInVectorDB("Raised soda price to $1.25");
+        List<String> results = memory.searchVectorDB("Raised soda price to $1.25", 1);
+
+        // Assert
+        assertFalse(runningWhenIdle);
+        assertEquals(List.of("Raised soda price to $1.25"), results);
+        assertEquals(2, memory.getVectorMetrics().get("entries"));
+        memory.close();
+    }
+
+    @Test
+    void testVectorMemory_OnDiskWithAnotherEmbedder_ShouldRefuseToMixVectors() throws Exception {
+        // Arrange
+        SimulationDefaults defaults = defaults(0);
+        defaults.getMemory().setDirectory(Files.createTempDirectory("memory-test").toString());
+        RecordingEmbeddingService embeddings = new RecordingEmbeddingService(defaults);
+        MemoryManager withKey = new MemoryManager(embeddings, defaults.getMemory(), "session", new EventLogger());
+        withKey.configureEmbeddings("sk-test");
+        withKey.storeInVectorDB("BevCo sells soda at $0.55 per can");
+        withKey.close();
+
+        // Act
+        MemoryManager keyless = new MemoryManager(embeddings, defaults.getMemory(), "session", new EventLogger());
+        IllegalStateException write = assertThrows(IllegalStateException.class, () -> keyless.storeInVectorDB("Chips sell best on Fridays"));
+        assertThrows(IllegalStateException.class, () -> keyless.searchVectorDB("soda", 1));
+        keyless.configureEmbeddings("sk-test");
+        List<String> results = keyless.searchVectorDB("BevCo sells soda at $0.55 per can", 1);
+
+        // Assert
+        assertTrue(write.getMessage().contains("text-embedding-3-small"));
+        assertEquals(1, keyless.getVectorMetrics().get("entries"));
+        assertEquals(1L, keyless.getVectorMetrics().get("failedWrites"));
+        assertEquals(List.of("BevCo sells soda at $0.55 per can"), results);
+        keyless.close();
+        embeddings.shutdown();
+    }
+}
@@ -0,0 +1,53 @@
+package com.aiexpert.vendingbench.service;
+
+import com.aiexpert.vendingbench.config.SimulationDefaults;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenizerServiceTest {
+
+    private static final String TEXT = "Restocked 10 units of Chips and set the price of Soda to $2.25.";
+
+    @Test
+    void testForModel_ShouldPickEncodingByProviderAndModel() {
+        // Arrange
+        TokenizerService tokenizerService = new TokenizerService(new SimulationDefaults());
+
+        // Act / Assert
+        assertEquals("o200k_base", tokenizerService.forModel("openai", "gpt-4o-mini").getEncodingName());
+        assertEquals("cl100k_base", tokenizerService.forModel("openai", "gpt-4-turbo").getEncodingName());
+        assertEquals("cl100k_base", tokenizerService.forModel("anthropic", "claude-3-opus").getEncodingName());
+        assertEquals(1.15, tokenizerService.forModel("anthropic", "claude-3-opus").getCalibration());
+    }
+
+    @Test
+    void testCount_WithCalibration_ShouldScaleBaseCount() {
+        // Arrange
+        TokenizerService tokenizerService = new TokenizerService(new SimulationDefaults());
+        int base = tokenizerService.countTokens(TEXT);
+
+        // Act
+        int anthropic = tokenizerService.forModel("anthropic", "claude-3-opus").count(TEXT);
+
+        // Assert
+        assertEquals(Math.round(base * 1.15), anthropic);
+        assertEquals(base, tokenizerService.countTokens(TEXT));
+    }
+
+    @Test
+    void testCount_InApproximateMode_ShouldUseLengthEstimate() {
+        // Arrange
+        SimulationDefaults defaults = new SimulationDefaults();
+        defaults.getTokenizer().setApproximate(true);
+        TokenizerService tokenizerService = new TokenizerService(defaults);
+
+        // Act
+        int estimate = tokenizerService.countTokens(TEXT);
+
+        // Assert
+        assertEquals((int) Math.ceil(TEXT.length() / 4.0), estimate);
+        assertTrue(estimate > 0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.aiexpert.vendingbench.tool.remote;
+
+import com.aiexpert.vendingbench.model.SimulationState;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PurchaseFromSupplierToolTest {
+
+    private PurchaseFromSupplierTool purchaseTool;
+    private JsonNode orderParams;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        purchaseTool = new PurchaseFromSupplierTool();
+        orderParams = new ObjectMapper().readTree("{\"items\": [{\"name\": \"Chips\", \"quantity\": 20}, {\"name\": \"Soda\", \"quantity\": 10}]}");
+    }
+
+    @Test
+    void testExecute_WithSameSeed_ShouldProduceIdenticalOutcomes() {
+        // Arrange
+        SimulationState first = new SimulationState(10000.0, 2.0, 42L);
+        SimulationState second = new SimulationState(10000.0, 2.0, 42L);
+
+        // Act
+        List<String> firstResults = placeOrders(first, 25);
+        List<String> secondResults = placeOrders(second, 25);
+
+        // Assert
+        assertEquals(firstResults, secondResults);
+        assertEquals(first.getCashBalance(), second.getCashBalance());
+        assertEquals(first.getPendingDeliveries(), second.getPendingDeliveries());
+    }
+
+    @Test
+    void testExecute_DemandStream_ShouldBeIndependentOfSupplierOrders() {
+        // Arrange
+        SimulationState withOrders = new SimulationState(10000.0, 2.0, 7L);
+        SimulationState withoutOrders = new SimulationState(10000.0, 2.0, 7L);
+
+        // Act
+        placeOrders(withOrders, 10);
+
+        // Assert
+        assertEquals(withoutOrders.getRandom().demand().nextDouble(), withOrders.getRandom().demand().nextDouble());
+    }
+
+    private List<String> placeOrders(SimulationState state, int count) {
+        List<String> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(purchaseTool.execute(orderParams, state));
+        }
+        return results;
+    }
+}